@@ -1,6 +1,7 @@
 package com.example.worldfood.order;
 
 import com.worldpay.AlternativePaymentMethod;
+import com.worldpay.ByteJsonReader;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -14,6 +15,13 @@ import static com.worldpay.AlternativePaymentMethod.newPayPalApm;
  */
 public class Order implements Serializable {
 
+    private static final ByteJsonReader.Names NAMES = ByteJsonReader.Names.of(
+            "orderCode", "token", "orderDescription", "amount", "currencyCode", "paymentStatus",
+            "paymentResponse", "pendingUrl", "failureUrl", "cancelUrl", "redirectURL",
+            "successUrl", "environment");
+    private static final ByteJsonReader.Names PAYMENT_RESPONSE_NAMES = ByteJsonReader.Names.of(
+            "name", "shopperCountryCode");
+
     private final String orderCode;
     private final String apmToken;
     private final String orderDescription;
@@ -72,25 +80,95 @@ public class Order implements Serializable {
                 pendingUrl, failureUrl, cancelUrl, redirectURL, successUrl, null);
     }
 
-    static Order valueOf(final String json) throws JSONException {
-        final JSONObject apmOrderJson = new JSONObject(json);
-        final String orderCode = apmOrderJson.getString("orderCode");
-        final String apmToken = apmOrderJson.getString("token");
-        final String orderDescription = apmOrderJson.optString("orderDescription", null);
-        final int amount = apmOrderJson.getInt("amount");
-        final String currencyCode = apmOrderJson.optString("currencyCode", null);
-        final String paymentStatus = apmOrderJson.optString("paymentStatus", null);
-
-        final JSONObject paymentMethodJSONObject = apmOrderJson.getJSONObject("paymentResponse");
-        final String name = paymentMethodJSONObject.optString("name", null);
-        final String shopperCountryCode = paymentMethodJSONObject.optString("shopperCountryCode", null);
-
-        final String pendingUrl = apmOrderJson.optString("pendingUrl", null);
-        final String failureUrl = apmOrderJson.optString("failureUrl", null);
-        final String cancelUrl = apmOrderJson.optString("cancelUrl", null);
-        final String redirectURL = apmOrderJson.optString("redirectURL", null);
-        final String successUrl = apmOrderJson.optString("successUrl", null);
-        final String environment = apmOrderJson.optString("environment", null);
+    /**
+     * Creates an {@link Order} in one pass over the order JSON returned by WorldPay.
+     *
+     * @param reader A {@link ByteJsonReader} positioned at the start of the order.
+     * @return The {@link Order}.
+     * @throws JSONException If the JSON is malformed or a mandatory field is missing.
+     */
+    static Order valueOf(final ByteJsonReader reader) throws JSONException {
+        String orderCode = null;
+        String apmToken = null;
+        String orderDescription = null;
+        Integer amount = null;
+        String currencyCode = null;
+        String paymentStatus = null;
+        String name = null;
+        String shopperCountryCode = null;
+        boolean hasPaymentResponse = false;
+        String pendingUrl = null;
+        String failureUrl = null;
+        String cancelUrl = null;
+        String redirectURL = null;
+        String successUrl = null;
+        String environment = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(NAMES)) {
+                case 0:
+                    orderCode = reader.nextString();
+                    break;
+                case 1:
+                    apmToken = reader.nextString();
+                    break;
+                case 2:
+                    orderDescription = reader.nextString();
+                    break;
+                case 3:
+                    amount = reader.nextInt();
+                    break;
+                case 4:
+                    currencyCode = reader.nextString();
+                    break;
+                case 5:
+                    paymentStatus = reader.nextString();
+                    break;
+                case 6:
+                    hasPaymentResponse = true;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.selectName(PAYMENT_RESPONSE_NAMES)) {
+                            case 0:
+                                name = reader.nextString();
+                                break;
+                            case 1:
+                                shopperCountryCode = reader.nextString();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case 7:
+                    pendingUrl = reader.nextString();
+                    break;
+                case 8:
+                    failureUrl = reader.nextString();
+                    break;
+                case 9:
+                    cancelUrl = reader.nextString();
+                    break;
+                case 10:
+                    redirectURL = reader.nextString();
+                    break;
+                case 11:
+                    successUrl = reader.nextString();
+                    break;
+                case 12:
+                    environment = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (orderCode == null || apmToken == null || amount == null || !hasPaymentResponse) {
+            throw new JSONException("Order is missing orderCode, token, amount or paymentResponse");
+        }
 
         return new Order(orderCode, apmToken, orderDescription, paymentStatus,
                 newPayPalApm(name, shopperCountryCode), amount, currencyCode, pendingUrl,
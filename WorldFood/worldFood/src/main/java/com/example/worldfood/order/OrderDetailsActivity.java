@@ -182,6 +182,7 @@ public class OrderDetailsActivity extends Activity implements OnClickListener {
         worldPay.setClientKey(clientKey);
         worldPay.setReusable(true);
         Card.setValidationType(Card.VALIDATION_TYPE_BASIC);
+        worldPay.prewarm(this);
     }
 
     /**
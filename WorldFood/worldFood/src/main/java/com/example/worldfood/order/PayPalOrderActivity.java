@@ -11,6 +11,7 @@ import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
 import com.example.worldfood.R;
+import com.worldpay.ByteJsonReader;
 import com.worldpay.HttpServerResponse;
 import com.worldpay.ResponseError;
 import com.worldpay.SaveCardActivity;
@@ -158,7 +159,7 @@ public class PayPalOrderActivity extends Activity {
                 }
                 if (serverResponse.getStatusCode() == 200) {
                     try {
-                        callback.onSuccess(Order.valueOf(serverResponse.getResponse()));
+                        callback.onSuccess(Order.valueOf(ByteJsonReader.forResponse(serverResponse)));
                     } catch (JSONException e) {
                         worldPayError.setError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON, "Json parsing failed.");
                         callback.onError(worldPayError);
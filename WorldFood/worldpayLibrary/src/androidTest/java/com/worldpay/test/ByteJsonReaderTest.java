@@ -0,0 +1,214 @@
+package com.worldpay.test;
+
+import android.util.Log;
+
+import com.worldpay.ByteJsonReader;
+import com.worldpay.ResponseError;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+public class ByteJsonReaderTest extends TestCase {
+
+    private static final String TAG = "ByteJsonReaderTest";
+
+    private static final String TOKEN_RESPONSE = "{\"token\":\"TEST_RU_8d6b4a1e-5c0b-4b6f-9e3c-ad7bd8c50d42\","
+            + "\"reusable\":true,\"paymentMethod\":{\"type\":\"ObfuscatedCard\",\"name\":\"John Newman\","
+            + "\"expiryMonth\":12,\"expiryYear\":2020,\"issueNumber\":1,\"startMonth\":null,\"startYear\":null,"
+            + "\"cardType\":\"VISA_CREDIT\",\"maskedCardNumber\":\"**** **** **** 1111\","
+            + "\"cardSchemeType\":\"consumer\",\"cardSchemeName\":\"VISA CREDIT\",\"cardIssuer\":\"LLOYDS BANK PLC\","
+            + "\"countryCode\":\"GB\",\"cardClass\":\"credit\",\"cardProductTypeDescNonContactless\":\"Visa Credit Personal\","
+            + "\"cardProductTypeDescContactless\":\"CL Visa Credit Pers\",\"prepaid\":\"false\"}}";
+
+    private static final ByteJsonReader.Names NAMES = ByteJsonReader.Names.of(
+            "token", "reusable", "paymentMethod");
+    private static final ByteJsonReader.Names PAYMENT_METHOD_NAMES = ByteJsonReader.Names.of(
+            "type", "name", "expiryMonth", "expiryYear", "cardType", "maskedCardNumber",
+            "cardSchemeType", "cardSchemeName", "cardIssuer", "countryCode", "cardClass", "prepaid");
+
+    private static final int ITERATIONS = 2000;
+
+    public void testReadsTokenResponse() throws Exception {
+        String[] values = parseWithReader(TOKEN_RESPONSE.getBytes("UTF-8"));
+
+        assertEquals("TEST_RU_8d6b4a1e-5c0b-4b6f-9e3c-ad7bd8c50d42", values[0]);
+        assertEquals("true", values[1]);
+        assertEquals("ObfuscatedCard", values[2]);
+        assertEquals("12", values[4]);
+        assertEquals("2020", values[5]);
+        assertEquals("**** **** **** 1111", values[7]);
+        assertEquals("false", values[13]);
+    }
+
+    public void testMatchesJSONObject() throws Exception {
+        String[] streamed = parseWithReader(TOKEN_RESPONSE.getBytes("UTF-8"));
+        String[] tree = parseWithJSONObject(TOKEN_RESPONSE);
+
+        for (int i = 0; i < tree.length; i++) {
+            assertEquals(tree[i], streamed[i]);
+        }
+    }
+
+    public void testSkipsUnknownValues() throws Exception {
+        byte[] json = ("{\"unknown\":{\"a\":[1,2,{\"b\":\"c\\\"}\"}],\"d\":null},\"list\":[],"
+                + "\"message\":\"ok\"}").getBytes("UTF-8");
+        ByteJsonReader reader = new ByteJsonReader(json);
+        String message = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.selectName(ByteJsonReader.Names.of("message")) == 0) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        assertEquals("ok", message);
+        assertEquals(ByteJsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    public void testDecodesEscapesAndUnicode() throws Exception {
+        byte[] json = "{\"na\\u006de\":\"Jos\\u00e9 \\\"J\\\" Müller\\n\"}".getBytes("UTF-8");
+        ByteJsonReader reader = new ByteJsonReader(json);
+
+        reader.beginObject();
+        assertEquals(0, reader.selectName(ByteJsonReader.Names.of("name")));
+        assertEquals("José \"J\" Müller\n", reader.nextString());
+        reader.endObject();
+    }
+
+    public void testSaturatesIntegersOutOfRange() throws Exception {
+        assertEquals(0, readInt("-0"));
+        assertEquals(Integer.MAX_VALUE, readInt("2147483647"));
+        assertEquals(Integer.MIN_VALUE, readInt("-2147483648"));
+        // overflowing on the last digit
+        assertEquals(Integer.MAX_VALUE, readInt("2147483648"));
+        assertEquals(Integer.MIN_VALUE, readInt("-2147483649"));
+        assertEquals(Integer.MAX_VALUE, readInt("21474836470"));
+        assertEquals(Integer.MAX_VALUE, readInt("99999999999999999999"));
+        assertEquals(12, readInt("12.7"));
+        assertEquals(1000, readInt("1e3"));
+    }
+
+    public void testParsesErrorResponse() throws Exception {
+        ResponseError responseError = new ResponseError();
+        responseError.parseJson(new ByteJsonReader(("{\"httpStatusCode\":400,\"customCode\":\"BAD_REQUEST\","
+                + "\"message\":\"Card number must have digits only\",\"originalRequest\":{\"cvc\":\"123\"}}")
+                .getBytes("UTF-8")));
+
+        assertEquals(400, responseError.getHttpStatusCode());
+        assertEquals("BAD_REQUEST", responseError.getCustomCode());
+        assertEquals("Card number must have digits only", responseError.getMessage());
+        assertEquals("{\"cvc\":\"123\"}", responseError.getOriginalRequest());
+        assertEquals("", responseError.getDescription());
+    }
+
+    public void testMalformedJsonThrows() throws Exception {
+        try {
+            new ResponseError().parseJson(new ByteJsonReader("{\"message\":\"unterminated}".getBytes("UTF-8")));
+            fail("Expected a JSONException");
+        } catch (JSONException expected) {
+            // expected
+        }
+        try {
+            new ResponseError().parseJson(new ByteJsonReader(new byte[0]));
+            fail("Expected a JSONException");
+        } catch (JSONException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Compares parsing a token response with {@link ByteJsonReader} against building a
+     * {@link JSONObject} tree, which is what the library did before. The times are only logged,
+     * as they depend too much on the device and its load to be asserted.
+     */
+    public void testBenchmarkAgainstJSONObject() throws Exception {
+        byte[] bytes = TOKEN_RESPONSE.getBytes("UTF-8");
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            parseWithReader(bytes);
+            parseWithJSONObject(new String(bytes, "UTF-8"));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parseWithJSONObject(new String(bytes, "UTF-8"));
+        }
+        long treeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parseWithReader(bytes);
+        }
+        long readerNanos = System.nanoTime() - start;
+
+        Log.i(TAG, "JSONObject: " + treeNanos / ITERATIONS + " ns/response, ByteJsonReader: "
+                + readerNanos / ITERATIONS + " ns/response");
+    }
+
+    private static int readInt(String number) throws Exception {
+        ByteJsonReader reader = new ByteJsonReader(("{\"value\":" + number + "}").getBytes("UTF-8"));
+        reader.beginObject();
+        assertEquals(0, reader.selectName(ByteJsonReader.Names.of("value")));
+        int value = reader.nextInt();
+        reader.endObject();
+        return value;
+    }
+
+    private static String[] parseWithReader(byte[] json) throws JSONException {
+        String[] values = new String[14];
+        ByteJsonReader reader = new ByteJsonReader(json);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int index = reader.selectName(NAMES);
+            if (index == 2) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    int field = reader.selectName(PAYMENT_METHOD_NAMES);
+                    if (field >= 0) {
+                        values[field + 2] = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (index >= 0) {
+                values[index] = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return values;
+    }
+
+    private static String[] parseWithJSONObject(String json) throws JSONException {
+        String[] values = new String[14];
+        JSONObject mainObject = new JSONObject(json);
+        values[0] = mainObject.optString("token");
+        values[1] = String.valueOf(mainObject.optBoolean("reusable"));
+
+        JSONObject paymentMethod = mainObject.optJSONObject("paymentMethod");
+        values[2] = paymentMethod.optString("type");
+        values[3] = paymentMethod.optString("name");
+        values[4] = paymentMethod.optString("expiryMonth");
+        values[5] = paymentMethod.optString("expiryYear");
+        values[6] = paymentMethod.optString("cardType");
+        values[7] = paymentMethod.optString("maskedCardNumber");
+        values[8] = paymentMethod.optString("cardSchemeType");
+        values[9] = paymentMethod.optString("cardSchemeName");
+        values[10] = paymentMethod.optString("cardIssuer");
+        values[11] = paymentMethod.optString("countryCode");
+        values[12] = paymentMethod.optString("cardClass");
+        values[13] = paymentMethod.optString("prepaid");
+        return values;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.worldpay.test;
+
+import com.worldpay.CardNumberState;
+import com.worldpay.CardSchemeDetector.Scheme;
+import com.worldpay.CardValidator;
+
+import junit.framework.TestCase;
+
+public class CardNumberStateTest extends TestCase {
+
+    public void testTypingDigitByDigit() {
+        CardNumberState state = new CardNumberState();
+        StringBuilder text = new StringBuilder();
+
+        for (char c : "4444 3333 2222 1111".toCharArray()) {
+            text.append(c);
+            state.onTextChanged(text, text.length() - 1, 0, 1);
+            assertEquals(text.toString(), CardValidator.isValidCardNumber(text), state.isValid());
+        }
+
+        assertEquals(16, state.getDigitCount());
+        assertEquals(Scheme.VISA, state.getScheme());
+        assertTrue(state.isLuhnValid());
+        assertTrue(state.isValid());
+    }
+
+    public void testDeletingAndEditingInTheMiddle() {
+        CardNumberState state = new CardNumberState();
+        StringBuilder text = new StringBuilder("4444333322221111");
+        state.set(text);
+
+        // backspace
+        text.deleteCharAt(15);
+        state.onTextChanged(text, 15, 1, 0);
+        assertEquals(15, state.getDigitCount());
+        assertFalse(state.isValid());
+
+        text.append('1');
+        state.onTextChanged(text, 15, 0, 1);
+        assertTrue(state.isValid());
+
+        // replace the first digit, changing the scheme and the checksum
+        text.setCharAt(0, '5');
+        state.onTextChanged(text, 0, 1, 1);
+        assertEquals(Scheme.MASTERCARD, state.getScheme());
+        assertEquals(CardValidator.isValidCardNumber(text), state.isValid());
+
+        // paste over the whole text
+        text.replace(0, text.length(), "378282246310005");
+        state.onTextChanged(text, 0, 16, 15);
+        assertEquals(Scheme.AMEX, state.getScheme());
+        assertTrue(state.isValid());
+    }
+
+    public void testInvalidCharactersAndLengths() {
+        CardNumberState state = new CardNumberState();
+
+        state.set("4444-3333-2222-1111");
+        assertTrue(state.isValid());
+
+        state.set("4444x3333");
+        assertTrue(state.hasInvalidCharacters());
+        assertFalse(state.canBecomeValid());
+
+        state.set("4444333322221112");
+        assertTrue(state.canBecomeValid());
+        state.set("4444333322221112000");
+        assertFalse(state.canBecomeValid());
+        state.set("37828224631000");
+        assertTrue(state.canBecomeValid());
+        state.set("378282246310006");
+        assertFalse(state.canBecomeValid());
+
+        state.set("4444 3333 2222 1111 0000 1111 2222 3333 4444");
+        assertTrue(state.hasInvalidCharacters());
+        assertFalse(state.isValid());
+
+        state.clear();
+        assertEquals(0, state.getDigitCount());
+        assertEquals(Scheme.UNKNOWN, state.getScheme());
+        assertTrue(state.canBecomeValid());
+    }
+
+    public void testAgreesWithCardValidator() {
+        String[] numbers = {"5555555555554444", "6011111111111117", "3530111333300000",
+                "30569309025904", "000000000000", "12345678903", "4111111111111111111"};
+        CardNumberState state = new CardNumberState();
+        for (String number : numbers) {
+            state.set(number);
+            assertEquals(number, CardValidator.isValidCardNumber(number), state.isValid());
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.worldpay.test;
+
+import android.util.Log;
+
+import com.worldpay.CardSchemeDetector;
+import com.worldpay.CardSchemeDetector.Scheme;
+
+import junit.framework.TestCase;
+
+import java.util.regex.Pattern;
+
+public class CardSchemeDetectorTest extends TestCase {
+
+    private static final String TAG = "CardSchemeDetectorTest";
+
+    private static final String[] NUMBERS = {
+            "4444333322221111", "5555555555554444", "378282246310005", "6759649826438453",
+            "2223003122003222", "6011111111111117", "3530111333300000", "1234567890123456"};
+
+    /**
+     * The patterns {@code SaveCardActivity} matched before {@link CardSchemeDetector}.
+     */
+    private static final String[] PATTERNS = {
+            "^(5018|5020|5038|5612|5893|6304|6759|6761|6762|6763|0604|6390|6799)\\d+$",
+            "^4[0-9]{12}(?:[0-9]{3})?$", "^5[1-5][0-9]{14}$", "^3[47][0-9]{13}$"};
+
+    private static final int ITERATIONS = 5000;
+
+    public void testDetectsSchemes() {
+        assertEquals(Scheme.VISA, CardSchemeDetector.detect("4444 3333 2222 1111"));
+        assertEquals(Scheme.MASTERCARD, CardSchemeDetector.detect("5555555555554444"));
+        assertEquals(Scheme.MASTERCARD, CardSchemeDetector.detect("2720991234567890"));
+        assertEquals(Scheme.AMEX, CardSchemeDetector.detect("378282246310005"));
+        assertEquals(Scheme.MAESTRO, CardSchemeDetector.detect("6759649826438453"));
+        assertEquals(Scheme.DISCOVER, CardSchemeDetector.detect("6011111111111117"));
+        assertEquals(Scheme.DINERS_CLUB, CardSchemeDetector.detect("30569309025904"));
+        assertEquals(Scheme.JCB, CardSchemeDetector.detect("3530111333300000"));
+        assertEquals(Scheme.MIR, CardSchemeDetector.detect("2200123456789010"));
+
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.detect("2721001234567890"));
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.detect("1234567890123456"));
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.detect("4444/3333"));
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.detect(""));
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.detect(null));
+    }
+
+    public void testMostSpecificRangeWins() {
+        assertEquals(Scheme.UNIONPAY, CardSchemeDetector.detect("6212345678901232"));
+        assertEquals(Scheme.UNIONPAY, CardSchemeDetector.detect("622125"));
+        assertEquals(Scheme.DISCOVER, CardSchemeDetector.detect("622126"));
+        assertEquals(Scheme.DISCOVER, CardSchemeDetector.detect("622925"));
+        assertEquals(Scheme.UNIONPAY, CardSchemeDetector.detect("622926"));
+    }
+
+    public void testIncrementalLookup() {
+        int state = CardSchemeDetector.START_STATE;
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.getScheme(state));
+
+        state = CardSchemeDetector.nextState(state, '6');
+        assertEquals(Scheme.UNKNOWN, CardSchemeDetector.getScheme(state));
+        state = CardSchemeDetector.nextState(state, '2');
+        assertEquals(Scheme.UNIONPAY, CardSchemeDetector.getScheme(state));
+        for (char digit : "2200".toCharArray()) {
+            state = CardSchemeDetector.nextState(state, digit);
+        }
+        assertEquals(Scheme.DISCOVER, CardSchemeDetector.getScheme(state));
+        for (char digit : "1234567890".toCharArray()) {
+            state = CardSchemeDetector.nextState(state, digit);
+        }
+        assertEquals(Scheme.DISCOVER, CardSchemeDetector.getScheme(state));
+    }
+
+    public void testLengths() {
+        assertTrue(Scheme.VISA.isValidLength(13));
+        assertTrue(Scheme.VISA.isValidLength(16));
+        assertFalse(Scheme.VISA.isValidLength(15));
+        assertEquals(15, Scheme.AMEX.getMinLength());
+        assertEquals(4, Scheme.AMEX.getCvcLength());
+        assertEquals(3, Scheme.MASTERCARD.getCvcLength());
+        assertEquals(19, Scheme.UNKNOWN.getMaxLength());
+        assertFalse(Scheme.UNKNOWN.isValidLength(40));
+    }
+
+    /**
+     * Compares {@link CardSchemeDetector} against compiling and matching a regular expression per
+     * scheme, which is what {@code SaveCardActivity} did before. The times are only logged, as they
+     * depend too much on the device and its load to be asserted.
+     */
+    public void testBenchmarkAgainstPatterns() {
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            detectWithPatterns(NUMBERS[i % NUMBERS.length]);
+            CardSchemeDetector.detect(NUMBERS[i % NUMBERS.length]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            detectWithPatterns(NUMBERS[i % NUMBERS.length]);
+        }
+        long patternNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CardSchemeDetector.detect(NUMBERS[i % NUMBERS.length]);
+        }
+        long detectorNanos = System.nanoTime() - start;
+
+        Log.i(TAG, "Pattern: " + patternNanos / ITERATIONS + " ns/number, CardSchemeDetector: "
+                + detectorNanos / ITERATIONS + " ns/number");
+    }
+
+    private static int detectWithPatterns(String cardNumber) {
+        for (int i = 0; i < PATTERNS.length; i++) {
+            if (Pattern.compile(PATTERNS[i]).matcher(cardNumber).find()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
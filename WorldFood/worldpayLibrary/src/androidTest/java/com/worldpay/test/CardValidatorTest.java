@@ -0,0 +1,108 @@
+package com.worldpay.test;
+
+import android.util.Log;
+
+import com.worldpay.CardValidator;
+
+import junit.framework.TestCase;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class CardValidatorTest extends TestCase {
+
+    private static final String TAG = "CardValidatorTest";
+
+    private static final String[] NUMBERS = {
+            "4444333322221111", "4444 3333 2222 1111", "4444-3333-2222-1111", "5555555555554444",
+            "378282246310005", "6759649826438453", "4444333322221112", "44443333", "!!*@^HBJDKS&*^"};
+
+    private static final int ITERATIONS = 5000;
+
+    public void testCardNumbers() {
+        assertTrue(CardValidator.isValidCardNumber("4444333322221111"));
+        assertTrue(CardValidator.isValidCardNumber("4444 3333 2222 1111"));
+        assertTrue(CardValidator.isValidCardNumber("4444-3333-2222-1111"));
+        assertTrue(CardValidator.isValidCardNumber("378282246310005"));
+        assertTrue(CardValidator.isValidCardNumber(new StringBuilder("5555555555554444")));
+
+        assertFalse(CardValidator.isValidCardNumber(null));
+        assertFalse(CardValidator.isValidCardNumber(""));
+        assertFalse(CardValidator.isValidCardNumber("4444333322221112"));
+        assertFalse(CardValidator.isValidCardNumber("4444/3333/2222/1111"));
+        assertFalse(CardValidator.isValidCardNumber("000000000000"));
+        assertFalse(CardValidator.isValidCardNumber("42424242426"));
+        assertFalse(CardValidator.isValidCardNumber("44443333222211110000"));
+    }
+
+    public void testBasicCardNumbersAndCvcs() {
+        assertTrue(CardValidator.isValidCardNumberBasic("4444333322221112"));
+        assertFalse(CardValidator.isValidCardNumberBasic("4444 3333"));
+        assertFalse(CardValidator.isValidCardNumberBasic(""));
+
+        assertTrue(CardValidator.isValidCvc("123"));
+        assertTrue(CardValidator.isValidCvc(""));
+        assertTrue(CardValidator.isValidCvc(null));
+        assertFalse(CardValidator.isValidCvc("12a"));
+    }
+
+    public void testAgreesWithRegularExpressions() {
+        for (String number : NUMBERS) {
+            assertEquals(number, validateWithPattern(number), CardValidator.isValidCardNumber(number));
+        }
+    }
+
+    /**
+     * Compares {@link CardValidator} against the regular expression and Luhn loop the library used
+     * before. The times are only logged, {@link #testAgreesWithRegularExpressions()} checks the
+     * results.
+     */
+    public void testBenchmarkAgainstPattern() {
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            validateWithPattern(NUMBERS[i % NUMBERS.length]);
+            CardValidator.isValidCardNumber(NUMBERS[i % NUMBERS.length]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            validateWithPattern(NUMBERS[i % NUMBERS.length]);
+        }
+        long patternNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CardValidator.isValidCardNumber(NUMBERS[i % NUMBERS.length]);
+        }
+        long validatorNanos = System.nanoTime() - start;
+
+        Log.i(TAG, "Pattern: " + patternNanos / ITERATIONS + " ns/number, CardValidator: "
+                + validatorNanos / ITERATIONS + " ns/number");
+    }
+
+    /**
+     * The advanced validation of {@link com.worldpay.Card} before {@link CardValidator}.
+     */
+    private static boolean validateWithPattern(String cardNumber) {
+        Matcher m = Pattern.compile("[^0-9-\\s]").matcher(cardNumber);
+        String digits = cardNumber.replace(" ", "").replace("-", "");
+        if (m.find() || digits.length() < 12 || digits.length() > 19) {
+            return false;
+        }
+        boolean check = false;
+        int c = 0;
+        for (int f = digits.length() - 1; f >= 0; f--) {
+            int d = Character.getNumericValue(digits.charAt(f));
+            if (check) {
+                d = d * 2;
+                if (d > 9) {
+                    d = d - 9;
+                }
+            }
+            c = c + d;
+            check = !check;
+        }
+        return c > 0 && c % 10 == 0;
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.worldpay.test;
+
+import com.worldpay.CircuitBreaker;
+import com.worldpay.Transport;
+import com.worldpay.WorldPayClient;
+import com.worldpay.WorldPayError;
+import com.worldpay.WorldPayException;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.net.SocketException;
+import java.util.concurrent.TimeUnit;
+
+import static com.worldpay.CircuitBreaker.Endpoint.TOKEN;
+import static com.worldpay.CircuitBreaker.Endpoint.TOKENS;
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+import static com.worldpay.test.TestSupport.newConfig;
+
+public class CircuitBreakerTest extends TestCase {
+
+    private static final long OPEN_MILLIS = 60 * 1000;
+
+    public void testOpensAfterFailuresAndFailsFast() {
+        FakeTransport transport = newFailingTransport();
+        CircuitBreaker circuitBreaker = newCircuitBreaker(new FakeClock());
+        WorldPayClient client = newClient(transport, circuitBreaker);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(WorldPayError.ERROR_RESPONSE_CONNECTION, createTokenError(client));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(TOKENS));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(TOKEN));
+        assertEquals(WorldPayError.ERROR_CIRCUIT_OPEN, createTokenError(client));
+        assertEquals(4, transport.executions.get());
+    }
+
+    public void testSuccessfulTrialClosesCircuit() throws Exception {
+        FakeTransport transport = newFailingTransport();
+        FakeClock clock = new FakeClock();
+        CircuitBreaker circuitBreaker = newCircuitBreaker(clock);
+        WorldPayClient client = newClient(transport, circuitBreaker);
+        for (int i = 0; i < 4; i++) {
+            createTokenError(client);
+        }
+
+        clock.advance(OPEN_MILLIS - 1);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(TOKENS));
+        clock.advance(1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState(TOKENS));
+        transport.stopFailing();
+        client.createTokenBlocking(newCard(), 0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(TOKENS));
+    }
+
+    public void testFailedTrialOpensCircuitAgain() throws Exception {
+        FakeTransport transport = newFailingTransport();
+        FakeClock clock = new FakeClock();
+        CircuitBreaker circuitBreaker = newCircuitBreaker(clock);
+        WorldPayClient client = newClient(transport, circuitBreaker);
+        for (int i = 0; i < 4; i++) {
+            createTokenError(client);
+        }
+
+        clock.advance(OPEN_MILLIS - 1);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(TOKENS));
+        clock.advance(1);
+        transport.stopFailing().respond(503, null);
+        createTokenError(client);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(TOKENS));
+        assertEquals(5, transport.executions.get());
+    }
+
+    public void testClientErrorsDoNotOpenCircuit() {
+        FakeTransport transport = new FakeTransport().respond(400, null);
+        CircuitBreaker circuitBreaker = newCircuitBreaker(new FakeClock());
+        WorldPayClient client = newClient(transport, circuitBreaker);
+
+        for (int i = 0; i < 8; i++) {
+            createTokenError(client);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(TOKENS));
+        assertEquals(8, transport.executions.get());
+    }
+
+    public void testBuilderRejectsInvalidSettings() {
+        try {
+            new CircuitBreaker.Builder().setFailureRateThreshold(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new CircuitBreaker.Builder().setWindowSize(5).setMinimumCalls(6).build();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new CircuitBreaker.Builder().setClock(null);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static CircuitBreaker newCircuitBreaker(CircuitBreaker.Clock clock) {
+        return new CircuitBreaker.Builder()
+                .setWindowSize(4)
+                .setMinimumCalls(4)
+                .setFailureRateThreshold(0.5)
+                .setOpenMillis(OPEN_MILLIS)
+                .setClock(clock)
+                .build();
+    }
+
+    /**
+     * @return A transport failing to connect until it stops failing.
+     */
+    private static FakeTransport newFailingTransport() {
+        return new FakeTransport().failNext(Integer.MAX_VALUE, new SocketException("Connection refused"));
+    }
+
+    private static WorldPayClient newClient(Transport transport, CircuitBreaker circuitBreaker) {
+        return new WorldPayClient(newConfig(transport)
+                .setCircuitBreaker(circuitBreaker)
+                .build(), DIRECT, DIRECT);
+    }
+
+    private static int createTokenError(WorldPayClient client) {
+        try {
+            client.createTokenBlocking(newCard(), 0);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            return e.isResponseError() ? e.getResponseError().getHttpStatusCode() : e.getWorldPayError().getCode();
+        }
+        return -1;
+    }
+
+    /**
+     * Only moves when advanced, starting close to overflow to check the open period survives it.
+     */
+    private static class FakeClock implements CircuitBreaker.Clock {
+        private volatile long nanos = Long.MAX_VALUE - TimeUnit.SECONDS.toNanos(1);
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanos;
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.worldpay.test;
+
+import com.worldpay.HttpClientUtility;
+import com.worldpay.HttpServerResponse;
+import com.worldpay.TransportRequest;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionTest extends TestCase {
+
+    private static final String BODY = "{\"orderCode\":\"3b4f2c1d\",\"paymentStatus\":\"PRE_AUTHORIZED\","
+            + "\"redirectURL\":\"https://online.worldpay.com/3dsr/\",\"oneTime3DsToken\":\"PARes\"}";
+
+    public void testDecodesGzip() throws Exception {
+        byte[] gzip = gzip(BODY.getBytes("UTF-8"));
+
+        HttpServerResponse response = new HttpServerResponse(200, new ByteArrayInputStream(gzip),
+                gzip.length, "application/json;charset=UTF-8", "gzip");
+
+        assertEquals(BODY, response.getResponse());
+    }
+
+    public void testDecodesZlibAndRawDeflate() throws Exception {
+        for (boolean raw : new boolean[]{false, true}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+            out.write(BODY.getBytes("UTF-8"));
+            out.close();
+
+            HttpServerResponse response = new HttpServerResponse(200,
+                    new ByteArrayInputStream(bytes.toByteArray()), -1, null, "deflate");
+
+            assertEquals(BODY, response.getResponse());
+        }
+    }
+
+    public void testEmptyCompressedBody() throws Exception {
+        HttpServerResponse response = new HttpServerResponse(204, new ByteArrayInputStream(new byte[0]),
+                -1, null, "gzip");
+
+        assertEquals(0, response.getResponseBytes().length);
+    }
+
+    public void testUnsupportedEncodingFails() throws Exception {
+        try {
+            new HttpServerResponse(200, new ByteArrayInputStream(new byte[]{1, 2, 3}), 3, null, "br");
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    public void testCompressesLargeRequestBodies() throws Exception {
+        StringBuilder order = new StringBuilder();
+        while (order.length() < 4 * TransportRequest.MIN_COMPRESSED_SIZE) {
+            order.append(BODY);
+        }
+        TransportRequest request = new TransportRequest(HttpClientUtility.HTTP_METHOD.POST, "https://api.worldpay.com/v1/orders")
+                .setBody(order.toString())
+                .compressBody();
+
+        assertEquals("gzip", request.getHeaders().get("Content-Encoding"));
+        assertTrue(request.getBodyLength() < order.length());
+        byte[] sent = Arrays.copyOf(request.getBody(), request.getBodyLength());
+        assertEquals(order.toString(), new String(gunzip(sent), "UTF-8"));
+    }
+
+    public void testLeavesSmallRequestBodies() throws Exception {
+        TransportRequest request = new TransportRequest(HttpClientUtility.HTTP_METHOD.PUT, "https://api.worldpay.com/v1/orders")
+                .setBody(BODY)
+                .compressBody();
+
+        assertNull(request.getHeaders().get("Content-Encoding"));
+        assertEquals(BODY.length(), request.getBodyLength());
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+}
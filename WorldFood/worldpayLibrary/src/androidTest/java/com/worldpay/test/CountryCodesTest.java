@@ -0,0 +1,63 @@
+package com.worldpay.test;
+
+import com.worldpay.AlternativePaymentMethod;
+import com.worldpay.AlternativePaymentMethodValidationError;
+import com.worldpay.CountryCodes;
+
+import junit.framework.TestCase;
+
+public class CountryCodesTest extends TestCase {
+
+    public void testValidatesAlpha2Codes() {
+        assertTrue(CountryCodes.isValidAlpha2("GB"));
+        assertTrue(CountryCodes.isValidAlpha2("US"));
+        assertTrue(CountryCodes.isValidAlpha2("AD"));
+        assertTrue(CountryCodes.isValidAlpha2("ZW"));
+        assertTrue(CountryCodes.isValidAlpha2(new StringBuilder("FR")));
+
+        assertFalse(CountryCodes.isValidAlpha2("ZZ"));
+        assertFalse(CountryCodes.isValidAlpha2("UK"));
+        assertFalse(CountryCodes.isValidAlpha2("gb"));
+        assertFalse(CountryCodes.isValidAlpha2("GBR"));
+        assertFalse(CountryCodes.isValidAlpha2("G"));
+        assertFalse(CountryCodes.isValidAlpha2("G1"));
+        assertFalse(CountryCodes.isValidAlpha2(null));
+    }
+
+    public void testConvertsCodes() {
+        assertEquals("GBR", CountryCodes.toAlpha3("GB"));
+        assertEquals(826, CountryCodes.toNumeric("GB"));
+        assertEquals("GB", CountryCodes.fromAlpha3("GBR"));
+        assertEquals("GB", CountryCodes.fromNumeric(826));
+        assertEquals(20, CountryCodes.toNumeric("AD"));
+        assertEquals("AD", CountryCodes.fromNumeric(20));
+        assertEquals("GS", CountryCodes.fromAlpha3("SGS"));
+
+        assertNull(CountryCodes.toAlpha3("ZZ"));
+        assertEquals(-1, CountryCodes.toNumeric("ZZ"));
+        assertNull(CountryCodes.fromAlpha3("ZZZ"));
+        assertNull(CountryCodes.fromAlpha3("gbr"));
+        assertNull(CountryCodes.fromNumeric(999));
+        assertNull(CountryCodes.fromNumeric(-1));
+    }
+
+    public void testRoundTripsEveryCode() {
+        String[] codes = CountryCodes.getAlpha2Codes();
+
+        assertEquals(249, codes.length);
+        for (String code : codes) {
+            assertEquals(code, CountryCodes.fromAlpha3(CountryCodes.toAlpha3(code)));
+            assertEquals(code, CountryCodes.fromNumeric(CountryCodes.toNumeric(code)));
+        }
+    }
+
+    public void testAlternativePaymentMethodUsesTable() {
+        assertFalse(AlternativePaymentMethod.newPayPalApm("John Doe", "GB").validate().hasErrors());
+
+        assertTrue(AlternativePaymentMethod.newPayPalApm("John Doe", "ZZ").validate()
+                .hasError(AlternativePaymentMethodValidationError.ERROR_SHOPPER_COUNTRY_CODE));
+        assertTrue(AlternativePaymentMethod.newPayPalApm("John Doe", null).validate()
+                .hasError(AlternativePaymentMethodValidationError.ERROR_SHOPPER_COUNTRY_CODE));
+    }
+
+}
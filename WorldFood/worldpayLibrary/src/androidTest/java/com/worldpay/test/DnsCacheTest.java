@@ -0,0 +1,128 @@
+package com.worldpay.test;
+
+import com.worldpay.DnsCache;
+import com.worldpay.DnsResolver;
+import com.worldpay.HappyEyeballsConnector;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+/**
+ * Runs against local addresses only, no network is needed.
+ */
+public class DnsCacheTest extends TestCase {
+
+    private static final long TTL = 200;
+
+    private CountingResolver resolver;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        resolver = new CountingResolver();
+    }
+
+    public void testCachesUntilTtlExpires() throws Exception {
+        DnsCache cache = new DnsCache(resolver, 4, TTL);
+
+        InetAddress[] first = cache.resolve("api.worldpay.com");
+        InetAddress[] second = cache.resolve("api.worldpay.com");
+
+        assertEquals(1, resolver.lookups);
+        assertEquals(first[0], second[0]);
+
+        Thread.sleep(TTL + 50);
+        cache.resolve("api.worldpay.com");
+
+        assertEquals(2, resolver.lookups);
+    }
+
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        DnsCache cache = new DnsCache(resolver, 2, 60 * 1000);
+
+        cache.resolve("a.example");
+        cache.resolve("b.example");
+        cache.resolve("a.example");
+        cache.resolve("c.example");
+        assertEquals(3, resolver.lookups);
+
+        // b was evicted, a was used more recently
+        cache.resolve("a.example");
+        assertEquals(3, resolver.lookups);
+        cache.resolve("b.example");
+        assertEquals(4, resolver.lookups);
+    }
+
+    public void testDoesNotCacheFailures() throws Exception {
+        DnsCache cache = new DnsCache(resolver, 4, 60 * 1000);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.resolve("unknown.example");
+                fail("Expected an UnknownHostException");
+            } catch (UnknownHostException expected) {
+                // expected
+            }
+        }
+        assertEquals(2, resolver.lookups);
+    }
+
+    public void testRacesPastUnreachableAddress() throws Exception {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        try {
+            // TEST-NET-1 is never routed, the attempt hangs or fails
+            InetAddress[] addresses = {
+                    InetAddress.getByName("192.0.2.1"), InetAddress.getByName("127.0.0.1")
+            };
+
+            long start = System.nanoTime();
+            Socket socket = HappyEyeballsConnector.connect(addresses, server.getLocalPort(), 10 * 1000);
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+            try {
+                assertTrue(socket.isConnected());
+                assertEquals(InetAddress.getByName("127.0.0.1"), socket.getInetAddress());
+                assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 5 * 1000);
+            } finally {
+                socket.close();
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    public void testFailsWhenNoAddressConnects() throws Exception {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        int closedPort = server.getLocalPort();
+        server.close();
+
+        InetAddress[] addresses = {
+                InetAddress.getByName("127.0.0.1"), InetAddress.getByName("127.0.0.1")
+        };
+        try {
+            HappyEyeballsConnector.connect(addresses, closedPort, 10 * 1000).close();
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    private static final class CountingResolver implements DnsResolver {
+
+        int lookups;
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            lookups++;
+            if (host.startsWith("unknown")) {
+                throw new UnknownHostException(host);
+            }
+            return new InetAddress[]{InetAddress.getByAddress(host, new byte[]{127, 0, 0, 1})};
+        }
+    }
+
+}
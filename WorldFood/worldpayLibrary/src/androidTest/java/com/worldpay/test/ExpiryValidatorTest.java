@@ -0,0 +1,89 @@
+package com.worldpay.test;
+
+import com.worldpay.Card;
+import com.worldpay.ExpiryValidator;
+import com.worldpay.ValidationResult;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+
+public class ExpiryValidatorTest extends TestCase {
+
+    public void testValidUntilEndOfExpiryMonth() {
+        FakeClock clock = new FakeClock(2016, Calendar.MARCH, 15);
+        ExpiryValidator validator = new ExpiryValidator(clock);
+
+        assertEquals(0, validator.check("3", "2016"));
+        assertEquals(0, validator.check("03", "2016"));
+        assertEquals(0, validator.check("12", "2020"));
+        // February is over, Calendar.MONTH of March is 2
+        assertEquals(ValidationResult.EXPIRY_EXPIRED, validator.check("2", "2016"));
+        assertEquals(ValidationResult.EXPIRY_EXPIRED, validator.check("12", "2015"));
+    }
+
+    public void testRollsOverAtMonthBoundary() {
+        FakeClock clock = new FakeClock(2016, Calendar.MARCH, 31);
+        clock.millis += 24 * 60 * 60 * 1000 - 1;
+        ExpiryValidator validator = new ExpiryValidator(clock);
+        assertEquals(0, validator.check("03", "2016"));
+
+        clock.millis += 1;
+        assertEquals(ValidationResult.EXPIRY_EXPIRED, validator.check("03", "2016"));
+        assertEquals(0, validator.check("04", "2016"));
+
+        // and back, when the clock of the device is set back
+        clock.millis -= 1;
+        assertEquals(0, validator.check("03", "2016"));
+    }
+
+    public void testReportsFormatAndMonthErrors() {
+        ExpiryValidator validator = new ExpiryValidator(new FakeClock(2016, Calendar.MARCH, 15));
+
+        assertEquals(ValidationResult.EXPIRY_MISSING, validator.check("", "2016"));
+        assertEquals(ValidationResult.EXPIRY_MISSING, validator.check("12", null));
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, validator.check("1x", "2016"));
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, validator.check("12", "-123"));
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, validator.check("12", "16"));
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, validator.check("123", "2016"));
+        assertEquals(ValidationResult.EXPIRY_BAD_MONTH, validator.check("13", "2016"));
+        assertEquals(ValidationResult.EXPIRY_BAD_MONTH, validator.check("0", "2016"));
+    }
+
+    public void testChecksTypedText() {
+        ExpiryValidator validator = new ExpiryValidator(new FakeClock(2016, Calendar.MARCH, 15));
+
+        assertEquals(ValidationResult.EXPIRY_MISSING, validator.check(""));
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, validator.check("1"));
+        assertEquals(ValidationResult.EXPIRY_BAD_MONTH, validator.check("13/"));
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, validator.check("12/20"));
+        assertEquals(0, validator.check("12/2016"));
+        assertEquals(ValidationResult.EXPIRY_EXPIRED, validator.check("02/2016"));
+    }
+
+    public void testCardUsesInjectedValidator() {
+        Card card = new Card("John Doe", "03", "2016", "4444333322221111", "123");
+        ValidationResult result = new ValidationResult();
+
+        assertTrue(card.validateInto(result, new ExpiryValidator(new FakeClock(2016, Calendar.MARCH, 1))));
+        assertFalse(card.validateInto(result, new ExpiryValidator(new FakeClock(2016, Calendar.APRIL, 1))));
+        assertEquals(ValidationResult.EXPIRY_EXPIRED, result.getReasons());
+    }
+
+    private static class FakeClock implements ExpiryValidator.Clock {
+        long millis;
+
+        FakeClock(int year, int month, int day) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(year, month, day);
+            millis = calendar.getTimeInMillis();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return millis;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.worldpay.test;
+
+import com.worldpay.Card;
+import com.worldpay.ReusableToken;
+import com.worldpay.Transport;
+import com.worldpay.WorldPayClient;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import static com.worldpay.test.TestSupport.CARD_NUMBER;
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newConfig;
+
+/**
+ * Checks the request bodies written by {@code JsonRequestWriter}, through the token calls that
+ * use it, by parsing them back with {@link JSONObject}.
+ */
+public class JsonRequestWriterTest extends TestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public void testEscapesQuotesAndBackslashes() throws Exception {
+        String name = "John \"Johnny\" O\\Doe /";
+
+        byte[] body = createToken(newCard(name));
+
+        assertEquals(name, parsePaymentMethod(body).getString("name"));
+        assertTrue(decode(body).contains("\"name\":\"John \\\"Johnny\\\" O\\\\Doe /\""));
+    }
+
+    public void testEscapesControlCharacters() throws Exception {
+        for (char c = 0; c < 0x20; c++) {
+            String name = "a" + c + "b";
+
+            byte[] body = createToken(newCard(name));
+
+            assertEquals("char " + (int) c, name, parsePaymentMethod(body).getString("name"));
+            for (byte b : body) {
+                assertTrue("char " + (int) c + " written raw", b >= 0x20 || b < 0);
+            }
+        }
+        assertTrue(decode(createToken(newCard("a\u0001b"))).contains("\"a\\u0001b\""));
+        assertTrue(decode(createToken(newCard("a\nb\tc"))).contains("\"a\\nb\\tc\""));
+    }
+
+    public void testEscapesLineAndParagraphSeparators() throws Exception {
+        String name = "a\u2028b\u2029c";
+
+        byte[] body = createToken(newCard(name));
+
+        assertEquals(name, parsePaymentMethod(body).getString("name"));
+        assertTrue(decode(body).contains("\"a\\u2028b\\u2029c\""));
+    }
+
+    public void testEncodesUtf8() throws Exception {
+        // 2, 3 and 4 bytes, the last one from a surrogate pair
+        String name = "Zo\u00e9 \u20ac \ud83d\ude00";
+
+        byte[] body = createToken(newCard(name));
+
+        assertEquals(name, parsePaymentMethod(body).getString("name"));
+        assertTrue(indexOf(body, ("\"" + name + "\"").getBytes(UTF_8)) >= 0);
+        assertTrue(indexOf(body, new byte[]{(byte) 0xf0, (byte) 0x9f, (byte) 0x98, (byte) 0x80}) >= 0);
+    }
+
+    public void testEscapesUnpairedSurrogates() throws Exception {
+        String[] names = {"a\ud83d", "\ude00a", "\ude00\ud83d", "a\ud83db"};
+        for (String name : names) {
+            byte[] body = createToken(newCard(name));
+
+            // still valid UTF-8, with the surrogate escaped
+            String json = decode(body);
+            assertTrue(json, json.contains("\\ud83d") || json.contains("\\ude00"));
+            assertEquals(name, parsePaymentMethod(body).getString("name"));
+        }
+    }
+
+    public void testGrowsForLongStrings() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            name.append("\u20ac\"\ud83d\ude00");
+        }
+
+        byte[] body = createToken(newCard(name.toString()));
+
+        assertEquals(name.toString(), parsePaymentMethod(body).getString("name"));
+        // the next body on the same thread starts from an empty buffer
+        assertEquals("John Doe", parsePaymentMethod(createToken(newCard("John Doe"))).getString("name"));
+    }
+
+    public void testLeavesOutNullFields() throws Exception {
+        Card card = new Card("John Doe", null, "2099", "4444333322221111", null);
+
+        JSONObject paymentMethod = parsePaymentMethod(createToken(card));
+
+        assertFalse(paymentMethod.has("expiryMonth"));
+        assertFalse(paymentMethod.has("cvc"));
+        assertEquals("2099", paymentMethod.getString("expiryYear"));
+        assertEquals(4, paymentMethod.length());
+
+        FakeTransport transport = new FakeTransport();
+        newClient(transport).reuseTokenBlocking(new ReusableToken("T_C_key", "TEST_RU_1234", null), 0);
+        assertEquals("{\"clientKey\":\"T_C_key\"}", decode(transport.lastBody));
+    }
+
+    public void testPlacesCommasAfterPrefix() throws Exception {
+        byte[] body = createToken(new Card(null, "12", "2099", "4444333322221111", "123"));
+
+        assertEquals("{\"reusable\":false,\"clientKey\":\"T_C_key\",\"paymentMethod\":{\"type\":\"Card\","
+                + "\"expiryMonth\":\"12\",\"expiryYear\":\"2099\",\"cardNumber\":\"4444333322221111\","
+                + "\"cvc\":\"123\"}}", decode(body));
+
+        JSONObject json = new JSONObject(decode(body));
+        assertFalse(json.getBoolean("reusable"));
+        assertEquals("T_C_key", json.getString("clientKey"));
+        assertEquals(3, json.length());
+    }
+
+    private static byte[] createToken(Card card) throws Exception {
+        FakeTransport transport = new FakeTransport();
+        newClient(transport).createTokenBlocking(card, 0);
+        return transport.lastBody;
+    }
+
+    private static JSONObject parsePaymentMethod(byte[] body) throws Exception {
+        return new JSONObject(decode(body)).getJSONObject("paymentMethod");
+    }
+
+    /**
+     * Decodes {@code body}, failing on malformed UTF-8 instead of replacing it.
+     */
+    private static String decode(byte[] body) throws CharacterCodingException {
+        return UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(body))
+                .toString();
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + target.length), target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static WorldPayClient newClient(Transport transport) {
+        return new WorldPayClient(newConfig(transport)
+                .setClientKey("T_C_key")
+                .setCoalesceRequests(false)
+                .build(), DIRECT, DIRECT);
+    }
+
+    private static Card newCard(String holderName) {
+        return TestSupport.newCard(CARD_NUMBER, holderName);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.worldpay.test;
+
+import com.worldpay.CircuitBreaker;
+import com.worldpay.HttpServerResponse;
+import com.worldpay.RateLimiter;
+import com.worldpay.Timeouts;
+import com.worldpay.Transport;
+import com.worldpay.WorldPayClient;
+import com.worldpay.WorldPayError;
+import com.worldpay.WorldPayException;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+import static com.worldpay.test.TestSupport.newConfig;
+
+public class RateLimiterTest extends TestCase {
+
+    public void testCapsConcurrentCalls() throws Exception {
+        FakeTransport transport = new FakeTransport().setDelay(50);
+        RateLimiter rateLimiter = new RateLimiter.Builder().setPermitsPerSecond(1000).setBurst(100)
+                .setMaxConcurrentCalls(2).build();
+        final WorldPayClient client = newClient(transport, rateLimiter, Timeouts.DEFAULT);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        client.createTokenBlocking(newCard(), 0);
+                    } catch (WorldPayException e) {
+                        fail(e.toString());
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertEquals(6, transport.executions.get());
+        assertEquals(2, transport.maxConcurrent.get());
+        assertTrue(rateLimiter.getMaxWaitMillis() >= 50);
+        assertEquals(0, rateLimiter.getQueueDepth());
+        assertEquals(0, rateLimiter.getInFlightCount());
+    }
+
+    public void testTokenBucketSpacesCalls() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter.Builder().setPermitsPerSecond(20).setBurst(1).build();
+        WorldPayClient client = newClient(new FakeTransport(), rateLimiter, Timeouts.DEFAULT);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 4; i++) {
+            client.createTokenBlocking(newCard(), 0);
+        }
+
+        // the first call uses the burst, the next three wait 50 ms each
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 140);
+        assertTrue(rateLimiter.getAverageWaitMillis() > 0);
+    }
+
+    public void testRetryAfterHoldsEndpointBeyondDeadline() throws Exception {
+        FakeTransport transport = new FakeTransport()
+                .respond(429, "{\"httpStatusCode\":429,\"message\":\"Too many requests\"}")
+                .setRetryAfter("30");
+        RateLimiter rateLimiter = new RateLimiter.Builder().setPermitsPerSecond(10).build();
+        WorldPayClient client = newClient(transport, rateLimiter,
+                new Timeouts.Builder().setTotalMillis(500).build());
+
+        try {
+            client.createTokenBlocking(newCard(), 0);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            assertEquals(429, e.getResponseError().getHttpStatusCode());
+        }
+        assertEquals(1, rateLimiter.getThrottledCount());
+        assertEquals(5.0, rateLimiter.getCurrentRate(CircuitBreaker.Endpoint.TOKENS), 0.001);
+
+        transport.respond(200, TestSupport.TOKEN_RESPONSE).setRetryAfter(null);
+        long start = System.nanoTime();
+        try {
+            client.createTokenBlocking(newCard(), 0);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            assertEquals(WorldPayError.ERROR_DEADLINE_EXCEEDED, e.getWorldPayError().getCode());
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        assertEquals(1, transport.executions.get());
+    }
+
+    public void testRetryAfterAcceptsHttpDates() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String inOneMinute = format.format(new Date(System.currentTimeMillis() + 60 * 1000));
+
+        HttpServerResponse response = new HttpServerResponse(503, "").setRetryAfter(inOneMinute);
+
+        assertTrue(response.getRetryAfterMillis() > 50 * 1000);
+        assertTrue(response.getRetryAfterMillis() <= 60 * 1000);
+        assertEquals(2000, new HttpServerResponse(503, "").setRetryAfter("2").getRetryAfterMillis());
+        assertEquals(-1, new HttpServerResponse(503, "").setRetryAfter("soon").getRetryAfterMillis());
+    }
+
+    private static WorldPayClient newClient(Transport transport, RateLimiter rateLimiter, Timeouts timeouts) {
+        return new WorldPayClient(newConfig(transport)
+                .setCoalesceRequests(false)
+                .setCreateTokenTimeouts(timeouts)
+                .setRateLimiter(rateLimiter)
+                .build(), DIRECT, DIRECT);
+    }
+
+}
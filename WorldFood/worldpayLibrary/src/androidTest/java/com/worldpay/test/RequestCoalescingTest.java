@@ -0,0 +1,118 @@
+package com.worldpay.test;
+
+import com.worldpay.HttpServerResponse;
+import com.worldpay.ResponseCard;
+import com.worldpay.TransportRequest;
+import com.worldpay.WorldPay;
+import com.worldpay.WorldPayCall;
+import com.worldpay.WorldPayClient;
+import com.worldpay.WorldPayConfig;
+import com.worldpay.WorldPayMetrics;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+
+public class RequestCoalescingTest extends TestCase {
+
+    private WorldPayConfig previousConfig;
+    private ExecutorService executor;
+    private CountDownLatch gate;
+    private FakeTransport transport;
+    private WorldPayClient client;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        gate = new CountDownLatch(1);
+        // holds requests until the gate opens, numbering the tokens of the requests sent
+        transport = new FakeTransport() {
+            @Override
+            protected HttpServerResponse respond(TransportRequest request, int execution) {
+                return new HttpServerResponse(200, "{\"token\":\"TEST_SU_" + execution + "\"}");
+            }
+        }.holdUntil(gate);
+        previousConfig = TestSupport.setUpWorldPay(transport);
+        WorldPay.getInstance().getMetrics().reset();
+        executor = Executors.newFixedThreadPool(4);
+        client = new WorldPayClient(executor, DIRECT);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        gate.countDown();
+        executor.shutdownNow();
+        TestSupport.restoreWorldPay(previousConfig);
+        super.tearDown();
+    }
+
+    public void testIdenticalRequestsAreSentOnce() throws Exception {
+        WorldPayCall<ResponseCard> first = client.createToken(newCard("4444333322221111"), null);
+        assertTrue(transport.started.await(5, TimeUnit.SECONDS));
+        WorldPayCall<ResponseCard> second = client.createToken(newCard("4444333322221111"), null);
+        WorldPayCall<ResponseCard> third = client.createToken(newCard("4444333322221111"), null);
+        awaitCoalesced(2);
+
+        gate.countDown();
+
+        assertEquals("TEST_SU_1", first.get(5, TimeUnit.SECONDS).getToken());
+        assertEquals("TEST_SU_1", second.get(5, TimeUnit.SECONDS).getToken());
+        assertEquals("TEST_SU_1", third.get(5, TimeUnit.SECONDS).getToken());
+        assertEquals(1, transport.executions.get());
+    }
+
+    public void testDifferentCardsAreSentSeparately() throws Exception {
+        gate.countDown();
+
+        WorldPayCall<ResponseCard> first = client.createToken(newCard("4444333322221111"), null);
+        WorldPayCall<ResponseCard> second = client.createToken(newCard("5555555555554444"), null);
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, transport.executions.get());
+    }
+
+    public void testDuplicateIsSentWhenFirstIsCancelled() throws Exception {
+        WorldPayCall<ResponseCard> first = client.createToken(newCard("4444333322221111"), null);
+        assertTrue(transport.started.await(5, TimeUnit.SECONDS));
+        WorldPayCall<ResponseCard> second = client.createToken(newCard("4444333322221111"), null);
+        awaitCoalesced(1);
+
+        first.cancel(false);
+        gate.countDown();
+
+        assertEquals("TEST_SU_2", second.get(5, TimeUnit.SECONDS).getToken());
+        assertEquals(2, transport.executions.get());
+    }
+
+    public void testDisabledCoalescingSendsEveryRequest() throws Exception {
+        WorldPay.getInstance().setCoalesceRequests(false);
+        WorldPayCall<ResponseCard> first = client.createToken(newCard("4444333322221111"), null);
+        WorldPayCall<ResponseCard> second = client.createToken(newCard("4444333322221111"), null);
+        gate.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, transport.executions.get());
+    }
+
+    /**
+     * Waits until {@code count} requests joined the request in flight.
+     */
+    private static void awaitCoalesced(long count) throws InterruptedException {
+        WorldPayMetrics metrics = WorldPay.getInstance().getMetrics();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metrics.getCoalescedCount() < count) {
+            assertTrue("Requests did not join the request in flight", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+}
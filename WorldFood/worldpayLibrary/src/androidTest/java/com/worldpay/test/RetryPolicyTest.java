@@ -0,0 +1,86 @@
+package com.worldpay.test;
+
+import com.worldpay.RetryPolicy;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+
+public class RetryPolicyTest extends TestCase {
+
+    public void testDelayGrowsExponentiallyUpToMax() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setBaseDelay(100)
+                .setMaxDelay(350)
+                .setJitter(0)
+                .build();
+
+        assertEquals(100, policy.getDelay(1));
+        assertEquals(200, policy.getDelay(2));
+        assertEquals(350, policy.getDelay(3));
+        assertEquals(350, policy.getDelay(40));
+    }
+
+    public void testJitterStaysWithinBounds() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setBaseDelay(1000)
+                .setMaxDelay(1000)
+                .setJitter(0.5)
+                .build();
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getDelay(1);
+            assertTrue("delay " + delay, delay >= 500 && delay <= 1000);
+        }
+    }
+
+    public void testDefaultRetriesTransientFailures() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+
+        assertEquals(3, policy.getMaxAttempts());
+        assertTrue(policy.isRetryable(503));
+        assertTrue(policy.isRetryable(429));
+        assertFalse(policy.isRetryable(400));
+        assertFalse(policy.isRetryable(200));
+        assertTrue(policy.isRetryable(new ConnectException()));
+        assertTrue(policy.isRetryable(new SocketTimeoutException()));
+        assertTrue(policy.isRetryable(new UnknownHostException()));
+        assertFalse(policy.isRetryable(new IOException("Unsupported Content-Encoding")));
+    }
+
+    public void testCustomRetryOnSets() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setRetryOnStatusCodes(502)
+                .setRetryOnExceptions(Collections.<Class<? extends IOException>>singletonList(SocketTimeoutException.class))
+                .build();
+
+        assertTrue(policy.isRetryable(502));
+        assertFalse(policy.isRetryable(503));
+        assertTrue(policy.isRetryable(new SocketTimeoutException()));
+        assertFalse(policy.isRetryable(new ConnectException()));
+    }
+
+    public void testNoneNeverRetries() {
+        assertEquals(1, RetryPolicy.NONE.getMaxAttempts());
+    }
+
+    public void testRejectsInvalidValues() {
+        try {
+            new RetryPolicy.Builder().setMaxAttempts(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            new RetryPolicy.Builder().setJitter(1.5);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+package com.worldpay.test;
+
+import com.worldpay.Card;
+import com.worldpay.HttpServerResponse;
+import com.worldpay.RetryPolicy;
+import com.worldpay.Transport;
+import com.worldpay.TransportRequest;
+import com.worldpay.WorldPay;
+import com.worldpay.WorldPayConfig;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixtures shared by the tests: cards, a {@link FakeTransport} and the settings of the
+ * {@link WorldPay} singleton.
+ */
+final class TestSupport {
+
+    static final String CLIENT_KEY = "T_C_client_key";
+
+    static final String CARD_NUMBER = "4444333322221111";
+
+    static final String TOKEN_RESPONSE = "{\"token\":\"TEST_SU_1234\"}";
+
+    /**
+     * Runs tasks and callbacks on the calling thread.
+     */
+    static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private TestSupport() {
+    }
+
+    static Card newCard() {
+        return newCard(CARD_NUMBER);
+    }
+
+    static Card newCard(String cardNumber) {
+        return newCard(cardNumber, "John Doe");
+    }
+
+    static Card newCard(String cardNumber, String holderName) {
+        return new Card(holderName, "12", "2099", cardNumber, "123");
+    }
+
+    /**
+     * @return A builder sending with {@code transport} and {@link #CLIENT_KEY}, without retries.
+     */
+    static WorldPayConfig.Builder newConfig(Transport transport) {
+        return new WorldPayConfig.Builder()
+                .setClientKey(CLIENT_KEY)
+                .setTransport(transport)
+                .setRetryPolicy(RetryPolicy.NONE);
+    }
+
+    /**
+     * Sets the {@link WorldPay} singleton up for a test, sending with {@code transport} and
+     * {@link #CLIENT_KEY}, without retries. Pass the result to {@link #restoreWorldPay} in
+     * {@code tearDown}.
+     *
+     * @return The settings before the test.
+     */
+    static WorldPayConfig setUpWorldPay(Transport transport) {
+        WorldPay worldPay = WorldPay.getInstance();
+        WorldPayConfig previous = worldPay.getConfig();
+        worldPay.setConfig(previous.newBuilder()
+                .setClientKey(CLIENT_KEY)
+                .setTransport(transport)
+                .setRetryPolicy(RetryPolicy.NONE)
+                .build());
+        return previous;
+    }
+
+    static void restoreWorldPay(WorldPayConfig previous) {
+        WorldPay.getInstance().setConfig(previous);
+    }
+
+    /**
+     * A {@link Transport} answering every request with {@link #TOKEN_RESPONSE} until told
+     * otherwise, and recording what it was sent.
+     * <p/>
+     * A request goes through, in order: the failures of {@link #failNext}, the hold of
+     * {@link #holdUntil} or {@link #holdUntilAborted}, the delay of {@link #setDelay}, then
+     * {@link #respond(TransportRequest, int)}. Aborting a held request closes it with an
+     * {@link IOException}, as closing its socket would.
+     */
+    static class FakeTransport implements Transport {
+
+        private static final CountDownLatch NEVER = new CountDownLatch(1);
+
+        final AtomicInteger executions = new AtomicInteger();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger prewarms = new AtomicInteger();
+        /**
+         * Opens when the first request arrives.
+         */
+        final CountDownLatch started = new CountDownLatch(1);
+        /**
+         * Opens when the first request ends.
+         */
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile TransportRequest lastRequest;
+        volatile byte[] lastBody;
+        volatile long lastTtlMillis;
+
+        private volatile int statusCode = 200;
+        private volatile String body = TOKEN_RESPONSE;
+        private volatile String retryAfter;
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile IOException failure;
+        private volatile IOException prewarmFailure;
+        private volatile CountDownLatch gate;
+        private volatile long delayMillis;
+
+        /**
+         * Answers the next requests with {@code statusCode} and {@code body}.
+         */
+        FakeTransport respond(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+            return this;
+        }
+
+        FakeTransport setRetryAfter(String retryAfter) {
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        /**
+         * Fails the next {@code count} requests with {@code failure}, as a device without network
+         * would.
+         */
+        FakeTransport failNext(int count, IOException failure) {
+            this.failure = failure;
+            failures.set(count);
+            return this;
+        }
+
+        FakeTransport stopFailing() {
+            failures.set(0);
+            return this;
+        }
+
+        FakeTransport failPrewarm(IOException prewarmFailure) {
+            this.prewarmFailure = prewarmFailure;
+            return this;
+        }
+
+        /**
+         * Holds requests until {@code gate} opens.
+         */
+        FakeTransport holdUntil(CountDownLatch gate) {
+            this.gate = gate;
+            return this;
+        }
+
+        /**
+         * Holds requests until they are aborted, as a connection stuck on a slow network would.
+         */
+        FakeTransport holdUntilAborted() {
+            return holdUntil(NEVER);
+        }
+
+        FakeTransport setDelay(long delayMillis) {
+            this.delayMillis = delayMillis;
+            return this;
+        }
+
+        String getLastBodyText() throws IOException {
+            return new String(lastBody, "UTF-8");
+        }
+
+        @Override
+        public HttpServerResponse execute(TransportRequest request) throws IOException {
+            int execution = executions.incrementAndGet();
+            lastRequest = request;
+            lastBody = request.getBody() == null ? null : Arrays.copyOf(request.getBody(), request.getBodyLength());
+            int now = concurrent.incrementAndGet();
+            while (true) {
+                int max = maxConcurrent.get();
+                if (now <= max || maxConcurrent.compareAndSet(max, now)) {
+                    break;
+                }
+            }
+            started.countDown();
+            try {
+                if (takeFailure()) {
+                    throw failure;
+                }
+                hold(request);
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                return respond(request, execution);
+            } catch (InterruptedException e) {
+                throw new IOException(e.toString());
+            } finally {
+                concurrent.decrementAndGet();
+                finished.countDown();
+            }
+        }
+
+        /**
+         * @param execution The number of the request, from 1.
+         * @return The response to {@code request}.
+         */
+        protected HttpServerResponse respond(TransportRequest request, int execution) throws IOException {
+            return new HttpServerResponse(statusCode, body).setRetryAfter(retryAfter);
+        }
+
+        private boolean takeFailure() {
+            while (true) {
+                int left = failures.get();
+                if (left <= 0) {
+                    return false;
+                }
+                if (failures.compareAndSet(left, left - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void hold(TransportRequest request) throws IOException {
+            CountDownLatch gate = this.gate;
+            if (gate == null) {
+                return;
+            }
+            final Thread thread = Thread.currentThread();
+            request.setAbortAction(new Runnable() {
+                @Override
+                public void run() {
+                    thread.interrupt();
+                }
+            });
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IOException("Socket closed");
+            } finally {
+                request.setAbortAction(null);
+            }
+        }
+
+        @Override
+        public void prewarm(String url, long ttlMillis) throws IOException {
+            prewarms.incrementAndGet();
+            lastTtlMillis = ttlMillis;
+            if (prewarmFailure != null) {
+                throw prewarmFailure;
+            }
+        }
+    }
+
+}
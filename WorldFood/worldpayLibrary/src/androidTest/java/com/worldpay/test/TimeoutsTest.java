@@ -0,0 +1,80 @@
+package com.worldpay.test;
+
+import com.worldpay.RetryPolicy;
+import com.worldpay.Timeouts;
+import com.worldpay.Transport;
+import com.worldpay.WorldPayClient;
+import com.worldpay.WorldPayError;
+import com.worldpay.WorldPayException;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+import static com.worldpay.test.TestSupport.newConfig;
+
+public class TimeoutsTest extends TestCase {
+
+    public void testBuilderRejectsInvalidTimeouts() {
+        try {
+            new Timeouts.Builder().setConnectMillis(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new Timeouts.Builder().setTotalMillis(-1);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, new Timeouts.Builder().setTotalMillis(0).build().getTotalMillis());
+    }
+
+    public void testTotalDeadlineClosesSlowRequest() throws Exception {
+        // never finishes the response, as a server sending one byte at a time within the read timeout would
+        FakeTransport transport = new FakeTransport().holdUntilAborted();
+        WorldPayClient client = newClient(transport, new Timeouts.Builder().setTotalMillis(200).build(),
+                RetryPolicy.NONE);
+        long start = System.nanoTime();
+
+        try {
+            client.createTokenBlocking(newCard(), 0);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            assertEquals(WorldPayError.ERROR_DEADLINE_EXCEEDED, e.getWorldPayError().getCode());
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        assertTrue(transport.lastRequest.getReadTimeout() <= 200);
+        assertEquals(1, client.getConfig().getMetrics().getFailureCount());
+    }
+
+    public void testDoesNotRetryPastTheDeadline() throws Exception {
+        FakeTransport transport = new FakeTransport().respond(503, "{}");
+        RetryPolicy policy = new RetryPolicy.Builder().setMaxAttempts(3).setBaseDelay(10000).setMaxDelay(10000)
+                .setJitter(0).build();
+        WorldPayClient client = newClient(transport, new Timeouts.Builder().setTotalMillis(1000).build(), policy);
+        long start = System.nanoTime();
+
+        try {
+            client.createTokenBlocking(newCard(), 0);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException expected) {
+            // the 503 response of the only attempt
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        assertEquals(1, transport.executions.get());
+        assertEquals(0, client.getConfig().getMetrics().getRetryCount());
+    }
+
+    private static WorldPayClient newClient(Transport transport, Timeouts timeouts, RetryPolicy policy) {
+        return new WorldPayClient(newConfig(transport)
+                .setRetryPolicy(policy)
+                .setCreateTokenTimeouts(timeouts)
+                .build(), DIRECT, DIRECT);
+    }
+
+}
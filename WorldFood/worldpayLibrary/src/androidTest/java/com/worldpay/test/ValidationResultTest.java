@@ -0,0 +1,100 @@
+package com.worldpay.test;
+
+import com.worldpay.AlternativePaymentMethod;
+import com.worldpay.AlternativePaymentMethodValidationError;
+import com.worldpay.Card;
+import com.worldpay.CardValidationError;
+import com.worldpay.ValidationResult;
+
+import junit.framework.TestCase;
+
+import static com.worldpay.test.TestSupport.newCard;
+
+public class ValidationResultTest extends TestCase {
+
+    public void testValidCard() {
+        ValidationResult result = new ValidationResult();
+
+        assertTrue(newCard("4444333322221111").validateInto(result));
+        assertTrue(result.isValid());
+        assertEquals(0, result.getReasons());
+    }
+
+    public void testReasonsOfCardNumber() {
+        ValidationResult result = new ValidationResult();
+
+        assertFalse(newCard("4444333322221112").validateInto(result));
+        assertEquals(ValidationResult.CARD_NUMBER_LUHN, result.getReasons());
+        assertTrue(result.hasError(ValidationResult.CARD_NUMBER));
+
+        // the same instance is cleared for the next check
+        newCard("44443333").validateInto(result);
+        assertEquals(ValidationResult.CARD_NUMBER_TOO_SHORT, result.getReasons());
+        newCard("4444x3333").validateInto(result);
+        assertEquals(ValidationResult.CARD_NUMBER_BAD_CHARACTERS, result.getReasons());
+        newCard("44443333222211110000").validateInto(result);
+        assertEquals(ValidationResult.CARD_NUMBER_TOO_LONG, result.getReasons());
+    }
+
+    public void testReasonsOfOtherCardFields() {
+        ValidationResult result = new ValidationResult();
+        Card card = new Card(null, "13", "2099", "4444333322221111", "12a");
+
+        assertFalse(card.validateInto(result));
+
+        assertEquals(ValidationResult.HOLDER_NAME_MISSING | ValidationResult.EXPIRY_BAD_MONTH
+                | ValidationResult.CVC_BAD_CHARACTERS, result.getReasons());
+        assertFalse(result.hasError(ValidationResult.CARD_NUMBER));
+
+        card.setHolderName("John Doe").setCvc("123").setExpiryMonth("1x");
+        card.validateInto(result);
+        assertEquals(ValidationResult.EXPIRY_BAD_FORMAT, result.getReasons());
+
+        card.setExpiryMonth("12").setExpiryYear("2000");
+        card.validateInto(result);
+        assertEquals(ValidationResult.EXPIRY_EXPIRED, result.getReasons());
+    }
+
+    public void testValidateMatchesValidateInto() {
+        Card card = new Card(" ", "12", "2099", "4444333322221112", "123");
+
+        CardValidationError error = card.validate();
+
+        assertTrue(error.hasError(CardValidationError.ERROR_HOLDER_NAME));
+        assertTrue(error.hasError(CardValidationError.ERROR_CARD_NUMBER));
+        assertFalse(error.hasError(CardValidationError.ERROR_CVC));
+        assertFalse(error.hasError(CardValidationError.ERROR_CARD_EXPIRY));
+    }
+
+    public void testReasonsOfAlternativePaymentMethod() {
+        ValidationResult result = new ValidationResult();
+
+        assertTrue(AlternativePaymentMethod.newPayPalApm("John Doe", "GB").validateInto(result));
+
+        assertFalse(AlternativePaymentMethod.newPayPalApm(" ", "gb").validateInto(result));
+        assertEquals(ValidationResult.NAME_MISSING | ValidationResult.SHOPPER_COUNTRY_CODE_INVALID,
+                result.getReasons());
+
+        assertFalse(AlternativePaymentMethod.newPayPalApm("John Doe", null).validateInto(result));
+        assertEquals(ValidationResult.SHOPPER_COUNTRY_CODE_MISSING, result.getReasons());
+
+        AlternativePaymentMethodValidationError error = AlternativePaymentMethod.newPayPalApm(" ", "GB").validate();
+        assertTrue(error.getAllErrors().contains(AlternativePaymentMethodValidationError.ERROR_NAME));
+    }
+
+    public void testIteratesReasons() {
+        ValidationResult result = new ValidationResult();
+        result.add(ValidationResult.CARD_NUMBER_LUHN);
+        result.add(ValidationResult.EXPIRY_EXPIRED | ValidationResult.NAME_MISSING);
+
+        int count = 0;
+        for (long reasons = result.getReasons(); reasons != 0; reasons &= reasons - 1) {
+            assertFalse(ValidationResult.getName(Long.lowestOneBit(reasons)).startsWith("0x"));
+            count++;
+        }
+
+        assertEquals(3, count);
+        assertEquals("ValidationResult [CARD_NUMBER_LUHN, EXPIRY_EXPIRED, NAME_MISSING]", result.toString());
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.worldpay.test;
+
+import com.worldpay.BatchItemResult;
+import com.worldpay.BatchOptions;
+import com.worldpay.BatchSummary;
+import com.worldpay.Card;
+import com.worldpay.HttpServerResponse;
+import com.worldpay.TransportRequest;
+import com.worldpay.WorldPay;
+import com.worldpay.WorldPayBatch;
+import com.worldpay.WorldPayBatchListener;
+import com.worldpay.WorldPayConfig;
+import com.worldpay.WorldPayError;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.worldpay.test.TestSupport.CARD_NUMBER;
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+
+public class WorldPayBatchTest extends TestCase {
+
+    private WorldPayConfig previousConfig;
+    private BatchTransport transport;
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        transport = new BatchTransport();
+        transport.setDelay(20);
+        previousConfig = TestSupport.setUpWorldPay(transport);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        TestSupport.restoreWorldPay(previousConfig);
+        super.tearDown();
+    }
+
+    public void testRunsAtMostParallelismRequests() throws Exception {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            cards.add(newCard(i == 5 ? "4000000000000002" : CARD_NUMBER, "Holder " + i));
+        }
+        Listener listener = new Listener();
+
+        WorldPayBatch batch = WorldPay.getInstance().createTokens(cards, new BatchOptions()
+                .setParallelism(3).setExecutor(executor).setCallbackExecutor(DIRECT).setListener(listener));
+        List<BatchItemResult> results = batch.get(10, TimeUnit.SECONDS);
+
+        assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(3, transport.maxConcurrent.get());
+        assertEquals(12, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertSame(cards.get(i), results.get(i).getCard());
+        }
+        assertFalse(results.get(5).isSuccess());
+        assertEquals(WorldPayError.ERROR_RESPONSE_CONNECTION, results.get(5).getWorldPayError().getCode());
+        assertEquals("TEST_SU_1234", results.get(0).getResponseCard().getToken());
+        assertEquals(12, listener.progress.get());
+
+        BatchSummary summary = batch.getSummary();
+        assertSame(summary, listener.summary);
+        assertEquals(12, summary.getCount());
+        assertEquals(11, summary.getSuccessCount());
+        assertEquals(1, summary.getFailureCount());
+        assertTrue(summary.getLatencyPercentile(95) <= summary.getMaxLatencyMillis());
+    }
+
+    public void testRunsMoreRequestsThanPooledConnections() throws Exception {
+        // every request waits until all of them are in flight
+        transport.arrivals = new CountDownLatch(8);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            cards.add(newCard(CARD_NUMBER, "Holder " + i));
+        }
+
+        WorldPayBatch batch = WorldPay.getInstance().createTokens(cards, new BatchOptions()
+                .setParallelism(8).setExecutor(executor).setCallbackExecutor(DIRECT));
+
+        assertEquals(8, batch.get(10, TimeUnit.SECONDS).size());
+        assertEquals(8, batch.getSummary().getSuccessCount());
+        assertEquals(8, transport.maxConcurrent.get());
+    }
+
+    public void testEmptyBatchCompletes() throws Exception {
+        Listener listener = new Listener();
+
+        WorldPayBatch batch = WorldPay.getInstance().createTokens(Collections.<Card>emptyList(),
+                new BatchOptions().setExecutor(executor).setCallbackExecutor(DIRECT).setListener(listener));
+
+        assertTrue(batch.isDone());
+        assertTrue(batch.get().isEmpty());
+        assertEquals(0, listener.completed.getCount());
+    }
+
+    public void testRejectsInvalidParallelism() {
+        try {
+            new BatchOptions().setParallelism(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static class Listener implements WorldPayBatchListener {
+        final AtomicInteger progress = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile BatchSummary summary;
+
+        @Override
+        public void onProgress(BatchItemResult result, int completed, int total) {
+            progress.incrementAndGet();
+        }
+
+        @Override
+        public void onComplete(List<BatchItemResult> results, BatchSummary summary) {
+            this.summary = summary;
+            completed.countDown();
+        }
+    }
+
+    /**
+     * Fails the card number 4000000000000002. With {@code arrivals} set, each request also waits
+     * for all the others to be in flight.
+     */
+    private static class BatchTransport extends FakeTransport {
+        volatile CountDownLatch arrivals;
+
+        @Override
+        protected HttpServerResponse respond(TransportRequest request, int execution) throws IOException {
+            CountDownLatch arrivals = this.arrivals;
+            if (arrivals != null) {
+                arrivals.countDown();
+                try {
+                    if (!arrivals.await(5, TimeUnit.SECONDS)) {
+                        throw new IOException("Only " + maxConcurrent.get() + " requests in flight");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e.toString());
+                }
+            }
+            String body = new String(request.getBody(), 0, request.getBodyLength(), "UTF-8");
+            if (body.contains("4000000000000002")) {
+                throw new IOException("Connection reset");
+            }
+            return super.respond(request, execution);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.worldpay.test;
+
+import com.worldpay.ResponseCard;
+import com.worldpay.ResponseError;
+import com.worldpay.RetryPolicy;
+import com.worldpay.WorldPay;
+import com.worldpay.WorldPayCall;
+import com.worldpay.WorldPayClient;
+import com.worldpay.WorldPayConfig;
+import com.worldpay.WorldPayError;
+import com.worldpay.WorldPayException;
+import com.worldpay.WorldPayResponse;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+
+public class WorldPayClientTest extends TestCase {
+
+    private WorldPayConfig previousConfig;
+    private FakeTransport transport;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        transport = new FakeTransport();
+        previousConfig = TestSupport.setUpWorldPay(transport);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestSupport.restoreWorldPay(previousConfig);
+        super.tearDown();
+    }
+
+    public void testCreateTokenDeliversResponseCard() throws Exception {
+        transport.respond(200,
+                "{\"token\":\"TEST_SU_1234\",\"reusable\":false,\"paymentMethod\":{\"type\":\"ObfuscatedCard\"}}");
+        Callback callback = new Callback();
+
+        WorldPayCall<ResponseCard> call = new WorldPayClient(DIRECT, DIRECT).createToken(newCard(), callback);
+
+        assertEquals("TEST_SU_1234", call.get().getToken());
+        assertEquals("TEST_SU_1234", callback.responseCard.getToken());
+        assertNull(callback.responseError);
+        assertNull(callback.worldPayError);
+    }
+
+    public void testCreateTokenFailsWithResponseError() throws Exception {
+        transport.respond(400,
+                "{\"httpStatusCode\":400,\"customCode\":\"BAD_REQUEST\",\"message\":\"Invalid card\"}");
+        Callback callback = new Callback();
+
+        WorldPayCall<ResponseCard> call = new WorldPayClient(DIRECT, DIRECT).createToken(newCard(), callback);
+
+        try {
+            call.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            WorldPayException cause = (WorldPayException) e.getCause();
+            assertTrue(cause.isResponseError());
+            assertEquals(400, cause.getResponseError().getHttpStatusCode());
+        }
+        assertEquals("Invalid card", callback.responseError.getMessage());
+        assertNull(callback.responseCard);
+    }
+
+    public void testCancelAbortsRequest() throws Exception {
+        transport.holdUntilAborted();
+        Callback callback = new Callback();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            WorldPayCall<ResponseCard> call = new WorldPayClient(executor, DIRECT).createToken(newCard(), callback);
+            assertTrue(transport.started.await(5, TimeUnit.SECONDS));
+
+            assertTrue(call.cancel(false));
+
+            assertTrue(transport.lastRequest.isAborted());
+            assertTrue(transport.finished.await(5, TimeUnit.SECONDS));
+            assertTrue(call.isCancelled());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertNull(callback.responseCard);
+        assertNull(callback.worldPayError);
+    }
+
+    public void testCancelStopsRetryBackoff() throws Exception {
+        WorldPay.getInstance().setRetryPolicy(new RetryPolicy.Builder()
+                .setMaxAttempts(2).setBaseDelay(30 * 1000).setMaxDelay(30 * 1000).setJitter(0).build());
+        transport.respond(503, "{\"httpStatusCode\":503}");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            WorldPayCall<ResponseCard> call = new WorldPayClient(executor, DIRECT).createToken(newCard(), new Callback());
+            assertTrue(transport.finished.await(5, TimeUnit.SECONDS));
+
+            assertTrue(call.cancel(false));
+            long start = System.nanoTime();
+            executor.shutdown();
+
+            // the worker leaves the 30 s backoff at once instead of retrying
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+            assertEquals(1, transport.executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testCreateTokenBlockingReturnsResponseCard() throws Exception {
+        transport.respond(200, "{\"token\":\"TEST_SU_5678\"}");
+
+        ResponseCard responseCard = WorldPay.getInstance().createTokenBlocking(newCard(), 5000);
+
+        assertEquals("TEST_SU_5678", responseCard.getToken());
+    }
+
+    public void testCreateTokenBlockingThrowsResponseError() {
+        transport.respond(401,
+                "{\"httpStatusCode\":401,\"customCode\":\"UNAUTHORIZED\",\"message\":\"Bad key\"}");
+
+        try {
+            WorldPay.getInstance().createTokenBlocking(newCard());
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            assertTrue(e.isResponseError());
+            assertEquals("Bad key", e.getResponseError().getMessage());
+        }
+    }
+
+    public void testCreateTokenBlockingAbortsAtDeadline() throws Exception {
+        transport.holdUntilAborted();
+        long start = System.nanoTime();
+
+        try {
+            WorldPay.getInstance().createTokenBlocking(newCard(), 100);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            assertFalse(e.isResponseError());
+            assertEquals(WorldPayError.ERROR_DEADLINE_EXCEEDED, e.getWorldPayError().getCode());
+        }
+
+        assertTrue(transport.lastRequest.isAborted());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+    }
+
+    private static class Callback implements WorldPayResponse {
+        ResponseCard responseCard;
+        ResponseError responseError;
+        WorldPayError worldPayError;
+
+        @Override
+        public void onSuccess(ResponseCard responseCard) {
+            this.responseCard = responseCard;
+        }
+
+        @Override
+        public void onResponseError(ResponseError responseError) {
+            this.responseError = responseError;
+        }
+
+        @Override
+        public void onError(WorldPayError worldPayError) {
+            this.worldPayError = worldPayError;
+        }
+    }
+
+}
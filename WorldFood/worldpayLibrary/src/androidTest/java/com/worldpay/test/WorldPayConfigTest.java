@@ -0,0 +1,195 @@
+package com.worldpay.test;
+
+import com.worldpay.HttpClientTransport;
+import com.worldpay.HttpClientUtility;
+import com.worldpay.HttpServerResponse;
+import com.worldpay.RetryPolicy;
+import com.worldpay.Transport;
+import com.worldpay.TransportRequest;
+import com.worldpay.WorldPay;
+import com.worldpay.WorldPayClient;
+import com.worldpay.WorldPayConfig;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newCard;
+
+public class WorldPayConfigTest extends TestCase {
+
+    public void testClientsUseTheirOwnKeyTransportAndMetrics() throws Exception {
+        FakeTransport firstTransport = new FakeTransport();
+        FakeTransport secondTransport = new FakeTransport();
+        WorldPayClient first = new WorldPayClient(new WorldPayConfig.Builder()
+                .setClientKey("T_C_first").setTransport(firstTransport).build(), DIRECT, DIRECT);
+        WorldPayClient second = new WorldPayClient(new WorldPayConfig.Builder()
+                .setClientKey("T_C_second").setTransport(secondTransport).setReusable(true).build(), DIRECT, DIRECT);
+
+        first.createTokenBlocking(newCard(), 0);
+        first.createTokenBlocking(newCard(), 0);
+        second.createTokenBlocking(newCard(), 0);
+
+        assertTrue(firstTransport.getLastBodyText().contains("\"clientKey\":\"T_C_first\""));
+        assertTrue(firstTransport.getLastBodyText().contains("\"reusable\":false"));
+        assertTrue(secondTransport.getLastBodyText().contains("\"clientKey\":\"T_C_second\""));
+        assertTrue(secondTransport.getLastBodyText().contains("\"reusable\":true"));
+        assertEquals(2, first.getConfig().getMetrics().getRequestCount());
+        assertEquals(1, second.getConfig().getMetrics().getRequestCount());
+    }
+
+    public void testSettingsChangesKeepMetricsAndDoNotAffectSnapshots() {
+        WorldPay worldPay = WorldPay.getInstance();
+        WorldPayConfig previous = worldPay.getConfig();
+        try {
+            worldPay.setClientKey("T_C_before");
+            WorldPayConfig snapshot = worldPay.getConfig();
+
+            worldPay.setClientKey("T_C_after");
+            worldPay.setRetryPolicy(RetryPolicy.NONE);
+
+            assertEquals("T_C_before", snapshot.getClientKey());
+            assertEquals(RetryPolicy.DEFAULT, snapshot.getRetryPolicy());
+            assertEquals("T_C_after", worldPay.getClientKey());
+            assertSame(snapshot.getMetrics(), worldPay.getMetrics());
+        } finally {
+            worldPay.setConfig(previous);
+        }
+    }
+
+    public void testBuilderCopiesSettings() {
+        Transport transport = new FakeTransport();
+        WorldPayConfig config = new WorldPayConfig.Builder()
+                .setClientKey("T_C_key")
+                .setReusable(true)
+                .setTransport(transport)
+                .setCoalesceRequests(false)
+                .build();
+
+        WorldPayConfig copy = config.newBuilder().setReusable(false).build();
+
+        assertEquals("T_C_key", copy.getClientKey());
+        assertFalse(copy.isReusable());
+        assertSame(transport, copy.getTransport());
+        assertFalse(copy.isCoalesceRequests());
+        assertSame(config.getMetrics(), copy.getMetrics());
+        assertTrue(config.isReusable());
+    }
+
+    public void testHttpClientTransportsDoNotShareConnections() throws Exception {
+        LocalServer server = new LocalServer();
+        HttpClientTransport firstTransport = new HttpClientTransport();
+        HttpClientTransport secondTransport = new HttpClientTransport();
+        WorldPayConfig first = new WorldPayConfig.Builder()
+                .setClientKey("T_C_first").setTransport(firstTransport).build();
+        WorldPayConfig second = new WorldPayConfig.Builder()
+                .setClientKey("T_C_second").setTransport(secondTransport).build();
+        try {
+            post(first, server);
+            post(first, server);
+            // the second request of a transport reuses its pooled connection
+            assertEquals(1, server.connections.get());
+
+            post(second, server);
+            assertEquals(2, server.connections.get());
+
+            // closing one pool leaves the other one alone
+            firstTransport.shutdown();
+            post(second, server);
+            assertEquals(2, server.connections.get());
+            post(first, server);
+            assertEquals(3, server.connections.get());
+        } finally {
+            firstTransport.shutdown();
+            secondTransport.shutdown();
+            server.close();
+        }
+    }
+
+    private static void post(WorldPayConfig config, LocalServer server) throws IOException {
+        HttpServerResponse response = config.getTransport().execute(
+                new TransportRequest(HttpClientUtility.HTTP_METHOD.POST, server.getUrl()).setBody("{}"));
+        assertEquals(200, response.getStatusCode());
+    }
+
+    /**
+     * Answers every request with a token on keep-alive connections, counting the connections.
+     */
+    private static class LocalServer implements Runnable {
+        final AtomicInteger connections = new AtomicInteger();
+        private final ServerSocket serverSocket;
+
+        LocalServer() throws IOException {
+            serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+            Thread thread = new Thread(this, "LocalServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String getUrl() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/tokens";
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        private static void serve(Socket socket) {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                OutputStream out = socket.getOutputStream();
+                byte[] body = "{\"token\":\"TEST_SU_1234\"}".getBytes("UTF-8");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int contentLength = 0;
+                    for (; line != null && !line.isEmpty(); line = in.readLine()) {
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring(15).trim());
+                        }
+                    }
+                    // the bodies of these requests are ASCII
+                    for (int i = 0; i < contentLength; i++) {
+                        in.read();
+                    }
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+                            + body.length + "\r\n\r\n").getBytes("UTF-8"));
+                    out.write(body);
+                    out.flush();
+                }
+                socket.close();
+            } catch (IOException e) {
+                // the client closed the connection
+            }
+        }
+    }
+
+}
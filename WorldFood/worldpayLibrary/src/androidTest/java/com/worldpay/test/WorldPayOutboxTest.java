@@ -0,0 +1,150 @@
+package com.worldpay.test;
+
+import com.worldpay.AlternativePaymentMethod;
+import com.worldpay.AlternativePaymentMethodToken;
+import com.worldpay.RetryPolicy;
+import com.worldpay.ReusableToken;
+import com.worldpay.Transport;
+import com.worldpay.WorldPayConfig;
+import com.worldpay.WorldPayException;
+import com.worldpay.WorldPayOutbox;
+import com.worldpay.WorldPayOutboxListener;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.worldpay.test.TestSupport.DIRECT;
+import static com.worldpay.test.TestSupport.newConfig;
+
+public class WorldPayOutboxTest extends TestCase {
+
+    private static final RetryPolicy FAST_BACKOFF = new RetryPolicy.Builder()
+            .setBaseDelay(10).setMaxDelay(10).setJitter(0).build();
+
+    private static final String APM_TOKEN = "{\"token\":\"TEST_APM_1\",\"paymentMethod\":"
+            + "{\"name\":\"John Doe\",\"apmName\":\"paypal\",\"shopperCountryCode\":\"GB\"}}";
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(System.getProperty("java.io.tmpdir"), "worldpay-outbox-" + System.nanoTime());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testReplaysInOrderUntilDelivered() throws Exception {
+        FakeTransport transport = newOfflineTransport(2).respond(200, "{}");
+        Listener listener = new Listener(2);
+        WorldPayOutbox outbox = newOutbox(transport, listener).setBackoff(FAST_BACKOFF);
+
+        long first = outbox.enqueue(new ReusableToken("T_C_key", "TOKEN_1", "123"));
+        long second = outbox.enqueue(new ReusableToken("T_C_key", "TOKEN_2", "456"));
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(first + ":TOKEN_1", listener.delivered.get(0));
+        assertEquals(second + ":TOKEN_2", listener.delivered.get(1));
+        assertEquals(0, outbox.getPendingCount());
+        assertEquals(0, directory.list().length);
+        outbox.close();
+    }
+
+    public void testPendingRequestsSurviveRestartWithSameIdempotencyKey() throws Exception {
+        FakeTransport offline = newOfflineTransport(Integer.MAX_VALUE);
+        WorldPayOutbox outbox = newOutbox(offline, new Listener(1)).setBackoff(new RetryPolicy.Builder()
+                .setBaseDelay(60 * 1000).setMaxDelay(60 * 1000).build());
+        long id = outbox.enqueue(AlternativePaymentMethod.newPayPalApm("John Doe", "GB"));
+        assertTrue(offline.started.await(5, TimeUnit.SECONDS));
+        outbox.close();
+        assertEquals(1, directory.list().length);
+
+        FakeTransport online = new FakeTransport().respond(200, APM_TOKEN);
+        Listener listener = new Listener(1);
+        WorldPayOutbox restarted = newOutbox(online, listener);
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(id + ":TEST_APM_1", listener.delivered.get(0));
+        String idempotencyKey = online.lastRequest.getHeaders().get("Idempotency-Key");
+        assertEquals(offline.lastRequest.getHeaders().get("Idempotency-Key"), idempotencyKey);
+        assertNotNull(idempotencyKey);
+        assertEquals(0, restarted.getPendingCount());
+        restarted.close();
+    }
+
+    public void testRejectedRequestIsRemoved() throws Exception {
+        Listener listener = new Listener(1);
+        WorldPayOutbox outbox = newOutbox(new FakeTransport().respond(400,
+                "{\"httpStatusCode\":400,\"customCode\":\"BAD_REQUEST\",\"message\":\"Bad CVC\"}"), listener);
+
+        long id = outbox.enqueue(new ReusableToken("T_C_key", "TOKEN_1", "1"));
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(id + ":failed", listener.delivered.get(0));
+        assertEquals(0, outbox.getPendingCount());
+        outbox.close();
+    }
+
+    private WorldPayOutbox newOutbox(Transport transport, WorldPayOutboxListener listener) throws IOException {
+        WorldPayConfig config = newConfig(transport)
+                .setClientKey("T_C_key")
+                .setCoalesceRequests(false)
+                .build();
+        return new WorldPayOutbox(directory, config, DIRECT, listener);
+    }
+
+    /**
+     * @return A transport failing the first {@code failures} requests as a device without network
+     * would.
+     */
+    private static FakeTransport newOfflineTransport(int failures) {
+        return new FakeTransport().failNext(failures, new SocketException("Network is unreachable"));
+    }
+
+    private static class Listener implements WorldPayOutboxListener {
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done;
+
+        Listener(int count) {
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onReuseToken(long id, String token) {
+            delivered.add(id + ":" + token);
+            done.countDown();
+        }
+
+        @Override
+        public void onAlternativePaymentMethodToken(long id, AlternativePaymentMethodToken token) {
+            delivered.add(id + ":" + token.getToken());
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(long id, WorldPayException e) {
+            delivered.add(id + ":failed");
+            done.countDown();
+        }
+    }
+
+}
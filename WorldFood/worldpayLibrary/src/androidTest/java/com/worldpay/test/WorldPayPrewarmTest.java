@@ -0,0 +1,73 @@
+package com.worldpay.test;
+
+import com.worldpay.WorldPay;
+import com.worldpay.WorldPayConfig;
+import com.worldpay.WorldPayError;
+import com.worldpay.WorldPayException;
+import com.worldpay.test.TestSupport.FakeTransport;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+public class WorldPayPrewarmTest extends TestCase {
+
+    private WorldPayConfig previousConfig;
+    private FakeTransport transport;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        transport = new FakeTransport();
+        previousConfig = TestSupport.setUpWorldPay(transport);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestSupport.restoreWorldPay(previousConfig);
+        super.tearDown();
+    }
+
+    public void testSkipsWarmConnection() throws Exception {
+        WorldPay worldPay = WorldPay.getInstance();
+
+        worldPay.prewarmBlocking(WorldPay.DEFAULT_PREWARM_TTL);
+        assertEquals(0, worldPay.prewarmBlocking(WorldPay.DEFAULT_PREWARM_TTL));
+
+        assertEquals(1, transport.prewarms.get());
+        assertEquals(WorldPay.DEFAULT_PREWARM_TTL, transport.lastTtlMillis);
+
+        // the connections of the previous transport are not used any more
+        FakeTransport other = new FakeTransport();
+        worldPay.setTransport(other);
+        worldPay.prewarmBlocking(WorldPay.DEFAULT_PREWARM_TTL);
+        assertEquals(1, other.prewarms.get());
+    }
+
+    public void testExpiredTtlConnectsAgain() throws Exception {
+        WorldPay.getInstance().prewarmBlocking(0);
+        WorldPay.getInstance().prewarmBlocking(0);
+
+        assertEquals(2, transport.prewarms.get());
+    }
+
+    public void testReportsConnectionErrors() throws Exception {
+        IOException failure = new IOException("Connection refused");
+        transport.failPrewarm(failure);
+
+        try {
+            WorldPay.getInstance().prewarmBlocking(WorldPay.DEFAULT_PREWARM_TTL);
+            fail("Expected a WorldPayException");
+        } catch (WorldPayException e) {
+            assertFalse(e.isResponseError());
+            assertEquals(WorldPayError.ERROR_RESPONSE_CONNECTION, e.getWorldPayError().getCode());
+            assertSame(failure, e.getCause());
+        }
+
+        // a failed prewarm does not count as warm
+        transport.failPrewarm(null);
+        WorldPay.getInstance().prewarmBlocking(WorldPay.DEFAULT_PREWARM_TTL);
+        assertEquals(2, transport.prewarms.get());
+    }
+
+}
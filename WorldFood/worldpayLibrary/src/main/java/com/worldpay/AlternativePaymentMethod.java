@@ -14,8 +14,6 @@ import static com.worldpay.AlternativePaymentMethodValidationError.ERROR_SHOPPER
  */
 public class AlternativePaymentMethod implements Serializable {
 
-    private static final String COUNTRY_CODE_PATTERN = "^[A-Z]{2}$";
-
     private static final String PAYPAL_APM_NAME = "paypal";
 
     private final String name;
@@ -82,6 +80,20 @@ public class AlternativePaymentMethod implements Serializable {
         return jsonObject;
     }
 
+    /**
+     * Writes the same fields as {@link #getAsJSONObject()} to {@code writer}.
+     *
+     * @param writer The {@link JsonRequestWriter} of the request.
+     */
+    void writeJson(JsonRequestWriter writer) {
+        writer.beginObject()
+                .field("type", "APM")
+                .field("name", name)
+                .field("apmName", apmName)
+                .field("shopperCountryCode", shopperCountryCode)
+                .endObject();
+    }
+
     /**
      * Validate the APM details.<br>
      *
@@ -110,6 +122,30 @@ public class AlternativePaymentMethod implements Serializable {
         return validationError;
     }
 
+    /**
+     * Validate the APM details without allocating, reusing {@code result}.
+     *
+     * @param result Cleared, then receives the reasons of the {@link ValidationResult#NAME},
+     *               {@link ValidationResult#APM_NAME} and {@link ValidationResult#SHOPPER_COUNTRY_CODE}
+     *               fields.
+     * @return true if the APM is valid.
+     */
+    public boolean validateInto(final ValidationResult result) {
+        result.clear();
+        if (isInvalidName()) {
+            result.add(ValidationResult.NAME_MISSING);
+        }
+        if (isInvalidApmName()) {
+            result.add(ValidationResult.APM_NAME_MISSING);
+        }
+        if (shopperCountryCode == null || shopperCountryCode.isEmpty()) {
+            result.add(ValidationResult.SHOPPER_COUNTRY_CODE_MISSING);
+        } else if (isInvalidShopperCountryCode()) {
+            result.add(ValidationResult.SHOPPER_COUNTRY_CODE_INVALID);
+        }
+        return result.isValid();
+    }
+
     private boolean isInvalidName() {
         return name == null || name.trim().isEmpty();
     }
@@ -119,7 +155,7 @@ public class AlternativePaymentMethod implements Serializable {
     }
 
     private boolean isInvalidShopperCountryCode() {
-        return !shopperCountryCode.matches(COUNTRY_CODE_PATTERN);
+        return !CountryCodes.isValidAlpha2(shopperCountryCode);
     }
 
     public String getName() {
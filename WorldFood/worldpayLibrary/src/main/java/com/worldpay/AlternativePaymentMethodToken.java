@@ -1,7 +1,6 @@
 package com.worldpay;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.Serializable;
 
@@ -10,6 +9,11 @@ import java.io.Serializable;
  */
 public class AlternativePaymentMethodToken implements Serializable {
 
+    private static final ByteJsonReader.Names NAMES = ByteJsonReader.Names.of(
+            "token", "reusable", "paymentMethod");
+    private static final ByteJsonReader.Names PAYMENT_METHOD_NAMES = ByteJsonReader.Names.of(
+            "name", "apmName", "shopperCountryCode");
+
     private final String token;
     private final boolean reusable;
     private final AlternativePaymentMethod alternativePaymentMethod;
@@ -43,16 +47,73 @@ public class AlternativePaymentMethodToken implements Serializable {
      * @throws JSONException
      */
     static AlternativePaymentMethodToken valueOf(final String json) throws JSONException {
-        final JSONObject apmTokenJson = new JSONObject(json);
-        final String token = apmTokenJson.getString("token");
-        final boolean reusable = apmTokenJson.optBoolean("reusable", false);
+        return valueOf(new ByteJsonReader(json.getBytes(TransportRequest.UTF_8)));
+    }
+
+    /**
+     * Creates an {@link AlternativePaymentMethodToken} in one pass over an APM token JSON, see
+     * {@link #valueOf(String)}.
+     *
+     * @param reader A {@link ByteJsonReader} positioned at the start of the token.
+     * @return New {@link AlternativePaymentMethodToken}.
+     * @throws JSONException If the JSON is malformed or the token or payment method is missing.
+     */
+    static AlternativePaymentMethodToken valueOf(final ByteJsonReader reader) throws JSONException {
+        String token = null;
+        boolean reusable = false;
+        AlternativePaymentMethod alternativePaymentMethod = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(NAMES)) {
+                case 0:
+                    token = reader.nextString();
+                    break;
+                case 1:
+                    reusable = reader.peek() != ByteJsonReader.Token.NULL && reader.nextBoolean();
+                    break;
+                case 2:
+                    alternativePaymentMethod = readPaymentMethod(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (token == null) {
+            throw new JSONException("No value for token");
+        }
+        if (alternativePaymentMethod == null) {
+            throw new JSONException("No value for paymentMethod");
+        }
+        return new AlternativePaymentMethodToken(token, reusable, alternativePaymentMethod);
+    }
+
+    private static AlternativePaymentMethod readPaymentMethod(final ByteJsonReader reader) throws JSONException {
+        String name = null;
+        String apmName = null;
+        String shopperCountryCode = null;
 
-        final JSONObject paymentMethodJSONObject = apmTokenJson.getJSONObject("paymentMethod");
-        final String name = paymentMethodJSONObject.optString("name", null);
-        final String apmName = paymentMethodJSONObject.optString("apmName", null);
-        final String shopperCountryCode = paymentMethodJSONObject.optString("shopperCountryCode", null);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(PAYMENT_METHOD_NAMES)) {
+                case 0:
+                    name = reader.nextString();
+                    break;
+                case 1:
+                    apmName = reader.nextString();
+                    break;
+                case 2:
+                    shopperCountryCode = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        return new AlternativePaymentMethodToken(token, reusable, AlternativePaymentMethod.newApm(name, apmName, shopperCountryCode));
+        return AlternativePaymentMethod.newApm(name, apmName, shopperCountryCode);
     }
 
     public String getToken() {
@@ -97,6 +97,9 @@ public class AlternativePaymentMethodValidationError {
     public ArrayList<Integer> getAllErrors() {
         ArrayList<Integer> errors = new ArrayList<>();
         if (error != 0) {
+            if (hasError(ERROR_NAME)) {
+                errors.add(ERROR_NAME);
+            }
             if (hasError(ERROR_APM_NAME)) {
                 errors.add(ERROR_APM_NAME);
             }
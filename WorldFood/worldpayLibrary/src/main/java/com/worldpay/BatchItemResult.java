@@ -0,0 +1,79 @@
+package com.worldpay;
+
+/**
+ * Result of one card of {@link WorldPay#createTokens(java.util.List, BatchOptions)}.
+ * <p/>
+ * Exactly one of {@link #getResponseCard()}, {@link #getResponseError()} and
+ * {@link #getWorldPayError()} is set.
+ */
+public final class BatchItemResult {
+
+    private final int index;
+    private final Card card;
+    private final ResponseCard responseCard;
+    private final ResponseError responseError;
+    private final WorldPayError worldPayError;
+    private final long latencyMillis;
+
+    BatchItemResult(int index, Card card, ResponseCard responseCard, WorldPayException failure, long latencyMillis) {
+        this.index = index;
+        this.card = card;
+        this.responseCard = responseCard;
+        this.responseError = failure != null ? failure.getResponseError() : null;
+        this.worldPayError = failure != null ? failure.getWorldPayError() : null;
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return The position of the card in the batch.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Card getCard() {
+        return card;
+    }
+
+    /**
+     * @return true if the card was tokenized.
+     */
+    public boolean isSuccess() {
+        return responseCard != null;
+    }
+
+    /**
+     * @return The token, or null if the card failed.
+     */
+    public ResponseCard getResponseCard() {
+        return responseCard;
+    }
+
+    /**
+     * @return The error sent by WorldPay, or null.
+     */
+    public ResponseError getResponseError() {
+        return responseError;
+    }
+
+    /**
+     * @return The library or network error, or null.
+     */
+    public WorldPayError getWorldPayError() {
+        return worldPayError;
+    }
+
+    /**
+     * @return The time the request took, retries included.
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItemResult [index=" + index + ", success=" + isSuccess() + ", latencyMillis="
+                + latencyMillis + "]";
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.worldpay;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Settings of {@link WorldPay#createTokens(java.util.List, BatchOptions)}.
+ * <p/>
+ * By default at most {@link #DEFAULT_PARALLELISM} cards are tokenized at the same time, on the
+ * shared pool of {@link WorldPayClient}, and the listener is called on the main thread.
+ */
+public class BatchOptions {
+
+    /**
+     * Default number of concurrent requests, one per pooled keep-alive connection.
+     */
+    public static final int DEFAULT_PARALLELISM = HttpClientUtility.MAX_CONNECTIONS_PER_ROUTE;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+    private Executor executor;
+    private Executor callbackExecutor;
+    private WorldPayBatchListener listener;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set how many cards are tokenized at the same time. The {@link Executor} needs as many
+     * threads, the shared pool of {@link WorldPayClient} has
+     * {@link HttpClientUtility#MAX_CONNECTIONS_PER_ROUTE}. A {@link RateLimiter} set on the
+     * configuration also holds requests above its {@link RateLimiter#getMaxConcurrentCalls()}.
+     *
+     * @param parallelism The number of concurrent requests.
+     * @throws IllegalArgumentException If parallelism is lower than 1.
+     */
+    public BatchOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the {@link Executor} running the requests, it needs at least {@link #getParallelism()}
+     * threads for the requests to run concurrently.
+     *
+     * @param executor The {@link Executor}, or null for the shared pool of {@link WorldPayClient}.
+     */
+    public BatchOptions setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * @param callbackExecutor The {@link Executor} the listener is called on, or null for the main
+     *                         thread.
+     */
+    public BatchOptions setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    public WorldPayBatchListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener The {@link WorldPayBatchListener} notified of progress, or null.
+     */
+    public BatchOptions setListener(WorldPayBatchListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    WorldPayClient newClient() {
+        return new WorldPayClient(executor != null ? executor : WorldPayClient.getDefaultExecutor(),
+                callbackExecutor != null ? callbackExecutor : new WorldPayClient.MainThreadExecutor());
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.worldpay;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Throughput and latency of {@link WorldPay#createTokens(List, BatchOptions)}.
+ */
+public final class BatchSummary {
+
+    private final int count;
+    private final int successCount;
+    private final long elapsedMillis;
+    private final long[] latencies;
+
+    BatchSummary(List<BatchItemResult> results, long elapsedMillis) {
+        this.count = results.size();
+        this.elapsedMillis = elapsedMillis;
+        this.latencies = new long[count];
+        int successes = 0;
+        for (int i = 0; i < count; i++) {
+            BatchItemResult result = results.get(i);
+            latencies[i] = result.getLatencyMillis();
+            if (result.isSuccess()) {
+                successes++;
+            }
+        }
+        this.successCount = successes;
+        Arrays.sort(latencies);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailureCount() {
+        return count - successCount;
+    }
+
+    /**
+     * @return The time from the start of the batch to its last result.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return Cards done per second.
+     */
+    public double getThroughput() {
+        return elapsedMillis > 0 ? count * 1000d / elapsedMillis : 0;
+    }
+
+    public long getAverageLatencyMillis() {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        return total / count;
+    }
+
+    public long getMaxLatencyMillis() {
+        return count > 0 ? latencies[count - 1] : 0;
+    }
+
+    /**
+     * @param percentile Between 0 and 100, e.g. 95.
+     * @return The latency under which {@code percentile} percent of the requests completed.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return latencies[Math.max(rank, 1) - 1];
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSummary [count=" + count + ", successCount=" + successCount + ", elapsedMillis="
+                + elapsedMillis + ", throughput=" + getThroughput() + ", averageLatencyMillis="
+                + getAverageLatencyMillis() + ", p95LatencyMillis=" + getLatencyPercentile(95) + "]";
+    }
+
+}
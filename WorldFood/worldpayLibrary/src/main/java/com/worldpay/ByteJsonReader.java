@@ -0,0 +1,670 @@
+package com.worldpay;
+
+import org.json.JSONException;
+
+import java.nio.charset.Charset;
+
+/**
+ * A streaming pull parser that reads JSON straight from a UTF-8 byte buffer.
+ * <p>
+ * Unlike {@link org.json.JSONObject} it does not build a tree: values are read in one forward pass
+ * and values of unknown fields are skipped without being materialised. Field names can be matched
+ * against a precomputed {@link Names} table, which compares raw bytes and does not allocate.
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ * private static final ByteJsonReader.Names NAMES = ByteJsonReader.Names.of("token", "reusable");
+ *
+ * ByteJsonReader reader = ByteJsonReader.forResponse(serverResponse);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     switch (reader.selectName(NAMES)) {
+ *         case 0:
+ *             token = reader.nextString();
+ *             break;
+ *         case 1:
+ *             reusable = reader.nextBoolean();
+ *             break;
+ *         default:
+ *             reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ * </p>
+ * <p>
+ * Like {@link org.json.JSONObject#optString(String)}, {@link #nextString()} returns numbers and
+ * booleans as their literal text and nested objects or arrays as their JSON text. Malformed input
+ * results in a {@link JSONException}. Instances are not thread safe.
+ * </p>
+ */
+public final class ByteJsonReader {
+
+    private static final Charset UTF_8 = TransportRequest.UTF_8;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final byte[] buffer;
+    private final int limit;
+    private int pos;
+
+    private int[] stack = new int[16];
+    private int stackSize = 1;
+
+    private Token peeked;
+
+    /**
+     * Creates a reader for the whole buffer.
+     *
+     * @param buffer UTF-8 encoded JSON.
+     */
+    public ByteJsonReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Creates a reader for a region of the buffer.
+     *
+     * @param buffer UTF-8 encoded JSON.
+     * @param offset Start of the JSON in the buffer.
+     * @param length Length of the JSON in bytes.
+     */
+    public ByteJsonReader(byte[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length);
+        }
+        this.buffer = buffer;
+        this.pos = offset;
+        this.limit = offset + length;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Creates a reader for the body of a response, without copying it when it is UTF-8 encoded.
+     *
+     * @param response The {@link HttpServerResponse}.
+     * @return A new {@link ByteJsonReader}.
+     * @throws JSONException If the response has no body.
+     */
+    public static ByteJsonReader forResponse(HttpServerResponse response) throws JSONException {
+        byte[] body = response.getResponseBytes();
+        if (body == null) {
+            throw new JSONException("Response has no body");
+        }
+        Charset charset = response.getCharset();
+        if (!UTF_8.equals(charset) && !"US-ASCII".equals(charset.name())) {
+            body = response.getResponse().getBytes(UTF_8);
+        }
+        return new ByteJsonReader(body);
+    }
+
+    /**
+     * Returns the type of the next token without consuming it.
+     *
+     * @return The next {@link Token}.
+     * @throws JSONException If the JSON is malformed.
+     */
+    public Token peek() throws JSONException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int top = stackSize - 1;
+        int scope = stack[top];
+        int c;
+
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[top] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                stack[top] = DANGLING_NAME;
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                stack[top] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+            case EMPTY_DOCUMENT:
+                stack[top] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                while (pos < limit && isWhitespace(buffer[pos])) {
+                    pos++;
+                }
+                if (pos == limit) {
+                    return peeked = Token.END_DOCUMENT;
+                }
+                throw syntaxError("Unexpected data after the document");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case ']':
+                if (scope == EMPTY_ARRAY) {
+                    return peeked = Token.END_ARRAY;
+                }
+                throw syntaxError("Unexpected ']'");
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+            case 'f':
+                pos--;
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return peeked = Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return peeked = Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    public void beginObject() throws JSONException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+        peeked = null;
+    }
+
+    public void endObject() throws JSONException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+        peeked = null;
+    }
+
+    public void beginArray() throws JSONException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+        peeked = null;
+    }
+
+    public void endArray() throws JSONException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+        peeked = null;
+    }
+
+    /**
+     * @return true if the current object or array has more elements.
+     * @throws JSONException If the JSON is malformed.
+     */
+    public boolean hasNext() throws JSONException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the next field name.
+     *
+     * @return The field name.
+     * @throws JSONException If the next token is not a name.
+     */
+    public String nextName() throws JSONException {
+        expect(Token.NAME);
+        peeked = null;
+        return readString();
+    }
+
+    /**
+     * Consumes the next field name and looks it up in {@code names} without allocating.
+     *
+     * @param names The expected names.
+     * @return The index of the name in {@code names}, or -1 if it is not one of them.
+     * @throws JSONException If the next token is not a name.
+     */
+    public int selectName(Names names) throws JSONException {
+        expect(Token.NAME);
+        peeked = null;
+
+        int start = pos;
+        int end = start;
+        while (end < limit && buffer[end] != '"') {
+            if (buffer[end] == '\\') {
+                // escaped names are rare, compare them decoded
+                return indexOf(names.strings, readString());
+            }
+            end++;
+        }
+        if (end == limit) {
+            throw syntaxError("Unterminated string");
+        }
+        pos = end + 1;
+
+        int length = end - start;
+        byte[][] candidates = names.bytes;
+        for (int i = 0; i < candidates.length; i++) {
+            byte[] candidate = candidates[i];
+            if (candidate.length == length && regionMatches(candidate, start)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Consumes the next value as a string. Numbers and booleans are returned as their literal
+     * text, objects and arrays as their JSON text.
+     *
+     * @return The value, or null if the value is a JSON null.
+     * @throws JSONException If the JSON is malformed.
+     */
+    public String nextString() throws JSONException {
+        Token token = peek();
+        int start = pos;
+        switch (token) {
+            case STRING:
+                peeked = null;
+                return readString();
+            case NUMBER:
+            case BOOLEAN:
+                peeked = null;
+                skipLiteral();
+                return new String(buffer, start, pos - start, UTF_8);
+            case NULL:
+                nextNull();
+                return null;
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                skipValue();
+                return new String(buffer, start - 1, pos - start + 1, UTF_8);
+            default:
+                throw syntaxError("Expected a value but was " + token);
+        }
+    }
+
+    /**
+     * Consumes the next value as a boolean. The strings "true" and "false" are accepted too.
+     *
+     * @return The value.
+     * @throws JSONException If the value is not a boolean.
+     */
+    public boolean nextBoolean() throws JSONException {
+        Token token = peek();
+        if (token == Token.BOOLEAN) {
+            peeked = null;
+            if (matchLiteral("true")) {
+                return true;
+            }
+            if (matchLiteral("false")) {
+                return false;
+            }
+            throw syntaxError("Expected a boolean");
+        }
+        if (token == Token.STRING) {
+            String value = nextString();
+            if ("true".equalsIgnoreCase(value)) {
+                return true;
+            }
+            if ("false".equalsIgnoreCase(value)) {
+                return false;
+            }
+        }
+        throw syntaxError("Expected a boolean but was " + token);
+    }
+
+    /**
+     * Consumes the next value as an int. Numeric strings are accepted too and fractions are
+     * truncated.
+     *
+     * @return The value.
+     * @throws JSONException If the value is not a number.
+     */
+    public int nextInt() throws JSONException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            peeked = null;
+            int start = pos;
+            skipLiteral();
+            return parseInt(start, pos);
+        }
+        if (token == Token.STRING) {
+            String value = nextString();
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw syntaxError("Expected a number but was '" + value + "'");
+            }
+        }
+        throw syntaxError("Expected a number but was " + token);
+    }
+
+    public void nextNull() throws JSONException {
+        expect(Token.NULL);
+        peeked = null;
+        if (!matchLiteral("null")) {
+            throw syntaxError("Expected null");
+        }
+    }
+
+    /**
+     * Skips the next value, including nested objects and arrays, without decoding it.
+     *
+     * @throws JSONException If the JSON is malformed.
+     */
+    public void skipValue() throws JSONException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                case BOOLEAN:
+                case NULL:
+                    peeked = null;
+                    skipLiteral();
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (depth > 0);
+    }
+
+    private void expect(Token expected) throws JSONException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] larger = new int[stackSize * 2];
+            System.arraycopy(stack, 0, larger, 0, stackSize);
+            stack = larger;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private int nextNonWhitespace() throws JSONException {
+        while (pos < limit) {
+            byte c = buffer[pos++];
+            if (!isWhitespace(c)) {
+                return c;
+            }
+        }
+        throw syntaxError("Unexpected end of input");
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private void skipLiteral() {
+        while (pos < limit) {
+            byte c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || isWhitespace(c)) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean matchLiteral(String literal) {
+        int length = literal.length();
+        if (pos + length > limit) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        pos += length;
+        return true;
+    }
+
+    private boolean regionMatches(byte[] candidate, int start) {
+        for (int i = 0; i < candidate.length; i++) {
+            if (buffer[start + i] != candidate[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int parseInt(int start, int end) throws JSONException {
+        long value = 0;
+        boolean negative = buffer[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            throw syntaxError("Expected a number");
+        }
+        for (; i < end; i++) {
+            byte c = buffer[i];
+            if (c < '0' || c > '9') {
+                // fractions and exponents take the slow path
+                return parseIntSlow(start, end);
+            }
+            value = value * 10 + (c - '0');
+            if (value > -(long) Integer.MIN_VALUE) {
+                // checked after each digit, so the long can not overflow either
+                return parseIntSlow(start, end);
+            }
+        }
+        if (negative) {
+            return (int) -value;
+        }
+        return value > Integer.MAX_VALUE ? parseIntSlow(start, end) : (int) value;
+    }
+
+    /**
+     * Parses a number like {@link org.json.JSONObject#optInt(String)} does, through a double, so
+     * values beyond the range of int saturate.
+     */
+    private int parseIntSlow(int start, int end) throws JSONException {
+        try {
+            return (int) Double.parseDouble(new String(buffer, start, end - start, UTF_8));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number");
+        }
+    }
+
+    /**
+     * Reads a string whose opening quote has been consumed.
+     */
+    private String readString() throws JSONException {
+        int start = pos;
+        for (int p = start; p < limit; p++) {
+            byte c = buffer[p];
+            if (c == '"') {
+                pos = p + 1;
+                return new String(buffer, start, p - start, UTF_8);
+            }
+            if (c == '\\') {
+                return readEscapedString(start);
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private String readEscapedString(int start) throws JSONException {
+        StringBuilder builder = new StringBuilder();
+        int chunk = start;
+        int p = start;
+        while (p < limit) {
+            byte c = buffer[p];
+            if (c == '"') {
+                builder.append(new String(buffer, chunk, p - chunk, UTF_8));
+                pos = p + 1;
+                return builder.toString();
+            }
+            if (c != '\\') {
+                p++;
+                continue;
+            }
+            builder.append(new String(buffer, chunk, p - chunk, UTF_8));
+            if (p + 1 >= limit) {
+                break;
+            }
+            byte escaped = buffer[p + 1];
+            p += 2;
+            switch (escaped) {
+                case 'u':
+                    if (p + 4 > limit) {
+                        pos = p;
+                        throw syntaxError("Unterminated escape sequence");
+                    }
+                    builder.append((char) parseHex(p));
+                    p += 4;
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                default:
+                    // \" \\ \/ and lenient unknown escapes
+                    builder.append((char) escaped);
+            }
+            chunk = p;
+        }
+        pos = limit;
+        throw syntaxError("Unterminated string");
+    }
+
+    private int parseHex(int start) throws JSONException {
+        int value = 0;
+        for (int i = start; i < start + 4; i++) {
+            int c = buffer[i];
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                pos = i;
+                throw syntaxError("Malformed unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private void skipString() throws JSONException {
+        for (int p = pos; p < limit; p++) {
+            byte c = buffer[p];
+            if (c == '\\') {
+                p++;
+            } else if (c == '"') {
+                pos = p + 1;
+                return;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + pos);
+    }
+
+    /**
+     * The kinds of tokens returned by {@link #peek()}.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL,
+        END_DOCUMENT
+    }
+
+    /**
+     * A precomputed table of field names for {@link #selectName(Names)}. Create it once and keep
+     * it in a static field.
+     */
+    public static final class Names {
+
+        private final String[] strings;
+        private final byte[][] bytes;
+
+        private Names(String[] strings) {
+            this.strings = strings.clone();
+            this.bytes = new byte[strings.length][];
+            for (int i = 0; i < strings.length; i++) {
+                bytes[i] = strings[i].getBytes(UTF_8);
+            }
+        }
+
+        public static Names of(String... names) {
+            return new Names(names);
+        }
+
+    }
+
+}
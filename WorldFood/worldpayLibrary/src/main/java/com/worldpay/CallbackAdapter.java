@@ -0,0 +1,94 @@
+package com.worldpay;
+
+/**
+ * Common shape of {@link WorldPayResponse}, {@link WorldPayApmResponse} and
+ * {@link WorldPayResponseReusableToken}, so that results are delivered the same way to all of them.
+ *
+ * @param <T> The result type.
+ */
+abstract class CallbackAdapter<T> {
+
+    abstract void onSuccess(T result);
+
+    abstract void onResponseError(ResponseError responseError);
+
+    abstract void onError(WorldPayError worldPayError);
+
+    /**
+     * Calls {@link #onResponseError(ResponseError)} or {@link #onError(WorldPayError)}.
+     */
+    final void onFailure(WorldPayException e) {
+        if (e.isResponseError()) {
+            onResponseError(e.getResponseError());
+        } else {
+            onError(e.getWorldPayError());
+        }
+    }
+
+    static CallbackAdapter<ResponseCard> of(final WorldPayResponse callback) {
+        if (callback == null) {
+            return null;
+        }
+        return new CallbackAdapter<ResponseCard>() {
+            @Override
+            void onSuccess(ResponseCard result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            void onResponseError(ResponseError responseError) {
+                callback.onResponseError(responseError);
+            }
+
+            @Override
+            void onError(WorldPayError worldPayError) {
+                callback.onError(worldPayError);
+            }
+        };
+    }
+
+    static CallbackAdapter<AlternativePaymentMethodToken> of(final WorldPayApmResponse callback) {
+        if (callback == null) {
+            return null;
+        }
+        return new CallbackAdapter<AlternativePaymentMethodToken>() {
+            @Override
+            void onSuccess(AlternativePaymentMethodToken result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            void onResponseError(ResponseError responseError) {
+                callback.onResponseError(responseError);
+            }
+
+            @Override
+            void onError(WorldPayError worldPayError) {
+                callback.onError(worldPayError);
+            }
+        };
+    }
+
+    static CallbackAdapter<Void> of(final WorldPayResponseReusableToken callback) {
+        if (callback == null) {
+            return null;
+        }
+        return new CallbackAdapter<Void>() {
+            @Override
+            void onSuccess(Void result) {
+                callback.onSuccess();
+            }
+
+            @Override
+            void onResponseError(ResponseError responseError) {
+                callback.onResponseError(responseError);
+            }
+
+            @Override
+            void onError(WorldPayError worldPayError) {
+                callback.onError(worldPayError);
+            }
+        };
+    }
+
+}
@@ -4,9 +4,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.Serializable;
-import java.util.Calendar;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Represents details of a card. Developer has to create this object and pass it
@@ -32,10 +29,7 @@ public class Card implements Serializable {
      */
     public static final int VALIDATION_TYPE_ADVANCED = 200;
     private static final long serialVersionUID = 2614432468043116204L;
-    private static final String PATTERN_ADVANCED_CARD_NUMBER = "[^0-9-\\s]";
-    private static final String PATTERN_BASIC_CARD_NUMBER = "[^0-9]+";
-    private static final String PATTERN_CVC_NUMBER = "[^0-9]+";
-    private static int validationType = VALIDATION_TYPE_ADVANCED;
+    private static volatile int validationType = VALIDATION_TYPE_ADVANCED;
 
     private String holderName;
     private String expiryMonth;
@@ -85,18 +79,7 @@ public class Card implements Serializable {
      */
 
     public static boolean validateCVC(String cvc) {
-        if (cvc == null) {
-            return true;
-        }
-
-        // Create a Pattern object
-        Pattern r = Pattern.compile(PATTERN_CVC_NUMBER);
-
-        // Now create matcher object.
-        Matcher m = r.matcher(cvc);
-
-        return !m.find();
-
+        return CardValidator.isValidCvc(cvc);
     }
 
     public Card setHolderName(String holderName) {
@@ -162,6 +145,22 @@ public class Card implements Serializable {
         return jsonObject;
     }
 
+    /**
+     * Writes the same fields as {@link #getAsJSONObject()} to {@code writer}.
+     *
+     * @param writer The {@link JsonRequestWriter} of the request.
+     */
+    void writeJson(JsonRequestWriter writer) {
+        writer.beginObject()
+                .field("type", "Card")
+                .field("name", holderName)
+                .field("expiryMonth", expiryMonth)
+                .field("expiryYear", expiryYear)
+                .field("cardNumber", cardNumber)
+                .field("cvc", cvc)
+                .endObject();
+    }
+
     /**
      * Validate the card details.<br>
      *
@@ -176,175 +175,78 @@ public class Card implements Serializable {
      * <li>{@link CardValidationError#ERROR_CARD_NUMBER}</li>
      * </ul>
      * @see CardValidationError
+     * @see #validateInto(ValidationResult)
      */
     public CardValidationError validate() {
+        ValidationResult result = new ValidationResult();
+        if (validateInto(result)) {
+            return null;
+        }
         CardValidationError validationError = new CardValidationError();
-        // card holdername
-        if (!validateCardHolderName()) {
+        if (result.hasError(ValidationResult.HOLDER_NAME)) {
             validationError.addError(CardValidationError.ERROR_HOLDER_NAME);
         }
-        // cvc
-        if (!validateCVC(cvc)) {
+        if (result.hasError(ValidationResult.CVC)) {
             validationError.addError(CardValidationError.ERROR_CVC);
         }
-        // expiry
-        if (!validateExpiry()) {
+        if (result.hasError(ValidationResult.EXPIRY)) {
             validationError.addError(CardValidationError.ERROR_CARD_EXPIRY);
         }
-
-        // card number
-        if (!validateCardNumber()) {
+        if (result.hasError(ValidationResult.CARD_NUMBER)) {
             validationError.addError(CardValidationError.ERROR_CARD_NUMBER);
         }
-
-        return validationError.hasErrors() ? validationError : null;
+        return validationError;
     }
 
     /**
-     * Returns true if the validation of the card holder name of the card is
-     * correct
+     * Validate the card details without allocating, reusing {@code result}.
      *
-     * @return true if the the card holder name of the card is correct
+     * @param result Cleared, then receives the reasons of the {@link ValidationResult#HOLDER_NAME},
+     *               {@link ValidationResult#CVC}, {@link ValidationResult#EXPIRY} and
+     *               {@link ValidationResult#CARD_NUMBER} fields.
+     * @return true if the card is valid.
      */
-
-    private boolean validateCardHolderName() {
-        return !holderName.trim().isEmpty();
-    }
-
-    private boolean validateCardNumber() {
-        if (validationType == VALIDATION_TYPE_ADVANCED) {
-            return validateCardNumberAdvanced();
-        } else {
-            return validateCardNumberBasic();
-        }
+    public boolean validateInto(ValidationResult result) {
+        return validateInto(result, ExpiryValidator.DEFAULT);
     }
 
     /**
-     * Returns true if the validation of the number of the card is correct
-     * Advanced Validation
+     * Validate the card details like {@link #validateInto(ValidationResult)}, checking the expiry
+     * with {@code expiryValidator}, for instance one with its own {@link ExpiryValidator.Clock}.
      *
-     * @return true if the the number of the card is correct
+     * @param result          Cleared, then receives the reasons of the card.
+     * @param expiryValidator The {@link ExpiryValidator} of the expiry month and year.
+     * @return true if the card is valid.
      */
-
-    private boolean validateCardNumberAdvanced() {
-
-        if (cardNumber == null || cardNumber.equals("")) {
-            return false;
-        } else {
-            // Create a Pattern object
-            Pattern r = Pattern.compile(PATTERN_ADVANCED_CARD_NUMBER);
-
-            // Now create matcher object.
-            Matcher m = r.matcher(cardNumber);
-
-            boolean check = false;
-            int c = 0, d = 0;
-
-            String newCardNumber = cardNumber.replace(" ", "");
-            cardNumber = cardNumber.replace("/\\D/g", "");
-
-            if (m.find()) {
-                return false;
-            }
-            if (newCardNumber.length() < 12 || newCardNumber.length() > 19) {
-                return false;
-            }
-
-            for (int f = cardNumber.length() - 1; f >= 0; f--) {
-                char g = cardNumber.charAt(f);
-
-                int x;
-
-                if (Character.isDigit(g)) {
-                    x = Character.getNumericValue(g);
-                    d = x;
-
-                    if (check) {
-                        d = d * 2;
-                        if (d > 9) {
-                            d = d - 9;
-                            c = c + d;
-                        } else {
-                            c = c + d;
-                        }
-                    } else {
-                        c = c + d;
-                    }
-
-                    check = !check;
-                }
-            }
-
-            int sum = -1;
-
-            if (c > 0) {
-                sum = c % 10;
-            }
-
-            return sum == 0;
-
+    public boolean validateInto(ValidationResult result, ExpiryValidator expiryValidator) {
+        result.clear();
+        if (!validateCardHolderName()) {
+            result.add(ValidationResult.HOLDER_NAME_MISSING);
         }
-
+        if (!validateCVC(cvc)) {
+            result.add(ValidationResult.CVC_BAD_CHARACTERS);
+        }
+        result.add(expiryValidator.check(expiryMonth, expiryYear));
+        result.add(checkCardNumber());
+        return result.isValid();
     }
 
     /**
-     * Returns true if the validation of the number of the card is correct Basic
-     * Validation
+     * Returns true if the validation of the card holder name of the card is
+     * correct
      *
-     * @return true if the the number of the card is correct
+     * @return true if the the card holder name of the card is correct
      */
-    private boolean validateCardNumberBasic() {
-
-        if (cardNumber == null || cardNumber.length() == 0) {
-            return false;
-        } else {
-            // Create a Pattern object
-            Pattern r = Pattern.compile(PATTERN_BASIC_CARD_NUMBER);
-
-            // Now create matcher object.
-            Matcher m = r.matcher(cardNumber);
-
-            return !m.find();
-
-        }
 
+    private boolean validateCardHolderName() {
+        return holderName != null && !holderName.trim().isEmpty();
     }
 
-    /**
-     * Returns true if the validation of the month and year of the card is
-     * correct Expiry Validation
-     *
-     * @return true if the the month and year are correct
-     */
-    private boolean validateExpiry() {
-
-        if ((expiryMonth == null || expiryMonth.equals(""))
-                || (expiryYear == null || expiryYear.equals(""))) {
-            return false;
-        } else if (expiryMonth.length() > 2 || expiryYear.length() != 4) {
-            return false;
+    private long checkCardNumber() {
+        if (validationType == VALIDATION_TYPE_ADVANCED) {
+            return CardValidator.checkCardNumber(cardNumber);
         } else {
-            // TODO check if that is right - changes the original value
-            Calendar c = Calendar.getInstance();
-            int currentYr = c.get(Calendar.YEAR);
-            int currentMth = c.get(Calendar.MONTH);
-
-            int expYear = Integer.parseInt(expiryYear);
-            int expMonth = Integer.parseInt(expiryMonth);
-
-            if ((Double.isNaN(currentYr)) || (Double.isNaN(currentMth))) {
-
-                return false;
-
-            } else if (expMonth > 12 || 1 > expMonth) {
-
-                return false;
-            }
-
-            if (expYear > currentYr) {
-                return true;
-            } else return expYear == currentYr && expMonth >= currentMth;
-
+            return CardValidator.checkCardNumberBasic(cardNumber);
         }
     }
 
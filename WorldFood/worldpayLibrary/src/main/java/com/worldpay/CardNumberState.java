@@ -0,0 +1,173 @@
+package com.worldpay;
+
+/**
+ * Follows a card number as it is typed, keeping its digit count, Luhn checksum and
+ * {@link CardSchemeDetector.Scheme} up to date without scanning the whole text again.
+ * <p/>
+ * Feed it the changes of a {@link android.text.TextWatcher}:
+ * <pre>
+ * public void onTextChanged(CharSequence s, int start, int before, int count) {
+ *     state.onTextChanged(s, start, before, count);
+ *     saveButton.setEnabled(state.isValid());
+ * }
+ * </pre>
+ * The state keeps, for every prefix of the text, the digits so far, the two Luhn sums (one for
+ * numbers of even length, one for odd lengths) and the state of the scheme trie. A change only
+ * recomputes the prefixes after it, so typing or deleting at the end costs O(1) and an edit in
+ * the middle at most {@link #MAX_LENGTH} steps. Nothing is allocated.
+ * <p/>
+ * Longer texts than {@link #MAX_LENGTH} can not be valid card numbers, they are only flagged.
+ * Instances are not thread safe, use them from the thread of the text field.
+ */
+public final class CardNumberState {
+
+    /**
+     * Most characters followed, digits and separators: 19 digits and a separator between each.
+     */
+    public static final int MAX_LENGTH = 2 * CardValidator.MAX_CARD_NUMBER_LENGTH;
+
+    private final char[] chars = new char[MAX_LENGTH];
+
+    // values of the prefix of each length, index 0 is the empty text
+    private final int[] digitCounts = new int[MAX_LENGTH + 1];
+    private final int[] evenSums = new int[MAX_LENGTH + 1];
+    private final int[] oddSums = new int[MAX_LENGTH + 1];
+    private final int[] schemeStates = new int[MAX_LENGTH + 1];
+    private final int[] invalidCounts = new int[MAX_LENGTH + 1];
+
+    private int length;
+    private boolean tooLong;
+
+    public CardNumberState() {
+        schemeStates[0] = CardSchemeDetector.START_STATE;
+    }
+
+    /**
+     * Replaces the followed text with {@code text}.
+     *
+     * @param text The card number, may be null.
+     */
+    public void set(CharSequence text) {
+        length = 0;
+        tooLong = text != null && text.length() > MAX_LENGTH;
+        if (text == null || tooLong) {
+            return;
+        }
+        length = text.length();
+        for (int i = 0; i < length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        update(0);
+    }
+
+    /**
+     * Applies a change reported by {@link android.text.TextWatcher#onTextChanged(CharSequence, int, int, int)}:
+     * the {@code before} characters at {@code start} were replaced by the {@code count}
+     * characters of {@code text} at {@code start}.
+     *
+     * @param text The text after the change.
+     */
+    public void onTextChanged(CharSequence text, int start, int before, int count) {
+        int newLength = length - before + count;
+        if (tooLong || start + before > length || newLength != text.length() || newLength > MAX_LENGTH) {
+            // not following the same text, or too long to follow
+            set(text);
+            return;
+        }
+        System.arraycopy(chars, start + before, chars, start + count, length - start - before);
+        for (int i = start; i < start + count; i++) {
+            chars[i] = text.charAt(i);
+        }
+        length = newLength;
+        update(start);
+    }
+
+    /**
+     * Forgets the text.
+     */
+    public void clear() {
+        length = 0;
+        tooLong = false;
+    }
+
+    /**
+     * @return The number of digits.
+     */
+    public int getDigitCount() {
+        return digitCounts[length];
+    }
+
+    /**
+     * @return The {@link CardSchemeDetector.Scheme} of the digits.
+     */
+    public CardSchemeDetector.Scheme getScheme() {
+        return CardSchemeDetector.getScheme(schemeStates[length]);
+    }
+
+    /**
+     * @return true if the text has characters other than digits and separators, or is longer
+     * than {@link #MAX_LENGTH}.
+     */
+    public boolean hasInvalidCharacters() {
+        return tooLong || invalidCounts[length] > 0;
+    }
+
+    /**
+     * @return true if the digits pass the Luhn checksum.
+     */
+    public boolean isLuhnValid() {
+        int digits = digitCounts[length];
+        // the rightmost digit is never doubled, so the doubled ones depend on the parity of the count
+        int sum = (digits & 1) == 0 ? evenSums[length] : oddSums[length];
+        return sum > 0 && sum % 10 == 0;
+    }
+
+    /**
+     * @return true if the text is a valid card number for {@link CardValidator#isValidCardNumber(CharSequence)}.
+     */
+    public boolean isValid() {
+        int digits = digitCounts[length];
+        return !hasInvalidCharacters() && digits >= CardValidator.MIN_CARD_NUMBER_LENGTH
+                && digits <= CardValidator.MAX_CARD_NUMBER_LENGTH && isLuhnValid();
+    }
+
+    /**
+     * @return false if no more digits can make the text a valid card number of its scheme, for
+     * instance to show an error before the form is sent.
+     */
+    public boolean canBecomeValid() {
+        if (hasInvalidCharacters()) {
+            return false;
+        }
+        int digits = digitCounts[length];
+        int maxLength = getScheme().getMaxLength();
+        return digits < maxLength || (digits == maxLength && isLuhnValid());
+    }
+
+    /**
+     * Recomputes the prefixes after the first {@code from} characters.
+     */
+    private void update(int from) {
+        for (int i = from; i < length; i++) {
+            char c = chars[i];
+            int digitCount = digitCounts[i];
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                int doubled = digit < 5 ? digit * 2 : digit * 2 - 9;
+                boolean evenIndex = (digitCount & 1) == 0;
+                digitCounts[i + 1] = digitCount + 1;
+                evenSums[i + 1] = evenSums[i] + (evenIndex ? doubled : digit);
+                oddSums[i + 1] = oddSums[i] + (evenIndex ? digit : doubled);
+                schemeStates[i + 1] = CardSchemeDetector.nextState(schemeStates[i], c);
+                invalidCounts[i + 1] = invalidCounts[i];
+            } else {
+                digitCounts[i + 1] = digitCount;
+                evenSums[i + 1] = evenSums[i];
+                oddSums[i + 1] = oddSums[i];
+                schemeStates[i + 1] = schemeStates[i];
+                invalidCounts[i + 1] = invalidCounts[i] + (CardValidator.isSeparator(c) ? 0 : 1);
+            }
+        }
+    }
+
+}
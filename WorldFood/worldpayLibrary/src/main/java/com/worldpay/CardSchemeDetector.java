@@ -0,0 +1,238 @@
+package com.worldpay;
+
+import java.util.Arrays;
+
+/**
+ * Finds the scheme of a card from the first digits of its number, the BIN or IIN.
+ * <p/>
+ * The prefix ranges of all schemes are compiled once into a trie of digits, so a lookup walks
+ * one node per digit and allocates nothing. The most specific range wins: 622126 is
+ * {@link Scheme#DISCOVER} although 62 is {@link Scheme#UNIONPAY}.
+ * <p/>
+ * A whole number is looked up with {@link #detect(CharSequence)}. To follow a number as it is
+ * typed, keep the state of the digits so far and feed each new digit:
+ * <pre>
+ * int state = CardSchemeDetector.START_STATE;
+ * state = CardSchemeDetector.nextState(state, '4');
+ * CardSchemeDetector.getScheme(state); // VISA
+ * </pre>
+ */
+public final class CardSchemeDetector {
+
+    /**
+     * The card schemes, with the lengths of their numbers and CVCs.
+     */
+    public enum Scheme {
+        VISA(3, 13, 16, 19),
+        MASTERCARD(3, 16),
+        AMEX(4, 15),
+        MAESTRO(3, 12, 13, 14, 15, 16, 17, 18, 19),
+        DISCOVER(3, 16, 17, 18, 19),
+        DINERS_CLUB(3, 14, 15, 16, 17, 18, 19),
+        JCB(3, 16, 17, 18, 19),
+        UNIONPAY(3, 16, 17, 18, 19),
+        MIR(3, 16, 17, 18, 19),
+        /**
+         * No known prefix, any length allowed by {@link CardValidator} is valid.
+         */
+        UNKNOWN(0, 12, 13, 14, 15, 16, 17, 18, 19);
+
+        private final int cvcLength;
+        private final int lengths;
+        private final int minLength;
+        private final int maxLength;
+
+        Scheme(int cvcLength, int... lengths) {
+            this.cvcLength = cvcLength;
+            int mask = 0;
+            for (int length : lengths) {
+                mask |= 1 << length;
+            }
+            this.lengths = mask;
+            this.minLength = lengths[0];
+            this.maxLength = lengths[lengths.length - 1];
+        }
+
+        /**
+         * @return The number of digits of the CVC, 0 for {@link #UNKNOWN}.
+         */
+        public int getCvcLength() {
+            return cvcLength;
+        }
+
+        /**
+         * @param length A number of digits.
+         * @return true if card numbers of the scheme can have {@code length} digits.
+         */
+        public boolean isValidLength(int length) {
+            return length >= 0 && length < Integer.SIZE && (lengths & (1 << length)) != 0;
+        }
+
+        public int getMinLength() {
+            return minLength;
+        }
+
+        public int getMaxLength() {
+            return maxLength;
+        }
+    }
+
+    /**
+     * The state before the first digit.
+     */
+    public static final int START_STATE = 0;
+
+    private static final int RADIX = 10;
+
+    /**
+     * The children of node {@code n} are at {@code n * RADIX + digit}, 0 when there is none as the
+     * root is nobody's child.
+     */
+    private static final int[] CHILDREN;
+
+    /**
+     * The scheme of the most specific range containing the prefix of each node.
+     */
+    private static final Scheme[] SCHEMES;
+
+    static {
+        TrieBuilder trie = new TrieBuilder();
+        trie.addRange("4", "4", Scheme.VISA);
+        trie.addRange("51", "55", Scheme.MASTERCARD);
+        trie.addRange("2221", "2720", Scheme.MASTERCARD);
+        trie.addRange("34", "34", Scheme.AMEX);
+        trie.addRange("37", "37", Scheme.AMEX);
+        trie.addRange("50", "50", Scheme.MAESTRO);
+        trie.addRange("56", "58", Scheme.MAESTRO);
+        trie.addRange("0604", "0604", Scheme.MAESTRO);
+        trie.addRange("6304", "6304", Scheme.MAESTRO);
+        trie.addRange("6390", "6390", Scheme.MAESTRO);
+        trie.addRange("6759", "6759", Scheme.MAESTRO);
+        trie.addRange("6761", "6763", Scheme.MAESTRO);
+        trie.addRange("6799", "6799", Scheme.MAESTRO);
+        trie.addRange("6011", "6011", Scheme.DISCOVER);
+        trie.addRange("644", "649", Scheme.DISCOVER);
+        trie.addRange("65", "65", Scheme.DISCOVER);
+        trie.addRange("622126", "622925", Scheme.DISCOVER);
+        trie.addRange("300", "305", Scheme.DINERS_CLUB);
+        trie.addRange("3095", "3095", Scheme.DINERS_CLUB);
+        trie.addRange("36", "36", Scheme.DINERS_CLUB);
+        trie.addRange("38", "39", Scheme.DINERS_CLUB);
+        trie.addRange("3528", "3589", Scheme.JCB);
+        trie.addRange("62", "62", Scheme.UNIONPAY);
+        trie.addRange("81", "81", Scheme.UNIONPAY);
+        trie.addRange("2200", "2204", Scheme.MIR);
+        CHILDREN = Arrays.copyOf(trie.children, trie.nodeCount * RADIX);
+        SCHEMES = trie.compileSchemes();
+    }
+
+    private CardSchemeDetector() {
+    }
+
+    /**
+     * @param number A card number or its first digits, spaces and dashes are skipped.
+     * @return The detected {@link Scheme}, {@link Scheme#UNKNOWN} if none matches or
+     * {@code number} has other characters.
+     */
+    public static Scheme detect(CharSequence number) {
+        if (number == null) {
+            return Scheme.UNKNOWN;
+        }
+        int state = START_STATE;
+        for (int i = 0, length = number.length(); i < length; i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                state = nextState(state, c);
+            } else if (c != ' ' && c != '-') {
+                return Scheme.UNKNOWN;
+            }
+        }
+        return getScheme(state);
+    }
+
+    /**
+     * @param state The state of the digits so far, {@link #START_STATE} before the first one.
+     * @param digit The next digit, '0' to '9'.
+     * @return The state of the digits so far followed by {@code digit}.
+     */
+    public static int nextState(int state, char digit) {
+        if (state < 0) {
+            // past the end of the trie, no longer prefix can be more specific
+            return state;
+        }
+        int child = CHILDREN[state * RADIX + digit - '0'];
+        return child != 0 ? child : ~state;
+    }
+
+    /**
+     * @param state A state returned by {@link #nextState(int, char)}.
+     * @return The {@link Scheme} of the digits of that state.
+     */
+    public static Scheme getScheme(int state) {
+        return SCHEMES[state < 0 ? ~state : state];
+    }
+
+    /**
+     * Collects the prefix ranges before they are compiled into {@link #CHILDREN} and {@link #SCHEMES}.
+     */
+    private static final class TrieBuilder {
+        int[] children = new int[64 * RADIX];
+        Scheme[] schemes = new Scheme[64];
+        int nodeCount = 1;
+
+        /**
+         * Adds the prefixes from {@code low} to {@code high}, of the same length.
+         */
+        void addRange(String low, String high, Scheme scheme) {
+            addRange(0, low, high, 0, true, true, scheme);
+        }
+
+        private void addRange(int node, String low, String high, int depth, boolean atLow, boolean atHigh,
+                              Scheme scheme) {
+            if (depth == low.length() || (!atLow && !atHigh)) {
+                // the whole subtree is in the range
+                schemes[node] = scheme;
+                return;
+            }
+            int from = atLow ? low.charAt(depth) - '0' : 0;
+            int to = atHigh ? high.charAt(depth) - '0' : RADIX - 1;
+            for (int digit = from; digit <= to; digit++) {
+                addRange(child(node, digit), low, high, depth + 1, atLow && digit == from,
+                        atHigh && digit == to, scheme);
+            }
+        }
+
+        private int child(int node, int digit) {
+            int index = node * RADIX + digit;
+            if (children[index] == 0) {
+                if (nodeCount == schemes.length) {
+                    schemes = Arrays.copyOf(schemes, nodeCount * 2);
+                    children = Arrays.copyOf(children, nodeCount * 2 * RADIX);
+                }
+                children[index] = nodeCount++;
+            }
+            return children[index];
+        }
+
+        /**
+         * @return The scheme of every node, inherited from the closest ancestor with a range.
+         */
+        Scheme[] compileSchemes() {
+            Scheme[] compiled = Arrays.copyOf(schemes, nodeCount);
+            if (compiled[0] == null) {
+                compiled[0] = Scheme.UNKNOWN;
+            }
+            // parents are created before their children, so one pass hands the schemes down
+            for (int node = 0; node < nodeCount; node++) {
+                for (int digit = 0; digit < RADIX; digit++) {
+                    int child = children[node * RADIX + digit];
+                    if (child != 0 && compiled[child] == null) {
+                        compiled[child] = compiled[node];
+                    }
+                }
+            }
+            return compiled;
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.worldpay;
+
+/**
+ * Validates card numbers and CVCs in a single pass, without allocating, so that it is cheap
+ * enough to run on every keystroke of a form or over many cards.
+ * <p/>
+ * The methods take any {@link CharSequence}, for instance the {@link android.text.Editable} of an
+ * {@link android.widget.EditText}, so that its text does not have to be copied to a String first.
+ */
+public final class CardValidator {
+
+    /**
+     * Fewest digits of a card number.
+     */
+    public static final int MIN_CARD_NUMBER_LENGTH = 12;
+
+    /**
+     * Most digits of a card number.
+     */
+    public static final int MAX_CARD_NUMBER_LENGTH = 19;
+
+    private CardValidator() {
+    }
+
+    /**
+     * Checks a card number as {@link Card#VALIDATION_TYPE_ADVANCED} does: digits separated by
+     * spaces or dashes, {@value #MIN_CARD_NUMBER_LENGTH} to {@value #MAX_CARD_NUMBER_LENGTH}
+     * digits, and a valid Luhn checksum.
+     *
+     * @param number The card number, may be null.
+     * @return true if the number is valid.
+     */
+    public static boolean isValidCardNumber(CharSequence number) {
+        return checkCardNumber(number) == 0;
+    }
+
+    /**
+     * Checks a card number like {@link #isValidCardNumber(CharSequence)}.
+     *
+     * @param number The card number, may be null.
+     * @return The first {@link ValidationResult#CARD_NUMBER} reason found, 0 if the number is valid.
+     */
+    public static long checkCardNumber(CharSequence number) {
+        if (number == null) {
+            return ValidationResult.CARD_NUMBER_MISSING;
+        }
+        int digits = 0;
+        int sum = 0;
+        // from the right, so that the digits to double are known without counting them first
+        for (int i = number.length() - 1; i >= 0; i--) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if ((digits & 1) == 1) {
+                    digit *= 2;
+                    if (digit > 9) {
+                        digit -= 9;
+                    }
+                }
+                sum += digit;
+                digits++;
+            } else if (!isSeparator(c)) {
+                return ValidationResult.CARD_NUMBER_BAD_CHARACTERS;
+            }
+        }
+        if (digits == 0) {
+            return ValidationResult.CARD_NUMBER_MISSING;
+        }
+        if (digits < MIN_CARD_NUMBER_LENGTH) {
+            return ValidationResult.CARD_NUMBER_TOO_SHORT;
+        }
+        if (digits > MAX_CARD_NUMBER_LENGTH) {
+            return ValidationResult.CARD_NUMBER_TOO_LONG;
+        }
+        // a number of zeros passes the checksum but is not a card
+        return sum > 0 && sum % 10 == 0 ? 0 : ValidationResult.CARD_NUMBER_LUHN;
+    }
+
+    /**
+     * Checks a card number as {@link Card#VALIDATION_TYPE_BASIC} does: at least one digit and
+     * nothing else.
+     *
+     * @param number The card number, may be null.
+     * @return true if the number is valid.
+     */
+    public static boolean isValidCardNumberBasic(CharSequence number) {
+        return checkCardNumberBasic(number) == 0;
+    }
+
+    /**
+     * Checks a card number like {@link #isValidCardNumberBasic(CharSequence)}.
+     *
+     * @param number The card number, may be null.
+     * @return A {@link ValidationResult#CARD_NUMBER} reason, 0 if the number is valid.
+     */
+    public static long checkCardNumberBasic(CharSequence number) {
+        if (number == null || number.length() == 0) {
+            return ValidationResult.CARD_NUMBER_MISSING;
+        }
+        return isDigits(number) ? 0 : ValidationResult.CARD_NUMBER_BAD_CHARACTERS;
+    }
+
+    /**
+     * @param cvc The CVC, may be null or empty as it is optional.
+     * @return true if the CVC is missing or only has digits.
+     */
+    public static boolean isValidCvc(CharSequence cvc) {
+        return cvc == null || isDigits(cvc);
+    }
+
+    private static boolean isDigits(CharSequence text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true for the characters allowed between digits, dashes and the whitespace of
+     * {@code \s} in a regular expression.
+     */
+    static boolean isSeparator(char c) {
+        switch (c) {
+            case ' ':
+            case '-':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
@@ -0,0 +1,400 @@
+package com.worldpay;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling an endpoint of WorldPay that keeps failing, so that requests fail at once with
+ * {@link WorldPayError#ERROR_CIRCUIT_OPEN} instead of each waiting for its timeout.
+ * <p/>
+ * Every {@link Endpoint} has its own circuit, which records the outcome of its last
+ * {@code windowSize} attempts. Connection errors, timeouts and 5xx responses are failures. When
+ * at least {@code minimumCalls} were recorded and the share of failures reaches
+ * {@code failureRateThreshold}, the circuit opens: attempts fail with a
+ * {@link CircuitOpenException} for {@code openMillis}. The circuit is then half-open and lets
+ * {@code halfOpenCalls} trial attempts through. It closes when they all succeed and opens again
+ * when one fails.
+ * <p/>
+ * Check {@link #getState(Endpoint)} to switch to another payment path while tokenization is down:
+ * <pre>
+ * if (worldPay.getCircuitBreaker().getState(CircuitBreaker.Endpoint.TOKENS) == CircuitBreaker.State.OPEN) {
+ *     // offer SaveAlternativePaymentMethodActivity
+ * }
+ * </pre>
+ * Create instances with a {@link Builder}, with its own {@link Clock} to let the open period pass
+ * in tests. The settings are immutable, the state is safe to use
+ * from any thread and shared by the configurations built from the same
+ * {@link WorldPayConfig.Builder#setCircuitBreaker(CircuitBreaker)}.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * The endpoints with a circuit.
+     */
+    public enum Endpoint {
+        /**
+         * {@code POST /tokens}, creating tokens.
+         */
+        TOKENS,
+        /**
+         * {@code PUT /tokens/{token}}, updating the CVC of a token.
+         */
+        TOKEN,
+        /**
+         * {@code /orders}, sent with {@link HttpClientUtility#httpEntityRequest}.
+         */
+        ORDERS,
+        /**
+         * Any other URL.
+         */
+        OTHER;
+
+        static Endpoint of(String url) {
+            if (url.equals(Constants.API_URL_TOKENS)) {
+                return TOKENS;
+            }
+            if (url.startsWith(Constants.API_URL_TOKENS + "/")) {
+                return TOKEN;
+            }
+            if (url.contains("/orders")) {
+                return ORDERS;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * The state of a circuit.
+     */
+    public enum State {
+        /**
+         * Attempts are sent.
+         */
+        CLOSED,
+        /**
+         * Attempts fail at once.
+         */
+        OPEN,
+        /**
+         * A few trial attempts are sent to find out if the endpoint recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The time source of the open period.
+     */
+    public interface Clock {
+
+        /**
+         * @return The current value of a monotonic time source, in nanoseconds, only meaningful
+         * as a difference with another value, like {@link System#nanoTime()}.
+         */
+        long nanoTime();
+    }
+
+    /**
+     * The {@link Clock} of {@link System#nanoTime()}.
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final int windowSize;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    private final Map<Endpoint, Circuit> circuits = new EnumMap<>(Endpoint.class);
+
+    private CircuitBreaker(Builder builder) {
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.minimumCalls = builder.minimumCalls;
+        this.windowSize = builder.windowSize;
+        this.openMillis = builder.openMillis;
+        this.halfOpenCalls = builder.halfOpenCalls;
+        this.clock = builder.clock;
+        for (Endpoint endpoint : Endpoint.values()) {
+            circuits.put(endpoint, new Circuit());
+        }
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * @param endpoint The {@link Endpoint}.
+     * @return The {@link State} of its circuit. An open circuit reports {@link State#HALF_OPEN}
+     * once {@code openMillis} passed.
+     */
+    public State getState(Endpoint endpoint) {
+        return circuits.get(endpoint).getState();
+    }
+
+    /**
+     * Closes all circuits and forgets their recorded outcomes.
+     */
+    public void reset() {
+        for (Circuit circuit : circuits.values()) {
+            circuit.reset();
+        }
+    }
+
+    /**
+     * Asks to send an attempt to {@code endpoint}. Every permitted attempt must be followed by
+     * {@link #onSuccess(Endpoint)}, {@link #onFailure(Endpoint)} or {@link #onIgnored(Endpoint)}.
+     *
+     * @throws CircuitOpenException If the circuit is open.
+     */
+    void acquire(Endpoint endpoint) throws CircuitOpenException {
+        if (!circuits.get(endpoint).tryAcquire()) {
+            throw new CircuitOpenException("Circuit of " + endpoint + " is open");
+        }
+    }
+
+    void onSuccess(Endpoint endpoint) {
+        circuits.get(endpoint).onResult(false);
+    }
+
+    void onFailure(Endpoint endpoint) {
+        circuits.get(endpoint).onResult(true);
+    }
+
+    /**
+     * The attempt ended without telling anything about the endpoint, it was aborted.
+     */
+    void onIgnored(Endpoint endpoint) {
+        circuits.get(endpoint).onIgnored();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CircuitBreaker [");
+        for (Endpoint endpoint : Endpoint.values()) {
+            builder.append(endpoint).append('=').append(getState(endpoint)).append(", ");
+        }
+        return builder.append("failureRateThreshold=").append(failureRateThreshold).append("]").toString();
+    }
+
+    /**
+     * The state of one endpoint, guarded by its own lock.
+     */
+    private final class Circuit {
+
+        /**
+         * The outcomes of the last attempts, true for failures.
+         */
+        private final boolean[] window = new boolean[windowSize];
+        private int recorded;
+        private int next;
+        private int failures;
+
+        private State state = State.CLOSED;
+        private long openUntilNanos;
+        private int trialsStarted;
+        private int trialsSucceeded;
+
+        synchronized State getState() {
+            if (state == State.OPEN && clock.nanoTime() - openUntilNanos >= 0) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+
+        synchronized boolean tryAcquire() {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (clock.nanoTime() - openUntilNanos < 0) {
+                        return false;
+                    }
+                    DebugLogger.d("Circuit half-open after " + openMillis + " ms");
+                    state = State.HALF_OPEN;
+                    trialsStarted = 0;
+                    trialsSucceeded = 0;
+                    // fall through to let the first trial in
+                default:
+                    if (trialsStarted >= halfOpenCalls) {
+                        return false;
+                    }
+                    trialsStarted++;
+                    return true;
+            }
+        }
+
+        synchronized void onResult(boolean failure) {
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    open();
+                } else if (++trialsSucceeded >= halfOpenCalls) {
+                    DebugLogger.d("Circuit closed");
+                    reset();
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // an attempt started before the circuit opened
+                return;
+            }
+
+            if (recorded == windowSize) {
+                if (window[next]) {
+                    failures--;
+                }
+            } else {
+                recorded++;
+            }
+            window[next] = failure;
+            next = (next + 1) % windowSize;
+            if (failure) {
+                failures++;
+            }
+
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                DebugLogger.d("Circuit open after " + failures + " failures in " + recorded + " attempts");
+                open();
+            }
+        }
+
+        synchronized void onIgnored() {
+            if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+                trialsStarted--;
+            }
+        }
+
+        synchronized void reset() {
+            state = State.CLOSED;
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openUntilNanos = clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openMillis);
+        }
+    }
+
+    /**
+     * Builds {@link CircuitBreaker} instances.
+     */
+    public static final class Builder {
+
+        private double failureRateThreshold = 0.5;
+        private int minimumCalls = 10;
+        private int windowSize = 20;
+        private long openMillis = 30 * 1000;
+        private int halfOpenCalls = 1;
+        private Clock clock = SYSTEM_CLOCK;
+
+        public Builder() {
+        }
+
+        /**
+         * @param failureRateThreshold The share of failed attempts opening the circuit, more than
+         *                             0 and at most 1.
+         * @return {@code this}
+         */
+        public Builder setFailureRateThreshold(double failureRateThreshold) {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("Failure rate threshold must be more than 0 and at most 1.");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param minimumCalls The number of recorded attempts before the circuit can open, at least 1.
+         * @return {@code this}
+         */
+        public Builder setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = checkPositive(minimumCalls);
+            return this;
+        }
+
+        /**
+         * @param windowSize The number of last attempts the failure rate is computed on, at least 1.
+         * @return {@code this}
+         */
+        public Builder setWindowSize(int windowSize) {
+            this.windowSize = checkPositive(windowSize);
+            return this;
+        }
+
+        /**
+         * @param openMillis The time attempts fail at once before trial attempts are sent.
+         * @return {@code this}
+         */
+        public Builder setOpenMillis(long openMillis) {
+            if (openMillis < 0) {
+                throw new IllegalArgumentException("Delay can not be negative.");
+            }
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        /**
+         * @param halfOpenCalls The number of trial attempts that must succeed to close the
+         *                      circuit, at least 1.
+         * @return {@code this}
+         */
+        public Builder setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = checkPositive(halfOpenCalls);
+            return this;
+        }
+
+        /**
+         * @param clock The {@link Clock} measuring the open period, {@link #SYSTEM_CLOCK} by default.
+         * @return {@code this}
+         */
+        public Builder setClock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("Clock can not be null.");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException If {@code minimumCalls} is more than {@code windowSize}.
+         */
+        public CircuitBreaker build() {
+            if (minimumCalls > windowSize) {
+                throw new IllegalArgumentException("Minimum calls can not be more than the window size.");
+            }
+            return new CircuitBreaker(this);
+        }
+
+        private static int checkPositive(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("Value must be at least 1.");
+            }
+            return value;
+        }
+    }
+
+}
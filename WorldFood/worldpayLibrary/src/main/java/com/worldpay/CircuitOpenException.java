@@ -0,0 +1,16 @@
+package com.worldpay;
+
+import java.io.IOException;
+
+/**
+ * The request was not sent because the circuit of its endpoint is open, see {@link CircuitBreaker}.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 4306418836311204741L;
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+}
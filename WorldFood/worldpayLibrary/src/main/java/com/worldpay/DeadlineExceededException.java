@@ -0,0 +1,16 @@
+package com.worldpay;
+
+import java.io.InterruptedIOException;
+
+/**
+ * The total deadline of a request expired, see {@link Timeouts#getTotalMillis()}.
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+
+    private static final long serialVersionUID = -2861574330417432015L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+}
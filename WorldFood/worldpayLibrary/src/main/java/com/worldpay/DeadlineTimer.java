@@ -0,0 +1,41 @@
+package com.worldpay;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single daemon thread enforcing the deadlines of calls, so that a caller blocked on the network
+ * is released when its deadline expires.
+ */
+final class DeadlineTimer {
+
+    private static ScheduledExecutorService timer;
+
+    private DeadlineTimer() {
+    }
+
+    /**
+     * Runs {@code action} after {@code delayMillis}, unless the returned future is cancelled.
+     */
+    static ScheduledFuture<?> schedule(Runnable action, long delayMillis) {
+        return getTimer().schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "WorldPay-Deadline");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer;
+    }
+
+}
@@ -6,9 +6,9 @@ import android.util.Log;
  * Debugging utility.
  */
 final class DebugLogger {
-    public static String tag = WorldPay.TAG;
+    public static volatile String tag = WorldPay.TAG;
 
-    public static boolean debug = false;
+    public static volatile boolean debug = false;
 
     public static void setDebug(boolean debug) {
         DebugLogger.debug = debug;
@@ -0,0 +1,83 @@
+package com.worldpay;
+
+import android.os.SystemClock;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link DnsResolver} that caches the addresses returned by another resolver.
+ * <p/>
+ * Entries expire after a fixed time to live, and the least recently used entry is evicted once
+ * the cache is full. Failed lookups are not cached.
+ */
+public final class DnsCache implements DnsResolver {
+
+    private final DnsResolver delegate;
+    private final long ttlMillis;
+    private final Map<String, CachedAddresses> entries;
+
+    /**
+     * @param delegate   The {@link DnsResolver} used on cache misses.
+     * @param maxEntries Maximum number of cached hosts.
+     * @param ttlMillis  How long resolved addresses are used.
+     */
+    public DnsCache(DnsResolver delegate, final int maxEntries, long ttlMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Resolver can not be null.");
+        }
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, CachedAddresses>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAddresses> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (entries) {
+            CachedAddresses entry = entries.get(host);
+            if (entry != null && now < entry.expiresAt) {
+                return entry.addresses.clone();
+            }
+        }
+
+        // resolve outside the lock, a slow lookup must not block other hosts
+        InetAddress[] addresses = delegate.resolve(host);
+        if (addresses == null || addresses.length == 0) {
+            throw new UnknownHostException(host);
+        }
+
+        synchronized (entries) {
+            entries.put(host, new CachedAddresses(addresses.clone(), SystemClock.elapsedRealtime() + ttlMillis));
+        }
+        return addresses;
+    }
+
+    /**
+     * Removes all cached addresses, for example after a network change.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static final class CachedAddresses {
+
+        final InetAddress[] addresses;
+        final long expiresAt;
+
+        CachedAddresses(InetAddress[] addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.worldpay;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves host names for the connections of {@link HttpClientTransport}.
+ * <p/>
+ * Install a custom resolver, for example one returning local addresses in tests, using
+ * {@link HttpClientUtility#setDnsResolver(DnsResolver)}.
+ */
+public interface DnsResolver {
+
+    /**
+     * Resolves host names with {@link InetAddress#getAllByName(String)}.
+     */
+    DnsResolver SYSTEM = new DnsResolver() {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            return InetAddress.getAllByName(host);
+        }
+    };
+
+    /**
+     * Returns all addresses of {@code host}, IPv4 and IPv6.
+     *
+     * @param host The host name.
+     * @return The addresses, never empty.
+     * @throws UnknownHostException If the host could not be resolved.
+     */
+    InetAddress[] resolve(String host) throws UnknownHostException;
+
+}
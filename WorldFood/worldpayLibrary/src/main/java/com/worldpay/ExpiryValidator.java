@@ -0,0 +1,156 @@
+package com.worldpay;
+
+import java.util.Calendar;
+
+/**
+ * Checks the expiry month and year of a card against the current month, without allocating.
+ * <p/>
+ * A card is valid until the end of its expiry month, in the time zone of the device. The
+ * current month is cached and only computed again once the {@link Clock} passes the start of
+ * the next month, or goes back before the cached month, so {@link Calendar} is not created on
+ * every check. Month and year are parsed from their characters, text that is not a number is
+ * reported as {@link ValidationResult#EXPIRY_BAD_FORMAT}.
+ * <p/>
+ * Create an instance with its own {@link Clock} to check expiry dates at a given time, in tests
+ * for instance. Instances are safe to use from any thread.
+ */
+public final class ExpiryValidator {
+
+    /**
+     * Source of the current time.
+     */
+    public interface Clock {
+
+        /**
+         * @return The current time, in milliseconds since the epoch.
+         */
+        long currentTimeMillis();
+    }
+
+    /**
+     * {@link System#currentTimeMillis()}.
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * The validator of {@link Card#validate()}, using {@link #SYSTEM_CLOCK}.
+     */
+    public static final ExpiryValidator DEFAULT = new ExpiryValidator(SYSTEM_CLOCK);
+
+    private static final int MONTHS = 12;
+
+    private final Clock clock;
+
+    // guarded by this
+    private Calendar calendar;
+    private int currentMonth;
+    private long monthStartMillis;
+    private long nextMonthStartMillis;
+
+    /**
+     * @param clock The source of the current time.
+     */
+    public ExpiryValidator(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock can not be null.");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * @param expiryMonth The month, 1 to 12 with one or two digits.
+     * @param expiryYear  The year, with four digits.
+     * @return A {@link ValidationResult#EXPIRY} reason, 0 if the card has not expired.
+     */
+    public long check(CharSequence expiryMonth, CharSequence expiryYear) {
+        if (expiryMonth == null || expiryMonth.length() == 0 || expiryYear == null || expiryYear.length() == 0) {
+            return ValidationResult.EXPIRY_MISSING;
+        }
+        int month = expiryMonth.length() <= 2 ? parse(expiryMonth, 0, expiryMonth.length()) : -1;
+        int year = expiryYear.length() == 4 ? parse(expiryYear, 0, 4) : -1;
+        return check(month, year);
+    }
+
+    /**
+     * Checks the text of an expiry field, as it is typed.
+     *
+     * @param expiry The expiry as {@code MM/YYYY}.
+     * @return A {@link ValidationResult#EXPIRY} reason, 0 if the card has not expired.
+     * {@link ValidationResult#EXPIRY_BAD_MONTH} is reported as soon as the month is typed,
+     * {@link ValidationResult#EXPIRY_BAD_FORMAT} while the year is not complete.
+     */
+    public long check(CharSequence expiry) {
+        if (expiry == null || expiry.length() == 0) {
+            return ValidationResult.EXPIRY_MISSING;
+        }
+        int length = expiry.length();
+        int month = length >= 2 ? parse(expiry, 0, 2) : -1;
+        if (month == 0 || month > MONTHS) {
+            return ValidationResult.EXPIRY_BAD_MONTH;
+        }
+        int year = length == 7 && expiry.charAt(2) == '/' ? parse(expiry, 3, 7) : -1;
+        return check(month, year);
+    }
+
+    /**
+     * @param month The month, 1 to 12, negative if it is not a number.
+     * @param year  The year, negative if it is not a number.
+     * @return A {@link ValidationResult#EXPIRY} reason, 0 if the card has not expired.
+     */
+    private long check(int month, int year) {
+        if (month < 0 || year < 0) {
+            return ValidationResult.EXPIRY_BAD_FORMAT;
+        }
+        if (month < 1 || month > MONTHS) {
+            return ValidationResult.EXPIRY_BAD_MONTH;
+        }
+        // valid until the end of the expiry month
+        return year * MONTHS + month - 1 >= getCurrentMonth() ? 0 : ValidationResult.EXPIRY_EXPIRED;
+    }
+
+    /**
+     * @return The current month as {@code year * 12 + month}, with months from 0.
+     */
+    synchronized int getCurrentMonth() {
+        long now = clock.currentTimeMillis();
+        if (calendar == null || now >= nextMonthStartMillis || now < monthStartMillis) {
+            if (calendar == null) {
+                calendar = Calendar.getInstance();
+            }
+            calendar.setTimeInMillis(now);
+            currentMonth = calendar.get(Calendar.YEAR) * MONTHS + calendar.get(Calendar.MONTH);
+
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            monthStartMillis = calendar.getTimeInMillis();
+            calendar.add(Calendar.MONTH, 1);
+            nextMonthStartMillis = calendar.getTimeInMillis();
+        }
+        return currentMonth;
+    }
+
+    /**
+     * @return The number written with the digits from {@code start} to {@code end}, -1 if one of
+     * them is not a digit.
+     */
+    private static int parse(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+}
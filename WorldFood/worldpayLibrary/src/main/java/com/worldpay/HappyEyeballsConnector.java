@@ -0,0 +1,207 @@
+package com.worldpay;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects to the first reachable address of a host, racing IPv6 and IPv4 in the style of
+ * Happy Eyeballs (RFC 8305).
+ * <p/>
+ * Addresses are tried alternating between families. The next attempt starts when the previous
+ * one failed or after {@link #CONNECTION_ATTEMPT_DELAY}, whichever comes first, so a black holed
+ * IPv6 route costs a quarter of a second instead of the whole connect timeout. The first socket
+ * that connects is returned and the other attempts are closed.
+ */
+public final class HappyEyeballsConnector {
+
+    /**
+     * Delay before the next address is tried while an attempt is still connecting, in milliseconds.
+     */
+    public static final long CONNECTION_ATTEMPT_DELAY = 250;
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "WorldPay-Connect");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private HappyEyeballsConnector() {
+
+    }
+
+    /**
+     * Connects to one of {@code addresses}.
+     *
+     * @param addresses     The resolved addresses of the host.
+     * @param port          The port.
+     * @param timeoutMillis Time allowed for the whole race, 0 for no timeout.
+     * @return The connected {@link Socket}.
+     * @throws IOException If no address could be connected to in time.
+     */
+    public static Socket connect(InetAddress[] addresses, int port, int timeoutMillis) throws IOException {
+        if (addresses.length == 1) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(addresses[0], port), timeoutMillis);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            return socket;
+        }
+        return new Race(interleave(addresses), port, timeoutMillis).run();
+    }
+
+    /**
+     * Orders addresses alternating between IPv6 and IPv4, starting with the family of the first
+     * address.
+     */
+    static InetAddress[] interleave(InetAddress[] addresses) {
+        boolean firstIsV6 = addresses[0] instanceof Inet6Address;
+        List<InetAddress> preferred = new ArrayList<>();
+        List<InetAddress> other = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == firstIsV6) {
+                preferred.add(address);
+            } else {
+                other.add(address);
+            }
+        }
+
+        InetAddress[] ordered = new InetAddress[addresses.length];
+        int i = 0;
+        for (int j = 0; j < preferred.size() || j < other.size(); j++) {
+            if (j < preferred.size()) {
+                ordered[i++] = preferred.get(j);
+            }
+            if (j < other.size()) {
+                ordered[i++] = other.get(j);
+            }
+        }
+        return ordered;
+    }
+
+    private static final class Race {
+
+        private final InetAddress[] addresses;
+        private final int port;
+        private final int timeoutMillis;
+        private final List<Socket> sockets = new ArrayList<>();
+        private final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+        private volatile boolean finished;
+
+        Race(InetAddress[] addresses, int port, int timeoutMillis) {
+            this.addresses = addresses;
+            this.port = port;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        Socket run() throws IOException {
+            long deadline = timeoutMillis > 0 ? SystemClock.elapsedRealtime() + timeoutMillis : Long.MAX_VALUE;
+            IOException lastError = null;
+            int next = 0;
+            int pending = 0;
+            Socket winner = null;
+
+            try {
+                start(next++, deadline);
+                pending++;
+
+                while (winner == null) {
+                    long remaining = deadline - SystemClock.elapsedRealtime();
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("Connect timed out");
+                    }
+
+                    Object result = results.poll(next < addresses.length
+                            ? Math.min(CONNECTION_ATTEMPT_DELAY, remaining) : remaining, TimeUnit.MILLISECONDS);
+
+                    if (result instanceof Socket) {
+                        winner = (Socket) result;
+                    } else {
+                        if (result instanceof IOException) {
+                            lastError = (IOException) result;
+                            pending--;
+                        }
+                        if (next < addresses.length) {
+                            start(next++, deadline);
+                            pending++;
+                        } else if (pending == 0) {
+                            throw lastError;
+                        }
+                    }
+                }
+                return winner;
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Connect interrupted");
+            } finally {
+                finished = true;
+                synchronized (sockets) {
+                    for (Socket socket : sockets) {
+                        if (socket != winner) {
+                            closeQuietly(socket);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void start(int index, final long deadline) {
+            final InetAddress address = addresses[index];
+            final Socket socket = new Socket();
+            synchronized (sockets) {
+                sockets.add(socket);
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long remaining = deadline == Long.MAX_VALUE ? 0 : deadline - SystemClock.elapsedRealtime();
+                        if (deadline != Long.MAX_VALUE && remaining <= 0) {
+                            throw new SocketTimeoutException("Connect timed out");
+                        }
+                        socket.connect(new InetSocketAddress(address, port), (int) remaining);
+                        DebugLogger.d("Connected to " + address);
+                        if (finished) {
+                            // another attempt won
+                            closeQuietly(socket);
+                        } else {
+                            results.add(socket);
+                        }
+                    } catch (IOException e) {
+                        DebugLogger.d("Connect to " + address + " failed: " + e.getMessage());
+                        closeQuietly(socket);
+                        results.add(e);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+            // nothing to do
+        }
+    }
+
+}
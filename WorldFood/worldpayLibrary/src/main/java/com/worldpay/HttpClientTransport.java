@@ -0,0 +1,193 @@
+package com.worldpay;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * {@link Transport} based on the pooled Apache HTTP client of {@link HttpClientUtility}.
+ * <p>
+ * Each instance owns its connection pool, created on the first request, so configurations with
+ * different transports never share connections. Call {@link #shutdown()} when the transport is
+ * not used any more.
+ * </p>
+ * <p>
+ * Requires the {@code org.apache.http.legacy} library on API 23 and above.
+ * </p>
+ */
+public class HttpClientTransport implements Transport {
+
+    private static final String RETRY_AFTER = "Retry-After";
+
+    // guarded by this
+    private HttpClient httpClient;
+    private HttpClientUtility.IdleConnectionReaper reaper;
+
+    @Override
+    public HttpServerResponse execute(TransportRequest request) throws IOException {
+        final HttpEntityEnclosingRequestBase httpRequest;
+
+        if (request.getMethod() == HttpClientUtility.HTTP_METHOD.POST) {
+            httpRequest = new HttpPost(request.getUrl());
+        } else {
+            //http put in our case
+            httpRequest = new HttpPut(request.getUrl());
+        }
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            httpRequest.addHeader(header.getKey(), header.getValue());
+        }
+        if (!httpRequest.containsHeader("Accept-Encoding")) {
+            httpRequest.addHeader("Accept-Encoding", ResponseBodyReader.ACCEPT_ENCODING);
+        }
+
+        httpRequest.setEntity(new BodyEntity(request.getBody(), request.getBodyLength()));
+
+        // overrides the timeouts of the client for this request only
+        HttpParams params = httpRequest.getParams();
+        ConnManagerParams.setTimeout(params, request.getConnectTimeout());
+        HttpConnectionParams.setConnectionTimeout(params, request.getConnectTimeout());
+        HttpConnectionParams.setSoTimeout(params, request.getReadTimeout());
+        params.setIntParameter(TlsSocketFactory.TLS_TIMEOUT, request.getTlsTimeout());
+
+        request.setAbortAction(new Runnable() {
+            @Override
+            public void run() {
+                httpRequest.abort();
+            }
+        });
+        try {
+            HttpResponse response = getHttpClient().execute(httpRequest);
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getStatusLine().getStatusCode();
+            Header retryAfter = response.getFirstHeader(RETRY_AFTER);
+            if (entity == null) {
+                return new HttpServerResponse(statusCode, null, -1, null)
+                        .setRetryAfter(retryAfter == null ? null : retryAfter.getValue());
+            }
+            Header contentType = entity.getContentType();
+            Header contentEncoding = entity.getContentEncoding();
+            return new HttpServerResponse(statusCode, entity.getContent(), entity.getContentLength(),
+                    contentType == null ? null : contentType.getValue(),
+                    contentEncoding == null ? null : contentEncoding.getValue())
+                    .setRetryAfter(retryAfter == null ? null : retryAfter.getValue());
+        } catch (IOException | RuntimeException e) {
+            // do not return a half read connection to the pool
+            httpRequest.abort();
+            throw e;
+        } finally {
+            request.setAbortAction(null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The warm connection is kept alive for at most {@code ttlMillis}, after which the idle
+     * connection reaper of this transport closes it. The reaper closes any connection idle for
+     * longer than {@link HttpClientUtility#IDLE_CONNECTION_TIMEOUT}.
+     */
+    @Override
+    public void prewarm(String url, long ttlMillis) throws IOException {
+        HttpHead httpRequest = new HttpHead(url);
+        HttpContext context = new BasicHttpContext();
+        context.setAttribute(HttpClientUtility.KEEP_ALIVE_TTL, ttlMillis);
+
+        try {
+            HttpResponse response = getHttpClient().execute(httpRequest, context);
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                // releases the connection to the pool
+                entity.consumeContent();
+            }
+        } catch (IOException | RuntimeException e) {
+            httpRequest.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the pooled connections of this transport and stops its idle connection reaper. <br>
+     * A new pool is created the next time a request is made.
+     */
+    public synchronized void shutdown() {
+        if (reaper != null) {
+            reaper.shutdown();
+            reaper = null;
+        }
+        if (httpClient != null) {
+            httpClient.getConnectionManager().shutdown();
+            httpClient = null;
+        }
+    }
+
+    /**
+     * @return The client of this transport, with its connection pool created on first use.
+     */
+    private synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClientUtility.newHttpClient();
+            reaper = new HttpClientUtility.IdleConnectionReaper(httpClient.getConnectionManager());
+            reaper.start();
+        }
+        return httpClient;
+    }
+
+    /**
+     * Like {@link org.apache.http.entity.ByteArrayEntity}, but sends only a part of the array.
+     */
+    private static final class BodyEntity extends AbstractHttpEntity {
+
+        private final byte[] body;
+        private final int length;
+
+        BodyEntity(byte[] body, int length) {
+            this.body = body;
+            this.length = length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(body, 0, length);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(body, 0, length);
+            out.flush();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+}
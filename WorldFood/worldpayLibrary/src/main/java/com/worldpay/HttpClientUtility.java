@@ -1,23 +1,28 @@
 package com.worldpay;
 
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpPut;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
-import org.apache.http.conn.ssl.SSLSocketFactory;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHeaderElementIterator;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public final class HttpClientUtility {
 
@@ -26,45 +31,155 @@ public final class HttpClientUtility {
      */
     public static final int HTTP_TIMEOUT = 30 * 1000;
 
-    private synchronized static HttpClient initializeHttpClient() {
+    /**
+     * Maximum number of pooled connections per route (scheme, host and port).
+     */
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 4;
+
+    /**
+     * Maximum number of pooled connections in total.
+     */
+    public static final int MAX_CONNECTIONS_TOTAL = 8;
+
+    /**
+     * How long a connection is kept alive when the server does not send a Keep-Alive timeout.
+     */
+    public static final long KEEP_ALIVE_DURATION = 30 * 1000;
+
+    /**
+     * Idle connections are closed by the reaper after this time.
+     */
+    public static final long IDLE_CONNECTION_TIMEOUT = 60 * 1000;
+
+    /**
+     * Maximum number of hosts in the DNS cache.
+     */
+    public static final int DNS_CACHE_SIZE = 16;
+
+    /**
+     * How long resolved addresses are cached. The platform does not expose the TTL of the DNS
+     * records, so a short fixed time is used.
+     */
+    public static final long DNS_CACHE_TTL = 60 * 1000;
+
+    /**
+     * {@link HttpContext} attribute holding a {@link Long} that caps how long the connection of a
+     * request is kept alive, used for warm connections.
+     */
+    static final String KEEP_ALIVE_TTL = "com.worldpay.keep-alive-ttl";
+
+    private static final long REAPER_INTERVAL = 5 * 1000;
+
+    private static DnsResolver dnsResolver = new DnsCache(DnsResolver.SYSTEM, DNS_CACHE_SIZE, DNS_CACHE_TTL);
+
+    /**
+     * Creates an {@link HttpClient} with its own bounded pool of keep-alive connections, so that
+     * consecutive requests to the same host do not pay for a new TCP connection and TLS handshake.
+     * <p/>
+     * Idle connections are only closed by an {@link IdleConnectionReaper} started for its
+     * connection manager.
+     *
+     * @return The new {@link HttpClient}.
+     */
+    static HttpClient newHttpClient() {
         HttpParams params = new BasicHttpParams();
         HttpConnectionParams.setConnectionTimeout(params, HTTP_TIMEOUT);
         HttpConnectionParams.setSoTimeout(params, HTTP_TIMEOUT);
+        HttpConnectionParams.setStaleCheckingEnabled(params, true);
+
+        ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS_TOTAL);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(MAX_CONNECTIONS_PER_ROUTE));
+        ConnManagerParams.setTimeout(params, HTTP_TIMEOUT);
 
         SchemeRegistry registry = new SchemeRegistry();
 
         registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
 
-        registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+        // shares TLS sessions with UrlConnectionTransport
+        registry.register(new Scheme("https", new TlsSocketFactory(), 443));
 
         ThreadSafeClientConnManager manager = new ThreadSafeClientConnManager(params, registry);
 
-        return new DefaultHttpClient(manager, params);
+        DefaultHttpClient client = new DefaultHttpClient(manager, params);
+        client.setKeepAliveStrategy(new KeepAliveStrategy());
+        return client;
+    }
+
+    /**
+     * Returns the cached {@link DnsResolver} used to connect {@link HttpClientTransport} requests.
+     *
+     * @return The {@link DnsResolver}.
+     */
+    static synchronized DnsResolver getDnsResolver() {
+        return dnsResolver;
     }
 
+    /**
+     * Set the {@link DnsResolver} used to connect {@link HttpClientTransport} requests. Its
+     * results are cached for {@link #DNS_CACHE_TTL}.
+     * <p/>
+     * {@link UrlConnectionTransport} always uses the platform resolver.
+     *
+     * @param resolver The {@link DnsResolver}, for example one returning local addresses in tests.
+     * @throws IllegalArgumentException If the resolver is null.
+     */
+    public static synchronized void setDnsResolver(DnsResolver resolver) {
+        dnsResolver = new DnsCache(resolver, DNS_CACHE_SIZE, DNS_CACHE_TTL);
+    }
+
+    /**
+     * Executes a request using the {@link Transport} installed with
+     * {@link WorldPay#setTransport(Transport)}, so that it shares connections with the library
+     * requests.
+     *
+     * @param method  The HTTP method.
+     * @param url     The request URL.
+     * @param data    The request body.
+     * @param headers The request headers, or null.
+     * @return The {@link HttpServerResponse}.
+     * @throws IllegalStateException
+     * @throws IOException
+     */
     public static HttpServerResponse httpEntityRequest(HTTP_METHOD method, String url, String data, BasicHeader[] headers)
             throws IllegalStateException, IOException {
+        return httpEntityRequest(method, url, data, headers, false);
+    }
 
-        HttpClient client = initializeHttpClient();
-        HttpEntityEnclosingRequestBase request = null;
-
-        if (method == HTTP_METHOD.POST) {
-            request = new HttpPost(url);
-        } else {
-            //http put in our case
-            request = new HttpPut(url);
-        }
+    /**
+     * Executes a request like {@link #httpEntityRequest(HTTP_METHOD, String, String, BasicHeader[])},
+     * optionally compressing larger bodies with gzip.
+     * <p/>
+     * Only compress bodies for servers known to accept {@code Content-Encoding: gzip} requests,
+     * the WorldPay order API does not document it.
+     *
+     * @param method       The HTTP method.
+     * @param url          The request URL.
+     * @param data         The request body.
+     * @param headers      The request headers, or null.
+     * @param compressBody Whether to gzip the body, see {@link TransportRequest#compressBody()}.
+     * @return The {@link HttpServerResponse}.
+     * @throws IllegalStateException
+     * @throws IOException
+     */
+    public static HttpServerResponse httpEntityRequest(HTTP_METHOD method, String url, String data, BasicHeader[] headers,
+                                                       boolean compressBody)
+            throws IllegalStateException, IOException {
 
-        StringEntity stringEntity = new StringEntity(data);
+        WorldPayConfig config = WorldPay.getInstance().getConfig();
+        TransportRequest request = new TransportRequest(method, url)
+                .setTimeouts(config.getOrderTimeouts())
+                .setBody(data);
 
         if (headers != null) {
-            request.setHeaders(headers);
+            for (BasicHeader header : headers) {
+                request.setHeader(header.getName(), header.getValue());
+            }
+        }
+        if (compressBody) {
+            request.compressBody();
         }
 
-        request.setEntity(stringEntity);
-
-        HttpResponse response = client.execute(request);
-        return new HttpServerResponse(response);
+        return WorldPayHttp.executeOnce(config, request);
     }
 
     /**
@@ -74,4 +189,74 @@ public final class HttpClientUtility {
         POST, PUT
     }
 
+    /**
+     * Honours the server Keep-Alive timeout, falling back to {@link #KEEP_ALIVE_DURATION}, or the
+     * {@link #KEEP_ALIVE_TTL} of the request.
+     */
+    private static final class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long server = serverKeepAliveDuration(response);
+            Object ttl = context.getAttribute(KEEP_ALIVE_TTL);
+            long duration = ttl instanceof Long ? (Long) ttl : KEEP_ALIVE_DURATION;
+            return server >= 0 ? Math.min(server, duration) : duration;
+        }
+
+        /**
+         * @return The Keep-Alive timeout sent by the server in milliseconds, or -1.
+         */
+        private static long serverKeepAliveDuration(HttpResponse response) {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Long.parseLong(element.getValue()) * 1000;
+                    } catch (NumberFormatException ignore) {
+                        // fall back to the default duration
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Background thread that evicts expired and idle connections from the pool.
+     */
+    static final class IdleConnectionReaper extends Thread {
+
+        private final ClientConnectionManager manager;
+        private volatile boolean shutdown;
+
+        IdleConnectionReaper(ClientConnectionManager manager) {
+            super("WorldPay-IdleConnectionReaper");
+            this.manager = manager;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!shutdown) {
+                    synchronized (this) {
+                        wait(REAPER_INTERVAL);
+                    }
+                    manager.closeExpiredConnections();
+                    manager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                // terminate
+            }
+        }
+
+        void shutdown() {
+            shutdown = true;
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
 }
@@ -1,47 +1,144 @@
 package com.worldpay;
 
-import org.apache.http.HttpResponse;
-
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
 
 public class HttpServerResponse {
 
-    private int statusCode;
+    private final int statusCode;
+    private final byte[] body;
+    private final Charset charset;
     private String response;
+    private long retryAfterMillis = -1;
 
-    protected HttpServerResponse(HttpResponse response) throws IllegalStateException, IOException {
-        BufferedReader in = null;
-        try {
-            statusCode = response.getStatusLine().getStatusCode();
-            in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-
-            StringBuffer sb = new StringBuffer("");
-            String line = "";
-            String NL = System.getProperty("line.separator");
-            while ((line = in.readLine()) != null)
-                sb.append(line + NL);
-            in.close();
-
-            this.response = sb.toString();
-        } finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+    /**
+     * Creates a response reading the whole body from the stream. The stream is closed.
+     *
+     * @param statusCode The HTTP status code.
+     * @param body       The response body, or null if there is none.
+     * @throws IOException
+     */
+    public HttpServerResponse(int statusCode, InputStream body) throws IOException {
+        this(statusCode, body, -1, null);
+    }
+
+    /**
+     * Creates a response reading the whole body from the stream. The stream is closed.
+     *
+     * @param statusCode    The HTTP status code.
+     * @param body          The response body, or null if there is none.
+     * @param contentLength The Content-Length of the body, or a negative value if unknown.
+     * @param contentType   The Content-Type header used to find the charset of the body, can be
+     *                      null.
+     * @throws IOException If the body could not be read completely.
+     */
+    public HttpServerResponse(int statusCode, InputStream body, long contentLength, String contentType)
+            throws IOException {
+        this(statusCode, body, contentLength, contentType, null);
+    }
+
+    /**
+     * Creates a response reading and decompressing the whole body from the stream. The stream is
+     * closed.
+     *
+     * @param statusCode      The HTTP status code.
+     * @param body            The response body, or null if there is none.
+     * @param contentLength   The Content-Length of the body, or a negative value if unknown.
+     * @param contentType     The Content-Type header used to find the charset of the body, can be
+     *                        null.
+     * @param contentEncoding The Content-Encoding header, gzip and deflate are decompressed. Can be
+     *                        null.
+     * @throws IOException If the body could not be read or decompressed completely.
+     */
+    public HttpServerResponse(int statusCode, InputStream body, long contentLength, String contentType,
+                              String contentEncoding) throws IOException {
+        this.statusCode = statusCode;
+        this.body = body == null ? null : ResponseBodyReader.read(body, contentLength, contentEncoding);
+        this.charset = ResponseBodyReader.charsetOf(contentType);
+    }
+
+    public HttpServerResponse(int statusCode, String response) {
+        this.statusCode = statusCode;
+        this.response = response;
+        this.body = response == null ? null : response.getBytes(ResponseBodyReader.DEFAULT_CHARSET);
+        this.charset = ResponseBodyReader.DEFAULT_CHARSET;
     }
 
     public int getStatusCode() {
         return statusCode;
     }
 
+    /**
+     * Returns the body decoded with the charset declared by the server (UTF-8 by default). The
+     * body is decoded once, on first access.
+     *
+     * @return The body, or null if the response had no body.
+     */
     public String getResponse() {
+        if (response == null && body != null) {
+            response = new String(body, charset);
+        }
         return response;
     }
 
+    /**
+     * Returns the raw body, so that it can be parsed without decoding it into a String first.
+     * The returned array is not copied and must not be modified.
+     *
+     * @return The body bytes, or null if the response had no body.
+     */
+    public byte[] getResponseBytes() {
+        return body;
+    }
+
+    /**
+     * @return The {@link Charset} of the body.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Sets the time the server asks to wait before the next request, from its Retry-After header.
+     *
+     * @param retryAfter The Retry-After header, in seconds or as an HTTP date, or null if there is none.
+     * @return {@code this}
+     */
+    public HttpServerResponse setRetryAfter(String retryAfter) {
+        this.retryAfterMillis = parseRetryAfter(retryAfter, System.currentTimeMillis());
+        return this;
+    }
+
+    /**
+     * @return The time to wait from the Retry-After header, or -1 if there was none.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    static long parseRetryAfter(String retryAfter, long nowMillis) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(retryAfter) * 1000);
+        } catch (NumberFormatException e) {
+            // an HTTP date then
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(retryAfter).getTime() - nowMillis);
+        } catch (ParseException e) {
+            DebugLogger.d("Ignoring malformed Retry-After: " + retryAfter);
+            return -1;
+        }
+    }
+
 }
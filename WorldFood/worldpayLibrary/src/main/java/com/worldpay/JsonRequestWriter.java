@@ -0,0 +1,232 @@
+package com.worldpay;
+
+/**
+ * Writes JSON request bodies as UTF-8 straight into a reusable byte buffer.
+ * <p/>
+ * Each thread owns one writer, see {@link #get()}, so building a request body does not create
+ * {@link org.json.JSONObject} trees or intermediate strings. The buffer is only valid until the
+ * next request is written on the same thread.
+ */
+final class JsonRequestWriter {
+
+    private static final int INITIAL_SIZE = 512;
+    private static final int MAX_RETAINED_SIZE = 16 * 1024;
+
+    private static final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    private static final ThreadLocal<JsonRequestWriter> WRITERS = new ThreadLocal<JsonRequestWriter>() {
+        @Override
+        protected JsonRequestWriter initialValue() {
+            return new JsonRequestWriter();
+        }
+    };
+
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    private int size;
+    private boolean firstField;
+
+    JsonRequestWriter() {
+
+    }
+
+    /**
+     * Returns the writer of the current thread, emptied.
+     *
+     * @return The {@link JsonRequestWriter} of the current thread.
+     */
+    static JsonRequestWriter get() {
+        JsonRequestWriter writer = WRITERS.get();
+        writer.reset();
+        return writer;
+    }
+
+    void reset() {
+        if (buffer.length > MAX_RETAINED_SIZE) {
+            // do not keep an unusually large body alive for the lifetime of the thread
+            buffer = new byte[INITIAL_SIZE];
+        }
+        size = 0;
+        firstField = true;
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends bytes that are already valid JSON, such as a precomputed prefix. The next field is
+     * written without a leading comma.
+     */
+    JsonRequestWriter raw(byte[] json) {
+        ensureCapacity(json.length);
+        System.arraycopy(json, 0, buffer, size, json.length);
+        size += json.length;
+        firstField = true;
+        return this;
+    }
+
+    JsonRequestWriter beginObject() {
+        writeByte('{');
+        firstField = true;
+        return this;
+    }
+
+    JsonRequestWriter endObject() {
+        writeByte('}');
+        firstField = false;
+        return this;
+    }
+
+    /**
+     * Writes a string field. Like {@link org.json.JSONObject#put(String, Object)}, null values
+     * are left out.
+     */
+    JsonRequestWriter field(String name, String value) {
+        if (value != null) {
+            name(name);
+            string(value);
+        }
+        return this;
+    }
+
+    JsonRequestWriter field(String name, boolean value) {
+        name(name);
+        if (value) {
+            ascii("true");
+        } else {
+            ascii("false");
+        }
+        return this;
+    }
+
+    /**
+     * Writes a field name, the value has to follow.
+     */
+    JsonRequestWriter name(String name) {
+        if (!firstField) {
+            writeByte(',');
+        }
+        firstField = false;
+        string(name);
+        writeByte(':');
+        return this;
+    }
+
+    /**
+     * Writes a quoted, escaped and UTF-8 encoded string value.
+     */
+    JsonRequestWriter string(String value) {
+        int length = value.length();
+        // worst case is 6 bytes per escaped char, checked again for long strings
+        ensureCapacity(length * 3 + 2);
+        writeByte('"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (size + 12 > buffer.length) {
+                ensureCapacity(12 + (length - i) * 3);
+            }
+            switch (c) {
+                case '"':
+                case '\\':
+                    buffer[size++] = '\\';
+                    buffer[size++] = (byte) c;
+                    break;
+                case '\n':
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'n';
+                    break;
+                case '\r':
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'r';
+                    break;
+                case '\t':
+                    buffer[size++] = '\\';
+                    buffer[size++] = 't';
+                    break;
+                case '\b':
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'b';
+                    break;
+                case '\f':
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'f';
+                    break;
+                case '\u2028':
+                case '\u2029':
+                    // valid JSON, but not valid JavaScript
+                    unicodeEscape(c);
+                    break;
+                default:
+                    if (c < 0x20) {
+                        unicodeEscape(c);
+                    } else if (c < 0x80) {
+                        buffer[size++] = (byte) c;
+                    } else if (c < 0x800) {
+                        buffer[size++] = (byte) (0xc0 | (c >> 6));
+                        buffer[size++] = (byte) (0x80 | (c & 0x3f));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+                        buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                        buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                        buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+                    } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                        // unpaired surrogate, keep the JSON valid
+                        unicodeEscape(c);
+                    } else {
+                        buffer[size++] = (byte) (0xe0 | (c >> 12));
+                        buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                        buffer[size++] = (byte) (0x80 | (c & 0x3f));
+                    }
+            }
+        }
+        writeByte('"');
+        return this;
+    }
+
+    /**
+     * Returns the body written so far as a String, for debugging.
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, TransportRequest.UTF_8);
+    }
+
+    private void ascii(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void unicodeEscape(char c) {
+        buffer[size++] = '\\';
+        buffer[size++] = 'u';
+        buffer[size++] = HEX[(c >> 12) & 0xf];
+        buffer[size++] = HEX[(c >> 8) & 0xf];
+        buffer[size++] = HEX[(c >> 4) & 0xf];
+        buffer[size++] = HEX[c & 0xf];
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            byte[] larger = new byte[Math.max(buffer.length * 2, size + extra)];
+            System.arraycopy(buffer, 0, larger, 0, size);
+            buffer = larger;
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+package com.worldpay;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out the requests of a device, so that many devices, or many calls of one device, do not
+ * hit the rate limits of WorldPay at the same time.
+ * <p/>
+ * Every {@link CircuitBreaker.Endpoint} has a token bucket refilled at {@code permitsPerSecond}
+ * and holding up to {@code burst} permits, and at most {@code maxConcurrentCalls} attempts are in
+ * flight at once over all endpoints. An attempt waits for a permit and a free slot, for as long as
+ * the deadline of its request allows, see {@link Timeouts#getTotalMillis()}. When the wait would
+ * outlast the deadline it fails at once with a {@link DeadlineExceededException}.
+ * <p/>
+ * In adaptive mode, a 429 or 503 response halves the rate of its endpoint and holds its requests
+ * for the time of the Retry-After header, or one second without it. Each successful attempt then
+ * raises the rate again by a tenth of {@code permitsPerSecond}. The rate never drops below that tenth.
+ * <p/>
+ * Create instances with a {@link Builder}. The settings are immutable, the state is safe to use
+ * from any thread and shared by the configurations built from the same
+ * {@link WorldPayConfig.Builder#setRateLimiter(RateLimiter)}.
+ */
+public final class RateLimiter {
+
+    /**
+     * Hold of a throttled endpoint whose response had no Retry-After header.
+     */
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+    private static final double ADAPTIVE_STEP = 0.1;
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int maxConcurrentCalls;
+    private final boolean adaptive;
+
+    private final Map<CircuitBreaker.Endpoint, Bucket> buckets = new EnumMap<>(CircuitBreaker.Endpoint.class);
+
+    // guarded by this
+    private int inFlight;
+    private int waiting;
+    private long waits;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    private long throttledResponses;
+
+    private RateLimiter(Builder builder) {
+        this.permitsPerSecond = builder.permitsPerSecond;
+        this.burst = builder.burst;
+        this.maxConcurrentCalls = builder.maxConcurrentCalls;
+        this.adaptive = builder.adaptive;
+        long now = System.nanoTime();
+        for (CircuitBreaker.Endpoint endpoint : CircuitBreaker.Endpoint.values()) {
+            buckets.put(endpoint, new Bucket(now));
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @return The number of attempts waiting for a permit or a free slot.
+     */
+    public synchronized int getQueueDepth() {
+        return waiting;
+    }
+
+    /**
+     * @return The number of attempts in flight.
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * @return The average time attempts waited before being sent.
+     */
+    public synchronized long getAverageWaitMillis() {
+        return waits == 0 ? 0 : totalWaitMillis / waits;
+    }
+
+    /**
+     * @return The longest time an attempt waited before being sent.
+     */
+    public synchronized long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * @return The number of 429 and 503 responses seen in adaptive mode.
+     */
+    public synchronized long getThrottledCount() {
+        return throttledResponses;
+    }
+
+    /**
+     * @param endpoint The {@link CircuitBreaker.Endpoint}.
+     * @return The current rate of the endpoint, lower than {@code permitsPerSecond} after
+     * throttled responses in adaptive mode.
+     */
+    public synchronized double getCurrentRate(CircuitBreaker.Endpoint endpoint) {
+        return buckets.get(endpoint).rate;
+    }
+
+    /**
+     * Waits until an attempt of {@code request} can be sent to {@code endpoint}. Every permitted
+     * attempt must be followed by {@link #release(CircuitBreaker.Endpoint, HttpServerResponse)}.
+     *
+     * @throws DeadlineExceededException If the wait would outlast the deadline of the request.
+     * @throws InterruptedIOException     If the request was aborted while waiting.
+     */
+    void acquire(CircuitBreaker.Endpoint endpoint, final TransportRequest request) throws IOException {
+        // wakes the wait below when the request is aborted
+        request.setAbortAction(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (RateLimiter.this) {
+                    RateLimiter.this.notifyAll();
+                }
+            }
+        });
+        try {
+            acquireSlot(buckets.get(endpoint), request);
+        } finally {
+            request.setAbortAction(null);
+        }
+    }
+
+    private synchronized void acquireSlot(Bucket bucket, TransportRequest request) throws IOException {
+        final long start = System.nanoTime();
+        waiting++;
+        try {
+            while (true) {
+                if (request.isAborted()) {
+                    throw new InterruptedIOException("Request aborted");
+                }
+                long now = System.nanoTime();
+                long permitDelay = bucket.getDelayMillis(now);
+                long remaining = request.getRemainingMillis();
+                if (permitDelay == 0 && inFlight < maxConcurrentCalls) {
+                    bucket.take();
+                    inFlight++;
+                    recordWait(TimeUnit.NANOSECONDS.toMillis(now - start));
+                    return;
+                }
+                if (permitDelay >= remaining || remaining == 0) {
+                    throw new DeadlineExceededException("Rate limited beyond the deadline");
+                }
+                // woken by release() when a slot frees up
+                long wait = permitDelay > 0 ? permitDelay : remaining;
+                try {
+                    wait(Math.min(wait, Integer.MAX_VALUE));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while rate limited");
+                }
+            }
+        } finally {
+            waiting--;
+        }
+    }
+
+    /**
+     * Frees the slot of an attempt and adapts the rate of its endpoint to the response.
+     *
+     * @param response The response, or null if the attempt failed without one.
+     */
+    synchronized void release(CircuitBreaker.Endpoint endpoint, HttpServerResponse response) {
+        inFlight--;
+        if (adaptive && response != null) {
+            Bucket bucket = buckets.get(endpoint);
+            int statusCode = response.getStatusCode();
+            if (statusCode == 429 || statusCode == 503) {
+                throttledResponses++;
+                long retryAfter = response.getRetryAfterMillis();
+                bucket.throttle(retryAfter >= 0 ? retryAfter : DEFAULT_RETRY_AFTER_MILLIS);
+                DebugLogger.d("Throttled by WorldPay, rate lowered to " + bucket.rate + "/s");
+            } else if (statusCode < 500) {
+                bucket.recover();
+            }
+        }
+        notifyAll();
+    }
+
+    private void recordWait(long waitMillis) {
+        waits++;
+        totalWaitMillis += waitMillis;
+        maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+    }
+
+    /**
+     * Clears the metrics and restores the configured rate of every endpoint.
+     */
+    public synchronized void reset() {
+        waits = 0;
+        totalWaitMillis = 0;
+        maxWaitMillis = 0;
+        throttledResponses = 0;
+        long now = System.nanoTime();
+        for (Bucket bucket : buckets.values()) {
+            bucket.reset(now);
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RateLimiter [permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + ", maxConcurrentCalls="
+                + maxConcurrentCalls + ", adaptive=" + adaptive + ", queueDepth=" + waiting + ", inFlight="
+                + inFlight + "]";
+    }
+
+    /**
+     * Token bucket of one endpoint, guarded by the lock of the limiter.
+     */
+    private final class Bucket {
+        double rate;
+        double permits;
+        long refilledNanos;
+        long holdUntilNanos;
+
+        Bucket(long now) {
+            reset(now);
+        }
+
+        void reset(long now) {
+            rate = permitsPerSecond;
+            permits = burst;
+            refilledNanos = now;
+            holdUntilNanos = now;
+        }
+
+        /**
+         * @return The time until a permit is available, 0 if there is one.
+         */
+        long getDelayMillis(long now) {
+            permits = Math.min(burst, permits + (now - refilledNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilledNanos = now;
+            if (now - holdUntilNanos < 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(holdUntilNanos - now));
+            }
+            if (permits >= 1) {
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - permits) * 1000 / rate));
+        }
+
+        void take() {
+            permits -= 1;
+        }
+
+        void throttle(long retryAfterMillis) {
+            // never below a tenth of the configured rate, so that the endpoint can recover
+            rate = Math.max(permitsPerSecond * ADAPTIVE_STEP, rate / 2);
+            permits = Math.min(permits, 0);
+            holdUntilNanos = Math.max(holdUntilNanos, System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+        }
+
+        void recover() {
+            rate = Math.min(permitsPerSecond, rate + permitsPerSecond * ADAPTIVE_STEP);
+        }
+    }
+
+    /**
+     * Builds {@link RateLimiter} instances.
+     */
+    public static final class Builder {
+
+        private double permitsPerSecond = 10;
+        private int burst = 10;
+        private int maxConcurrentCalls = HttpClientUtility.MAX_CONNECTIONS_PER_ROUTE;
+        private boolean adaptive = true;
+
+        public Builder() {
+        }
+
+        /**
+         * @param permitsPerSecond The sustained rate of attempts of each endpoint, more than 0.
+         * @return {@code this}
+         */
+        public Builder setPermitsPerSecond(double permitsPerSecond) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("Rate must be more than 0.");
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param burst The number of attempts of each endpoint that can be sent at once after a
+         *              quiet period, at least 1.
+         * @return {@code this}
+         */
+        public Builder setBurst(int burst) {
+            if (burst < 1) {
+                throw new IllegalArgumentException("Burst must be at least 1.");
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentCalls The number of attempts in flight at once, at least 1.
+         * @return {@code this}
+         */
+        public Builder setMaxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls < 1) {
+                throw new IllegalArgumentException("At least one call is needed.");
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        /**
+         * @param adaptive If 429 and 503 responses lower the rate and hold the endpoint.
+         * @return {@code this}
+         */
+        public Builder setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+
+}
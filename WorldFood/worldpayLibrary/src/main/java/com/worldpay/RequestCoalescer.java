@@ -0,0 +1,180 @@
+package com.worldpay;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs concurrent identical requests once, and hands the response to every caller.
+ * <p/>
+ * Requests are identical when they have the same method, URL and body: for a token request the
+ * body holds the client key, the reusable flag and the card details, for a CVC update the URL
+ * holds the token and the body the CVC. Requests are keyed by a SHA-256 digest, so no card details
+ * are kept in the map.
+ * <p/>
+ * Only requests in flight at the same time are coalesced, a request made after the previous one
+ * completed is sent again.
+ */
+final class RequestCoalescer {
+
+    /**
+     * The work shared by identical requests.
+     */
+    interface Call {
+        HttpServerResponse execute(TransportRequest request) throws IOException;
+
+        /**
+         * Called when the request joins an identical request in flight, before waiting for it.
+         */
+        void onJoin();
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+
+    /**
+     * Executes {@code request} with {@code call}, or waits for the identical request in flight.
+     * <p/>
+     * If the request in flight is aborted by its caller, the waiting requests do not fail with
+     * it, one of them is sent instead.
+     *
+     * @throws InterruptedIOException If {@code request} was aborted while waiting.
+     */
+    HttpServerResponse execute(final TransportRequest request, final Call call) throws IOException {
+        final String key = keyOf(request);
+        while (true) {
+            final InFlight flight;
+            final boolean leader;
+            synchronized (this) {
+                InFlight existing = inFlight.get(key);
+                leader = existing == null;
+                flight = leader ? new InFlight() : existing;
+                if (leader) {
+                    inFlight.put(key, flight);
+                }
+            }
+
+            if (leader) {
+                return lead(key, flight, request, call);
+            }
+            DebugLogger.d("Joining identical request in flight");
+            call.onJoin();
+            if (flight.await(request)) {
+                return flight.getResponse();
+            }
+            // the caller of the request in flight gave up on it, try again
+        }
+    }
+
+    private HttpServerResponse lead(String key, InFlight flight, TransportRequest request, Call call)
+            throws IOException {
+        HttpServerResponse response = null;
+        Throwable failure = null;
+        try {
+            response = call.execute(request);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(key);
+            }
+            // an aborted or crashed request has no outcome to share
+            flight.complete(response, failure, request.isAborted() || (response == null && failure == null));
+        }
+    }
+
+    static String keyOf(TransportRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().name().getBytes(TransportRequest.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(request.getUrl().getBytes(TransportRequest.UTF_8));
+            digest.update((byte) '\n');
+            if (request.getBody() != null) {
+                digest.update(request.getBody(), 0, request.getBodyLength());
+            }
+            byte[] hash = digest.digest();
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available on every Android version
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The outcome of a request in flight, shared with the identical requests waiting for it.
+     */
+    private static final class InFlight {
+        private boolean done;
+        private boolean abandoned;
+        private HttpServerResponse response;
+        private Throwable failure;
+
+        synchronized void complete(HttpServerResponse response, Throwable failure, boolean abandoned) {
+            this.response = response;
+            this.failure = failure;
+            this.abandoned = abandoned;
+            this.done = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits for the outcome, or until {@code request} is aborted.
+         *
+         * @return false if the request in flight was abandoned and {@code request} must be sent again.
+         */
+        boolean await(TransportRequest request) throws InterruptedIOException {
+            request.setAbortAction(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (InFlight.this) {
+                        InFlight.this.notifyAll();
+                    }
+                }
+            });
+            try {
+                synchronized (this) {
+                    while (!done) {
+                        if (request.isAborted()) {
+                            throw new InterruptedIOException("Request aborted");
+                        }
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while waiting for identical request");
+                        }
+                    }
+                    return !abandoned;
+                }
+            } finally {
+                request.setAbortAction(null);
+            }
+        }
+
+        /**
+         * @return The shared response, or throws the shared failure.
+         */
+        synchronized HttpServerResponse getResponse() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            return response;
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.worldpay;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads HTTP response bodies into byte arrays.
+ * <p/>
+ * When the Content-Length is known the body is read straight into an array of the exact size.
+ * Otherwise it is read into a pooled buffer and copied once into the final array, so that no
+ * intermediate strings or growing buffers are created per response.
+ * <p/>
+ * Bodies with a gzip or deflate Content-Encoding are decompressed while they are read.
+ */
+final class ResponseBodyReader {
+
+    /**
+     * Charset used when the response does not declare one. JSON defaults to UTF-8.
+     */
+    static final Charset DEFAULT_CHARSET = TransportRequest.UTF_8;
+
+    /**
+     * Accept-Encoding header value for the encodings {@link #read(InputStream, long, String)}
+     * can decode.
+     */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final int MAX_CONTENT_LENGTH = 16 * 1024 * 1024;
+
+    private static final byte[][] pool = new byte[MAX_POOLED_BUFFERS][];
+    private static int pooled = 0;
+
+    private ResponseBodyReader() {
+
+    }
+
+    /**
+     * Reads the whole body and closes the stream.
+     *
+     * @param in            The body stream.
+     * @param contentLength The declared Content-Length, or a negative value if unknown.
+     * @return The body bytes.
+     * @throws IOException If the stream fails or ends before Content-Length bytes were read.
+     */
+    static byte[] read(InputStream in, long contentLength) throws IOException {
+        return read(in, contentLength, null);
+    }
+
+    /**
+     * Reads the whole body, decompressing it, and closes the stream.
+     *
+     * @param in              The body stream.
+     * @param contentLength   The declared Content-Length, or a negative value if unknown.
+     * @param contentEncoding The Content-Encoding header value, can be null.
+     * @return The decompressed body bytes.
+     * @throws IOException If the stream fails, ends before Content-Length bytes were read or uses
+     *                     an unsupported encoding.
+     */
+    static byte[] read(InputStream in, long contentLength, String contentEncoding) throws IOException {
+        try {
+            if (isIdentity(contentEncoding)) {
+                if (contentLength >= 0 && contentLength <= MAX_CONTENT_LENGTH) {
+                    return readFully(in, (int) contentLength);
+                }
+                return readToEnd(in);
+            }
+            if (contentLength == 0) {
+                return EMPTY;
+            }
+            // Content-Length is the compressed size
+            InputStream decoded = decode(in, contentEncoding.trim().toLowerCase(Locale.US));
+            if (decoded == null) {
+                return EMPTY;
+            }
+            in = decoded;
+            return readToEnd(decoded);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                DebugLogger.e(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the charset declared in a Content-Type header value, or {@link #DEFAULT_CHARSET}.
+     *
+     * @param contentType The Content-Type header value, can be null.
+     * @return The {@link Charset} of the body.
+     */
+    static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            int start = contentType.toLowerCase(Locale.US).indexOf("charset=");
+            if (start >= 0) {
+                start += "charset=".length();
+                int end = contentType.indexOf(';', start);
+                String name = (end < 0 ? contentType.substring(start) : contentType.substring(start, end))
+                        .trim().replace("\"", "");
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    DebugLogger.e(e);
+                }
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
+
+    private static boolean isIdentity(String contentEncoding) {
+        return contentEncoding == null || contentEncoding.length() == 0
+                || "identity".equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    /**
+     * @return The decompressing stream, or null if the body is empty.
+     */
+    private static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        int first = pushback.read();
+        if (first < 0) {
+            return null;
+        }
+        int second = pushback.read();
+        if (second >= 0) {
+            pushback.unread(second);
+        }
+        pushback.unread(first);
+
+        if ("gzip".equals(contentEncoding) || "x-gzip".equals(contentEncoding)) {
+            return new GZIPInputStream(pushback, BUFFER_SIZE);
+        }
+        if ("deflate".equals(contentEncoding)) {
+            // servers send either zlib wrapped or raw deflate data
+            boolean zlib = (first & 0x0f) == 8 && second >= 0 && ((first << 8) | second) % 31 == 0;
+            final Inflater inflater = new Inflater(!zlib);
+            return new InflaterInputStream(pushback, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inflater.end();
+                }
+            };
+        }
+        throw new IOException("Unsupported Content-Encoding " + contentEncoding);
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] body = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(body, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Expected " + length + " bytes but received " + offset);
+            }
+            offset += read;
+        }
+        return body;
+    }
+
+    private static byte[] readToEnd(InputStream in) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            int count = 0;
+            int read;
+            while ((read = in.read(buffer, count, buffer.length - count)) >= 0) {
+                count += read;
+                if (count == buffer.length) {
+                    if (count >= MAX_CONTENT_LENGTH) {
+                        throw new IOException("Response body exceeds " + MAX_CONTENT_LENGTH + " bytes");
+                    }
+                    byte[] larger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, larger, 0, count);
+                    release(buffer);
+                    buffer = larger;
+                }
+            }
+            if (count == 0) {
+                return EMPTY;
+            }
+            byte[] body = new byte[count];
+            System.arraycopy(buffer, 0, body, 0, count);
+            return body;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private static synchronized byte[] acquire() {
+        if (pooled > 0) {
+            byte[] buffer = pool[--pooled];
+            pool[pooled] = null;
+            return buffer;
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    private static synchronized void release(byte[] buffer) {
+        // grown buffers are left to the garbage collector
+        if (buffer.length == BUFFER_SIZE && pooled < MAX_POOLED_BUFFERS) {
+            for (int i = 0; i < pooled; i++) {
+                if (pool[i] == buffer) {
+                    return;
+                }
+            }
+            pool[pooled++] = buffer;
+        }
+    }
+
+}
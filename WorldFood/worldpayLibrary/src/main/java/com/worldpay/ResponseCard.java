@@ -1,7 +1,6 @@
 package com.worldpay;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.Serializable;
 
@@ -12,6 +11,12 @@ public class ResponseCard implements Serializable {
 
     private static final long serialVersionUID = -8273784902723750008L;
 
+    private static final ByteJsonReader.Names NAMES = ByteJsonReader.Names.of(
+            "token", "reusable", "paymentMethod");
+    private static final ByteJsonReader.Names PAYMENT_METHOD_NAMES = ByteJsonReader.Names.of(
+            "type", "name", "expiryMonth", "expiryYear", "cardType", "maskedCardNumber",
+            "cardSchemeType", "cardSchemeName", "cardIssuer", "countryCode", "cardClass", "prepaid");
+
     private String token;
     private boolean reusable;
     private String type;
@@ -59,23 +64,95 @@ public class ResponseCard implements Serializable {
      * @throws JSONException
      */
     protected void parseJsonString(String jsonString) throws JSONException {
-        JSONObject mainObject = new JSONObject(jsonString);
-        token = mainObject.optString("token");
-        reusable = mainObject.optBoolean("reusable");
-
-        JSONObject paymentMethodJSONObject = mainObject.optJSONObject("paymentMethod");
-        type = paymentMethodJSONObject.optString("type");
-        name = paymentMethodJSONObject.optString("name");
-        expiryMonth = paymentMethodJSONObject.optString("expiryMonth");
-        expiryYear = paymentMethodJSONObject.optString("expiryYear");
-        cardType = paymentMethodJSONObject.optString("cardType");
-        maskedCardNumber = paymentMethodJSONObject.optString("maskedCardNumber");
-        cardSchemeType = paymentMethodJSONObject.optString("cardSchemeType");
-        cardSchemeName = paymentMethodJSONObject.optString("cardSchemeName");
-        cardIssuer = paymentMethodJSONObject.optString("cardIssuer");
-        countryCode = paymentMethodJSONObject.optString("countryCode");
-        cardClass = paymentMethodJSONObject.optString("cardClass");
-        prepaid = paymentMethodJSONObject.optString("prepaid");
+        parseJson(new ByteJsonReader(jsonString.getBytes(TransportRequest.UTF_8)));
+    }
+
+    /**
+     * Fills this object in one pass over the JSON response, see {@link #parseJsonString(String)}.
+     * Fields missing from the response are set to an empty string.
+     *
+     * @param reader A {@link ByteJsonReader} positioned at the start of the response.
+     * @throws JSONException
+     */
+    protected void parseJson(ByteJsonReader reader) throws JSONException {
+        token = "";
+        reusable = false;
+        type = name = expiryMonth = expiryYear = cardType = maskedCardNumber = "";
+        cardSchemeType = cardSchemeName = cardIssuer = countryCode = cardClass = prepaid = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(NAMES)) {
+                case 0:
+                    token = optString(reader);
+                    break;
+                case 1:
+                    reusable = reader.peek() != ByteJsonReader.Token.NULL && reader.nextBoolean();
+                    break;
+                case 2:
+                    if (reader.peek() == ByteJsonReader.Token.BEGIN_OBJECT) {
+                        parsePaymentMethod(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void parsePaymentMethod(ByteJsonReader reader) throws JSONException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(PAYMENT_METHOD_NAMES)) {
+                case 0:
+                    type = optString(reader);
+                    break;
+                case 1:
+                    name = optString(reader);
+                    break;
+                case 2:
+                    expiryMonth = optString(reader);
+                    break;
+                case 3:
+                    expiryYear = optString(reader);
+                    break;
+                case 4:
+                    cardType = optString(reader);
+                    break;
+                case 5:
+                    maskedCardNumber = optString(reader);
+                    break;
+                case 6:
+                    cardSchemeType = optString(reader);
+                    break;
+                case 7:
+                    cardSchemeName = optString(reader);
+                    break;
+                case 8:
+                    cardIssuer = optString(reader);
+                    break;
+                case 9:
+                    countryCode = optString(reader);
+                    break;
+                case 10:
+                    cardClass = optString(reader);
+                    break;
+                case 11:
+                    prepaid = optString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String optString(ByteJsonReader reader) throws JSONException {
+        String value = reader.nextString();
+        return value == null ? "" : value;
     }
 
     public String getToken() {
@@ -1,7 +1,6 @@
 package com.worldpay;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.Serializable;
 
@@ -11,6 +10,10 @@ import java.io.Serializable;
 public class ResponseError implements Serializable {
     private static final long serialVersionUID = 6834532264115534663L;
 
+    private static final ByteJsonReader.Names NAMES = ByteJsonReader.Names.of(
+            "httpStatusCode", "customCode", "message", "description", "errorHelpUrl",
+            "originalRequest");
+
     private String message;
 
     private int httpStatusCode;
@@ -44,13 +47,52 @@ public class ResponseError implements Serializable {
      * @throws JSONException
      */
     public void parseJsonString(String jsonString) throws JSONException {
-        JSONObject mainObject = new JSONObject(jsonString);
-        httpStatusCode = mainObject.optInt("httpStatusCode");
-        customCode = mainObject.optString("customCode");
-        message = mainObject.optString("message");
-        description = mainObject.optString("description");
-        errorHelpUrl = mainObject.optString("errorHelpUrl");
-        originalRequest = mainObject.optString("originalRequest");
+        parseJson(new ByteJsonReader(jsonString.getBytes(TransportRequest.UTF_8)));
+    }
+
+    /**
+     * Fills this object in one pass over the JSON error response, see
+     * {@link #parseJsonString(String)}.
+     *
+     * @param reader A {@link ByteJsonReader} positioned at the start of the response, for example
+     *               {@link ByteJsonReader#forResponse(HttpServerResponse)}.
+     * @throws JSONException
+     */
+    public void parseJson(ByteJsonReader reader) throws JSONException {
+        httpStatusCode = 0;
+        customCode = message = description = errorHelpUrl = originalRequest = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(NAMES)) {
+                case 0:
+                    httpStatusCode = reader.peek() == ByteJsonReader.Token.NULL ? 0 : reader.nextInt();
+                    break;
+                case 1:
+                    customCode = optString(reader);
+                    break;
+                case 2:
+                    message = optString(reader);
+                    break;
+                case 3:
+                    description = optString(reader);
+                    break;
+                case 4:
+                    errorHelpUrl = optString(reader);
+                    break;
+                case 5:
+                    originalRequest = optString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String optString(ByteJsonReader reader) throws JSONException {
+        String value = reader.nextString();
+        return value == null ? "" : value;
     }
 
     public String getMessage() {
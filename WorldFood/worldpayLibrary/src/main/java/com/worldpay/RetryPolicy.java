@@ -0,0 +1,227 @@
+package com.worldpay;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Decides if and when a failed token request is sent again.
+ * <p/>
+ * Attempts are spaced by an exponential backoff, {@code baseDelay * 2^(attempt - 1)} capped at
+ * {@code maxDelay}, of which the {@code jitter} fraction is randomized so that clients failing at
+ * the same time do not retry at the same time.
+ * <p/>
+ * Retrying token creation is safe because the library sends an idempotency key with it, see
+ * {@link WorldPay#setRetryPolicy(RetryPolicy)}.
+ * <p/>
+ * Instances are immutable, create them with a {@link Builder}:
+ * <pre>
+ * RetryPolicy policy = new RetryPolicy.Builder()
+ *         .setMaxAttempts(4)
+ *         .setBaseDelay(500)
+ *         .build();
+ * </pre>
+ */
+public final class RetryPolicy {
+
+    /**
+     * Three attempts, 250 ms base delay capped at 2 s with 50% jitter, retrying on connection
+     * failures and on 408, 429, 500, 502, 503 and 504 responses.
+     */
+    public static final RetryPolicy DEFAULT = new Builder().build();
+
+    /**
+     * Never retries.
+     */
+    public static final RetryPolicy NONE = new Builder().setMaxAttempts(1).build();
+
+    private static final Random random = new Random();
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final double jitter;
+    private final Set<Integer> retryOnStatusCodes;
+    private final List<Class<? extends IOException>> retryOnExceptions;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.jitter = builder.jitter;
+        this.retryOnStatusCodes = Collections.unmodifiableSet(new HashSet<>(builder.retryOnStatusCodes));
+        this.retryOnExceptions = Collections.unmodifiableList(new ArrayList<>(builder.retryOnExceptions));
+    }
+
+    /**
+     * @return The number of attempts including the first one.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public Set<Integer> getRetryOnStatusCodes() {
+        return retryOnStatusCodes;
+    }
+
+    public List<Class<? extends IOException>> getRetryOnExceptions() {
+        return retryOnExceptions;
+    }
+
+    /**
+     * @param statusCode The HTTP status code of a response.
+     * @return true if a response with this status code is retried.
+     */
+    public boolean isRetryable(int statusCode) {
+        return retryOnStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * @param e The failure of an attempt.
+     * @return true if an attempt failing with this exception is retried.
+     */
+    public boolean isRetryable(IOException e) {
+        for (Class<? extends IOException> type : retryOnExceptions) {
+            if (type.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the time to wait after the failed {@code attempt}.
+     *
+     * @param attempt The attempt that failed, starting at 1.
+     * @return The delay in milliseconds.
+     */
+    public long getDelay(int attempt) {
+        long delay = baseDelay << Math.min(attempt - 1, 30);
+        if (delay > maxDelay || delay < 0) {
+            delay = maxDelay;
+        }
+        double randomized = delay * jitter;
+        return (long) (delay - randomized + random.nextDouble() * randomized);
+    }
+
+    /**
+     * Builds immutable {@link RetryPolicy} instances.
+     */
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private long baseDelay = 250;
+        private long maxDelay = 2 * 1000;
+        private double jitter = 0.5;
+        private final Set<Integer> retryOnStatusCodes = new HashSet<>(Arrays.asList(408, 429, 500, 502, 503, 504));
+        private final List<Class<? extends IOException>> retryOnExceptions = new ArrayList<>();
+
+        public Builder() {
+            // connect failures, resets, timeouts and failed lookups
+            retryOnExceptions.add(SocketException.class);
+            retryOnExceptions.add(InterruptedIOException.class);
+            retryOnExceptions.add(UnknownHostException.class);
+            retryOnExceptions.add(EOFException.class);
+        }
+
+        /**
+         * @param maxAttempts The number of attempts including the first one, at least 1.
+         * @return {@code this}
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("At least one attempt is needed.");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param baseDelay The delay after the first attempt in milliseconds.
+         * @return {@code this}
+         */
+        public Builder setBaseDelay(long baseDelay) {
+            if (baseDelay < 0) {
+                throw new IllegalArgumentException("Delay can not be negative.");
+            }
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * @param maxDelay The longest delay between attempts in milliseconds.
+         * @return {@code this}
+         */
+        public Builder setMaxDelay(long maxDelay) {
+            if (maxDelay < 0) {
+                throw new IllegalArgumentException("Delay can not be negative.");
+            }
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * @param jitter The randomized fraction of each delay, from 0 (none) to 1 (full jitter).
+         * @return {@code this}
+         */
+        public Builder setJitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("Jitter must be between 0 and 1.");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Replaces the HTTP status codes that are retried.
+         *
+         * @param statusCodes The status codes.
+         * @return {@code this}
+         */
+        public Builder setRetryOnStatusCodes(int... statusCodes) {
+            retryOnStatusCodes.clear();
+            for (int statusCode : statusCodes) {
+                retryOnStatusCodes.add(statusCode);
+            }
+            return this;
+        }
+
+        /**
+         * Replaces the exceptions that are retried, subclasses included.
+         *
+         * @param exceptions The exception types.
+         * @return {@code this}
+         */
+        public Builder setRetryOnExceptions(List<Class<? extends IOException>> exceptions) {
+            retryOnExceptions.clear();
+            retryOnExceptions.addAll(exceptions);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+}
@@ -60,6 +60,18 @@ public class ReusableToken implements Serializable {
         return jsonObject;
     }
 
+    /**
+     * Writes the same fields as {@link #getAsJSONObject()} to {@code writer}.
+     *
+     * @param writer The {@link JsonRequestWriter} of the request.
+     */
+    void writeJson(JsonRequestWriter writer) {
+        writer.beginObject()
+                .field("clientKey", clientKey)
+                .field("cvc", cvc)
+                .endObject();
+    }
+
     public boolean validateCVC() {
         return Card.validateCVC(cvc);
     }
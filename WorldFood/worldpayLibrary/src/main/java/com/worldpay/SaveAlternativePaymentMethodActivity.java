@@ -11,12 +11,16 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.TypedValue;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -178,10 +182,38 @@ public class SaveAlternativePaymentMethodActivity extends Activity implements On
     private EditText fNameText;
     private EditText lNameText;
     private EditText apmTypeText;
-    private EditText countryCodeType;
+    private AutoCompleteTextView countryCodeType;
 
     private int theme;
 
+    // whether the country code field shows the error icon
+    private boolean countryCodeInvalid;
+
+    /**
+     * TextWatcher for the country code, showing the error icon as soon as two letters are not a
+     * country.
+     */
+    private final TextWatcher countryCodeTextWatcher = new TextWatcher() {
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            boolean invalid = s.length() == 2 && !CountryCodes.isValidAlpha2(s);
+            if (invalid != countryCodeInvalid) {
+                countryCodeInvalid = invalid;
+                Drawable errorIcon = invalid ? getResources().getDrawable(R.drawable.rederror) : null;
+                countryCodeType.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
+            }
+        }
+    };
+
     protected static Bitmap colorizeBitmap(final Resources res, final int bitmapResource,
                                            final int desiredColor) {
         int red = Color.red(desiredColor);
@@ -241,7 +273,10 @@ public class SaveAlternativePaymentMethodActivity extends Activity implements On
         fNameText = (EditText) findViewById(R.id.firstNameEditText);
         lNameText = (EditText) findViewById(R.id.lastNameEditText);
         apmTypeText = (EditText) findViewById(R.id.apmEditText);
-        countryCodeType = (EditText) findViewById(R.id.countryCodeEditText);
+        countryCodeType = (AutoCompleteTextView) findViewById(R.id.countryCodeEditText);
+        countryCodeType.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_dropdown_item_1line,
+                CountryCodes.getAlpha2Codes()));
+        countryCodeType.addTextChangedListener(countryCodeTextWatcher);
 
         final ImageView secureButton = (ImageView) findViewById(R.id.secureButton);
 
@@ -284,7 +319,7 @@ public class SaveAlternativePaymentMethodActivity extends Activity implements On
 
         if (validationError.hasErrors()) {
             if (validationError.hasError(ERROR_NAME)) {
-                Toast.makeText(getApplicationContext(), getDescription(ERROR_APM_NAME), LENGTH_SHORT).show();
+                Toast.makeText(getApplicationContext(), getDescription(ERROR_NAME), LENGTH_SHORT).show();
 
                 fNameText.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
                 lNameText.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
@@ -298,6 +333,7 @@ public class SaveAlternativePaymentMethodActivity extends Activity implements On
                 Toast.makeText(getApplicationContext(), getDescription(ERROR_SHOPPER_COUNTRY_CODE), LENGTH_SHORT).show();
 
                 countryCodeType.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
+                countryCodeInvalid = true;
             }
         } else {
             final AsyncTask<Void, Void, HttpServerResponse> createTokenAsyncTask = worldPay
@@ -382,6 +418,7 @@ public class SaveAlternativePaymentMethodActivity extends Activity implements On
         lNameText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
         apmTypeText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
         countryCodeType.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
+        countryCodeInvalid = false;
 
         final String name = fNameText.getText().toString() + " " + lNameText.getText().toString();
         final String apmType = apmTypeText.getText().toString();
@@ -14,6 +14,7 @@ import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
@@ -28,8 +29,6 @@ import android.widget.ImageView;
 import android.widget.Toast;
 
 import java.io.Serializable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * An activity that shows a dialog to add card details and creates a
@@ -180,34 +179,6 @@ public class SaveCardActivity extends Activity implements OnClickListener {
      */
     protected final static int THEME_LIGHT = Color.parseColor("#ff33b5e5");
 
-    /**
-     * Credit card patterns
-     */
-    private static final String PATTERN_MAESTRO_CARDTYPE = "^(5018|5020|5038|5612|5893|6304|6759|6761|6762|6763|0604|6390|6799)\\d+$";
-
-    private static final String PATTERN_VISA_CARDTYPE = "^4[0-9]{12}(?:[0-9]{3})?$";
-
-    private static final String PATTERN_MASTERCARD_CARDTYPE = "^5[1-5][0-9]{14}$";
-
-    private static final String PATTERN_AMEX_CARDTYPE = "^3[47][0-9]{13}$";
-
-    private static final String MAESTRO = "maestro";
-
-    private static final String AMEX = "amex";
-
-    private static final String VISA = "visa";
-
-    private static final String MASTERCARD = "mastercard";
-
-    // key value pairs of pattern and card names
-    private final static String[][] CREDITCARD_PATTERNS = {
-            {PATTERN_MAESTRO_CARDTYPE, MAESTRO},
-            {PATTERN_VISA_CARDTYPE, VISA}, //
-            {PATTERN_MASTERCARD_CARDTYPE, MASTERCARD}, //
-            {PATTERN_AMEX_CARDTYPE, AMEX}, //
-
-    };
-
     private String fName;
 
     private String lName;
@@ -234,6 +205,15 @@ public class SaveCardActivity extends Activity implements OnClickListener {
 
     // save the theme
     private int theme;
+
+    // icon shown in the card number field, 0 for none
+    private int cardIconId;
+
+    // digits, checksum and scheme of the card number field
+    private final CardNumberState cardNumberState = new CardNumberState();
+
+    // whether the expiry field shows the error icon
+    private boolean expiryInvalid;
     private TextWatcher expiryTextWatcher = new TextWatcher() {
 
         @Override
@@ -241,7 +221,7 @@ public class SaveCardActivity extends Activity implements OnClickListener {
                                   int count) {
             int l = s.length();
 
-            if (l >= 2 && !s.toString().contains("/") && start != l) {
+            if (l >= 2 && TextUtils.indexOf(s, '/') < 0 && start != l) {
                 if (l == 2) {
                     expiryText.setText(s + "/");
                 } else {
@@ -249,6 +229,18 @@ public class SaveCardActivity extends Activity implements OnClickListener {
                             + s.subSequence(2, l));
                 }
                 expiryText.setSelection(l + 1); // go to the end
+                // setText() called this watcher again with the new text
+                return;
+            }
+
+            // a wrong month shows at once, an expired date once the year is complete
+            long reason = ExpiryValidator.DEFAULT.check(s);
+            boolean invalid = reason == ValidationResult.EXPIRY_BAD_MONTH
+                    || (l == 7 && reason != 0);
+            if (invalid != expiryInvalid) {
+                expiryInvalid = invalid;
+                Drawable errorIcon = invalid ? getResources().getDrawable(R.drawable.rederror) : null;
+                expiryText.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
             }
         }
 
@@ -271,19 +263,20 @@ public class SaveCardActivity extends Activity implements OnClickListener {
         @Override
         public void onTextChanged(CharSequence s, int start, int before,
                                   int count) {
-            String numberString = cNumberText.getText().toString();
+            cardNumberState.onTextChanged(s, start, before, count);
 
-            int length = numberString.length();
+            int length = s.length();
 
-            if ((length > 1 && length % 5 == 0) && start != length && !numberString.endsWith(" ")) {
+            if ((length > 1 && length % 5 == 0) && start != length && s.charAt(length - 1) != ' ') {
+                String numberString = s.toString();
 
                 cNumberText.setText(numberString.substring(0, length - 1) + " "
                         + numberString.subSequence(length - 1, length));
                 cNumberText.setSelection(length + 1);
+                // setText() called this watcher again with the new text
+                return;
             }
-            if (length > 12) {
-                findCardType(numberString.replaceAll("\\s", ""));
-            }
+            findCardType();
         }
 
         @Override
@@ -335,7 +328,8 @@ public class SaveCardActivity extends Activity implements OnClickListener {
                 .reuseTokenAsyncTask(activity, reusableToken, worldPayResponceReusable);
 
         if (reuseTokenAsyncTask != null) {
-            reuseTokenAsyncTask.execute();
+            // in parallel, so that a repeated request joins the one in flight instead of queuing behind it
+            reuseTokenAsyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
         }
     }
 
@@ -439,6 +433,8 @@ public class SaveCardActivity extends Activity implements OnClickListener {
         cNumberText.setNextFocusDownId(R.id.expiryEditText);
         expiryText.setNextFocusDownId(R.id.cvcEditText);
 
+        // connect while the card details are typed
+        WorldPay.getInstance().prewarm(this);
     }
 
     @Override
@@ -467,35 +463,33 @@ public class SaveCardActivity extends Activity implements OnClickListener {
     }
 
     /**
-     * Checks the type of the card and sets the right icon.
+     * Checks the type of the card and sets the right icon, or the error icon as soon as the
+     * number can not be valid any more.
      */
-    private void findCardType(String cardNumber) {
-        boolean found = false;
-        for (int i = 0; i < CREDITCARD_PATTERNS.length; i++) {
-            String pattern = CREDITCARD_PATTERNS[i][0];
-            Pattern r = Pattern.compile(pattern);
-
-            // Now create matcher object.
-            Matcher m = r.matcher(cardNumber);
-
-            if (m.find()) {
-                int id = this.getResources().getIdentifier(
-                        "card_" + CREDITCARD_PATTERNS[i][1], "drawable",
-                        this.getPackageName());
-                Drawable cardIcon = this.getResources().getDrawable(id);
-                cNumberText.setCompoundDrawablesWithIntrinsicBounds(null, null,
-                        cardIcon, null);
-                found = true;
-                break;
-            }
+    private void findCardType() {
+        int iconId = cardNumberState.canBecomeValid()
+                ? getCardIconId(cardNumberState.getScheme()) : R.drawable.rederror;
+        if (iconId == cardIconId) {
+            return;
         }
+        cardIconId = iconId;
+        Drawable cardIcon = iconId == 0 ? null : getResources().getDrawable(iconId);
+        cNumberText.setCompoundDrawablesWithIntrinsicBounds(null, null, cardIcon, null);
+    }
 
-        if (!found) {
-            // finally reset it
-            cNumberText.setCompoundDrawablesWithIntrinsicBounds(null, null,
-                    null, null);
+    private static int getCardIconId(CardSchemeDetector.Scheme scheme) {
+        switch (scheme) {
+            case VISA:
+                return R.drawable.card_visa;
+            case MASTERCARD:
+                return R.drawable.card_mastercard;
+            case AMEX:
+                return R.drawable.card_amex;
+            case MAESTRO:
+                return R.drawable.card_maestro;
+            default:
+                return 0;
         }
-
     }
 
     private void newCard() {
@@ -523,6 +517,7 @@ public class SaveCardActivity extends Activity implements OnClickListener {
                     Toast.makeText(getApplicationContext(), CardValidationError.getDescription(CardValidationError.ERROR_CARD_EXPIRY), Toast.LENGTH_SHORT).show();
 
                     expiryText.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
+                    expiryInvalid = true;
                 }
 
                 if (validate.hasError(CardValidationError.ERROR_HOLDER_NAME)) {
@@ -546,6 +541,7 @@ public class SaveCardActivity extends Activity implements OnClickListener {
                     Toast.makeText(getApplicationContext(), CardValidationError.getDescription(CardValidationError.ERROR_CARD_NUMBER), Toast.LENGTH_SHORT).show();
 
                     cNumberText.setCompoundDrawablesWithIntrinsicBounds(null, null, errorIcon, null);
+                    cardIconId = R.drawable.rederror;
                 }
 
             }
@@ -577,7 +573,8 @@ public class SaveCardActivity extends Activity implements OnClickListener {
                     });
 
             if (createTokenAsyncTask != null) {
-                createTokenAsyncTask.execute();
+                // in parallel, so that a double tap joins the request in flight instead of queuing behind it
+                createTokenAsyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
             }
         }
 
@@ -645,9 +642,11 @@ public class SaveCardActivity extends Activity implements OnClickListener {
 		 * being removed
 		 */
         expiryText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
+        expiryInvalid = false;
         fNameText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
         lNameText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
         cNumberText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
+        cardIconId = 0;
         cvcText.setCompoundDrawablesWithIntrinsicBounds(null, null, null, null);
 
 		/*
@@ -0,0 +1,130 @@
+package com.worldpay;
+
+/**
+ * Time budgets of a request, see {@link WorldPayConfig.Builder#setCreateTokenTimeouts(Timeouts)}.
+ * <ul>
+ * <li><b>connect</b> - Opening the TCP connection, waiting for a pooled connection included.</li>
+ * <li><b>tls</b> - The TLS handshake of a new connection.</li>
+ * <li><b>read</b> - Waiting for the first byte of the response, and then between two reads.</li>
+ * <li><b>total</b> - The whole request, retries included. A slowly dripping response can not
+ * hold a thread for longer than this. When it expires the connection is closed and the request
+ * fails with a {@link DeadlineExceededException}, reported as
+ * {@link WorldPayError#ERROR_DEADLINE_EXCEEDED}.</li>
+ * </ul>
+ * Every budget is capped by the time left before the total deadline.
+ * <p/>
+ * {@link UrlConnectionTransport} can not time the TLS handshake separately, the handshake uses the
+ * read budget there.
+ * <p/>
+ * Instances are immutable, create them with a {@link Builder}.
+ */
+public final class Timeouts {
+
+    /**
+     * 15 s to connect, 15 s for the TLS handshake, 30 s to read and 60 s in total.
+     */
+    public static final Timeouts DEFAULT = new Builder().build();
+
+    private final int connectMillis;
+    private final int tlsMillis;
+    private final int readMillis;
+    private final long totalMillis;
+
+    private Timeouts(Builder builder) {
+        this.connectMillis = builder.connectMillis;
+        this.tlsMillis = builder.tlsMillis;
+        this.readMillis = builder.readMillis;
+        this.totalMillis = builder.totalMillis;
+    }
+
+    public int getConnectMillis() {
+        return connectMillis;
+    }
+
+    public int getTlsMillis() {
+        return tlsMillis;
+    }
+
+    public int getReadMillis() {
+        return readMillis;
+    }
+
+    /**
+     * @return The deadline of the whole request, 0 for none.
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Timeouts [connectMillis=" + connectMillis + ", tlsMillis=" + tlsMillis + ", readMillis="
+                + readMillis + ", totalMillis=" + totalMillis + "]";
+    }
+
+    /**
+     * Builds immutable {@link Timeouts} instances.
+     */
+    public static final class Builder {
+
+        private int connectMillis = 15 * 1000;
+        private int tlsMillis = 15 * 1000;
+        private int readMillis = HttpClientUtility.HTTP_TIMEOUT;
+        private long totalMillis = 60 * 1000;
+
+        public Builder() {
+        }
+
+        /**
+         * @param connectMillis The connect budget in milliseconds, more than 0.
+         * @return {@code this}
+         */
+        public Builder setConnectMillis(int connectMillis) {
+            this.connectMillis = checkPositive(connectMillis);
+            return this;
+        }
+
+        /**
+         * @param tlsMillis The TLS handshake budget in milliseconds, more than 0.
+         * @return {@code this}
+         */
+        public Builder setTlsMillis(int tlsMillis) {
+            this.tlsMillis = checkPositive(tlsMillis);
+            return this;
+        }
+
+        /**
+         * @param readMillis The read budget in milliseconds, more than 0.
+         * @return {@code this}
+         */
+        public Builder setReadMillis(int readMillis) {
+            this.readMillis = checkPositive(readMillis);
+            return this;
+        }
+
+        /**
+         * @param totalMillis The deadline of the whole request in milliseconds, or 0 for none.
+         * @return {@code this}
+         */
+        public Builder setTotalMillis(long totalMillis) {
+            if (totalMillis < 0) {
+                throw new IllegalArgumentException("Timeout can not be negative.");
+            }
+            this.totalMillis = totalMillis;
+            return this;
+        }
+
+        public Timeouts build() {
+            return new Timeouts(this);
+        }
+
+        private static int checkPositive(int millis) {
+            // 0 means infinite for sockets, which the total deadline is for
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Timeout must be more than 0.");
+            }
+            return millis;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.worldpay;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Process wide TLS session cache shared by all requests to WorldPay.
+ * <p/>
+ * Sessions are cached by host and port, so connecting again to the same host resumes the session
+ * with an abbreviated handshake instead of a full one. Both {@link UrlConnectionTransport} and
+ * {@link HttpClientTransport} create their TLS sockets with {@link #getSocketFactory()}.
+ * <p/>
+ * {@link #getResumedHandshakes()} and {@link #getFullHandshakes()} report how often sessions were
+ * resumed.
+ */
+public final class TlsSessionCache {
+
+    /**
+     * Maximum number of cached sessions.
+     */
+    public static final int SESSION_CACHE_SIZE = 16;
+
+    /**
+     * Cached sessions are not resumed after this time, in seconds.
+     */
+    public static final int SESSION_TIMEOUT = 60 * 60;
+
+    private static final AtomicLong resumedHandshakes = new AtomicLong();
+    private static final AtomicLong fullHandshakes = new AtomicLong();
+
+    private static SSLSocketFactory socketFactory;
+
+    private TlsSessionCache() {
+
+    }
+
+    /**
+     * Returns the {@link SSLSocketFactory} backed by the session cache, creating it on first use.
+     *
+     * @return The shared {@link SSLSocketFactory}.
+     */
+    public static synchronized SSLSocketFactory getSocketFactory() {
+        if (socketFactory == null) {
+            try {
+                SSLContext sslContext = SSLContext.getInstance("TLS");
+                sslContext.init(null, null, null);
+
+                SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+                sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+                sessionContext.setSessionTimeout(SESSION_TIMEOUT);
+
+                socketFactory = new TrackingSocketFactory(sslContext.getSocketFactory());
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("TLS is not available", e);
+            }
+        }
+        return socketFactory;
+    }
+
+    /**
+     * @return The number of handshakes that resumed a cached session.
+     */
+    public static long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * @return The number of full handshakes, that is cache misses.
+     */
+    public static long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * Resets the handshake counters.
+     */
+    public static void resetStatistics() {
+        resumedHandshakes.set(0);
+        fullHandshakes.set(0);
+    }
+
+    /**
+     * Counts resumed and full handshakes of every socket it creates.
+     */
+    private static final class TrackingSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        TrackingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return track(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return track(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return track(delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        private static Socket track(Socket socket) {
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCounter());
+            }
+            return socket;
+        }
+    }
+
+    /**
+     * A session created before the socket started its handshake was resumed from the cache.
+     */
+    private static final class HandshakeCounter implements HandshakeCompletedListener {
+
+        private final long createdAt = System.currentTimeMillis();
+
+        @Override
+        public void handshakeCompleted(HandshakeCompletedEvent event) {
+            if (event.getSession().getCreationTime() < createdAt) {
+                resumedHandshakes.incrementAndGet();
+            } else {
+                fullHandshakes.incrementAndGet();
+            }
+            DebugLogger.d("TLS handshake, resumed: " + resumedHandshakes.get() + ", full: " + fullHandshakes.get());
+        }
+    }
+
+}
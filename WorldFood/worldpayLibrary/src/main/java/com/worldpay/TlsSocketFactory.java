@@ -0,0 +1,89 @@
+package com.worldpay;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.scheme.LayeredSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.conn.ssl.X509HostnameVerifier;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Apache {@link LayeredSocketFactory} for the "https" scheme of {@link HttpClientUtility}, using
+ * the sessions of {@link TlsSessionCache}.
+ * <p/>
+ * The TLS socket is layered over a connected plain socket, so that it knows the host and port
+ * the session is cached for. The plain socket is connected with {@link HappyEyeballsConnector} to
+ * the addresses of {@link HttpClientUtility#getDnsResolver()}.
+ * <p/>
+ * The handshake of a new connection is timed with the {@link #TLS_TIMEOUT} parameter, reads after
+ * it with the socket timeout.
+ */
+final class TlsSocketFactory implements LayeredSocketFactory {
+
+    /**
+     * Int parameter of the TLS handshake timeout in milliseconds, the socket timeout when not set.
+     */
+    static final String TLS_TIMEOUT = "com.worldpay.tls-timeout";
+
+    private final X509HostnameVerifier hostnameVerifier = SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER;
+
+    @Override
+    public Socket createSocket() {
+        return new Socket();
+    }
+
+    @Override
+    public Socket connectSocket(Socket socket, String host, int port, InetAddress localAddress, int localPort,
+                                HttpParams params) throws IOException {
+        int connectTimeout = HttpConnectionParams.getConnectionTimeout(params);
+        Socket plain;
+
+        try {
+            if (localAddress != null || localPort > 0) {
+                // bound sockets can not race, connect the given one
+                plain = socket != null ? socket : createSocket();
+                plain.bind(new InetSocketAddress(localAddress, localPort < 0 ? 0 : localPort));
+                plain.connect(new InetSocketAddress(HttpClientUtility.getDnsResolver().resolve(host)[0], port),
+                        connectTimeout);
+            } else {
+                plain = HappyEyeballsConnector.connect(HttpClientUtility.getDnsResolver().resolve(host), port,
+                        connectTimeout);
+            }
+        } catch (SocketTimeoutException e) {
+            throw new ConnectTimeoutException("Connect to " + host + ":" + port + " timed out");
+        }
+        int soTimeout = HttpConnectionParams.getSoTimeout(params);
+        plain.setSoTimeout(params.getIntParameter(TLS_TIMEOUT, soTimeout));
+
+        Socket tls = createSocket(plain, host, port, true);
+        tls.setSoTimeout(soTimeout);
+        return tls;
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        SSLSocket sslSocket = (SSLSocket) TlsSessionCache.getSocketFactory().createSocket(socket, host, port, autoClose);
+        try {
+            sslSocket.startHandshake();
+            hostnameVerifier.verify(host, sslSocket);
+        } catch (IOException e) {
+            sslSocket.close();
+            throw e;
+        }
+        return sslSocket;
+    }
+
+    @Override
+    public boolean isSecure(Socket socket) {
+        return socket instanceof SSLSocket && !socket.isClosed();
+    }
+
+}
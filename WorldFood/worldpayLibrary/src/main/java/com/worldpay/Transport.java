@@ -0,0 +1,50 @@
+package com.worldpay;
+
+import java.io.IOException;
+
+/**
+ * The HTTP stack used by the library to talk to the WorldPay servers.
+ * <p>
+ * The library ships with two implementations:
+ * <ul>
+ * <li>{@link UrlConnectionTransport} - based on {@link java.net.HttpURLConnection}, the default.</li>
+ * <li>{@link HttpClientTransport} - based on the Apache client, with a connection pool per instance.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Applications that already have a warmed up HTTP stack, for example a multiplexing HTTP/2 client,
+ * can implement this interface and install it using {@link WorldPay#setTransport(Transport)}, so
+ * that tokenization, CVC reuse and order calls share its connections.
+ * </p>
+ * <p>
+ * Implementations must be thread safe, as requests can be executed concurrently.
+ * </p>
+ */
+public interface Transport {
+
+    /**
+     * Executes the request and reads the whole response.
+     * <p/>
+     * The body buffer of the request may be reused once this method returns, so it must not be
+     * kept by the implementation.
+     * <p/>
+     * Implementations register with {@link TransportRequest#setAbortAction(Runnable)} how the
+     * connection is closed when the call is cancelled.
+     *
+     * @param request The {@link TransportRequest} to execute.
+     * @return The {@link HttpServerResponse}.
+     * @throws IOException If the request could not be executed or the response could not be read.
+     */
+    HttpServerResponse execute(TransportRequest request) throws IOException;
+
+    /**
+     * Opens a connection to the host of {@code url} and leaves it in the connection pool, so that
+     * the next request does not wait for DNS lookup, connect and TLS handshake.
+     *
+     * @param url       The URL to connect to, a HEAD request is sent to it.
+     * @param ttlMillis How long the warm connection may stay idle in the pool before it is closed.
+     * @throws IOException If the connection could not be opened.
+     */
+    void prewarm(String url, long ttlMillis) throws IOException;
+
+}
@@ -0,0 +1,277 @@
+package com.worldpay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An HTTP request executed by a {@link Transport}.
+ */
+public final class TransportRequest {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Bodies smaller than this are not worth compressing, see {@link #compressBody()}.
+     */
+    public static final int MIN_COMPRESSED_SIZE = 1024;
+
+    private final HttpClientUtility.HTTP_METHOD method;
+    private final String url;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private byte[] body = new byte[0];
+    private int bodyLength;
+
+    private Timeouts timeouts = Timeouts.DEFAULT;
+    private volatile long deadlineNanos;
+    private volatile boolean deadlineExpired;
+
+    private boolean aborted;
+    private Runnable abortAction;
+
+    public TransportRequest(HttpClientUtility.HTTP_METHOD method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    public TransportRequest setHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Set the request body, encoded as UTF-8.
+     *
+     * @param body The request body.
+     * @return {@code this}
+     */
+    public TransportRequest setBody(String body) {
+        return setBody(body.getBytes(UTF_8));
+    }
+
+    public TransportRequest setBody(byte[] body) {
+        return setBody(body, body.length);
+    }
+
+    /**
+     * Set the request body to the first {@code length} bytes of {@code body}.
+     * <p/>
+     * The array is not copied and may be reused by the caller once
+     * {@link Transport#execute(TransportRequest)} returns.
+     *
+     * @param body   The buffer holding the request body.
+     * @param length The number of bytes to send.
+     * @return {@code this}
+     */
+    public TransportRequest setBody(byte[] body, int length) {
+        if (length < 0 || length > body.length) {
+            throw new IllegalArgumentException("Invalid body length " + length);
+        }
+        this.body = body;
+        this.bodyLength = length;
+        return this;
+    }
+
+    /**
+     * Compresses the body set with {@code setBody} using gzip and sets the
+     * {@code Content-Encoding} header. Bodies smaller than {@link #MIN_COMPRESSED_SIZE} are sent
+     * as they are.
+     * <p/>
+     * Only use it for servers that accept compressed request bodies.
+     *
+     * @return {@code this}
+     * @throws IOException If the body could not be compressed.
+     */
+    public TransportRequest compressBody() throws IOException {
+        if (bodyLength < MIN_COMPRESSED_SIZE) {
+            return this;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bodyLength / 2);
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        try {
+            out.write(body, 0, bodyLength);
+        } finally {
+            out.close();
+        }
+        headers.put("Content-Encoding", "gzip");
+        return setBody(compressed.toByteArray());
+    }
+
+    /**
+     * Set the time budgets of the request, {@link Timeouts#DEFAULT} by default.
+     *
+     * @param timeouts The {@link Timeouts}.
+     * @return {@code this}
+     */
+    public TransportRequest setTimeouts(Timeouts timeouts) {
+        if (timeouts == null) {
+            throw new IllegalArgumentException("Timeouts can not be null.");
+        }
+        this.timeouts = timeouts;
+        return this;
+    }
+
+    public Timeouts getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return The connect timeout a {@link Transport} should use, capped by the deadline.
+     */
+    public int getConnectTimeout() {
+        return capByDeadline(timeouts.getConnectMillis());
+    }
+
+    /**
+     * @return The TLS handshake timeout a {@link Transport} should use, capped by the deadline.
+     */
+    public int getTlsTimeout() {
+        return capByDeadline(timeouts.getTlsMillis());
+    }
+
+    /**
+     * @return The read timeout a {@link Transport} should use, capped by the deadline.
+     */
+    public int getReadTimeout() {
+        return capByDeadline(timeouts.getReadMillis());
+    }
+
+    /**
+     * @return The time left before the deadline, or {@link Long#MAX_VALUE} if there is none.
+     */
+    public long getRemainingMillis() {
+        long deadline = deadlineNanos;
+        if (deadline == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (deadline - System.nanoTime()) / 1000000);
+    }
+
+    /**
+     * @return true if the total deadline of the request expired.
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExpired || (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /**
+     * Starts counting the total deadline, if the {@link Timeouts} have one.
+     */
+    void startDeadline() {
+        if (timeouts.getTotalMillis() > 0) {
+            deadlineNanos = System.nanoTime() + timeouts.getTotalMillis() * 1000000;
+        }
+    }
+
+    /**
+     * Marks the deadline as expired and closes the connection.
+     */
+    void expireDeadline() {
+        deadlineExpired = true;
+        abort();
+    }
+
+    private int capByDeadline(int budget) {
+        long remaining = getRemainingMillis();
+        if (remaining >= budget) {
+            return budget;
+        }
+        // 0 would mean no timeout at all
+        return (int) Math.max(1, remaining);
+    }
+
+    /**
+     * Aborts the request, closing its connection if it is being executed. The {@link Transport}
+     * then fails with an {@link IOException}. Can be called from any thread.
+     */
+    public void abort() {
+        Runnable action;
+        synchronized (this) {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            action = abortAction;
+            abortAction = null;
+            // wakes awaitAbort
+            notifyAll();
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Waits for at most {@code millis}, returning as soon as the request is aborted, for instance
+     * by a cancelled call or an expired deadline.
+     *
+     * @param millis How long to wait.
+     * @return true if the request was aborted.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    synchronized boolean awaitAbort(long millis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining = millis;
+        while (!aborted && remaining > 0) {
+            wait(remaining);
+            remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+        }
+        return aborted;
+    }
+
+    /**
+     * Called by the {@link Transport} to register how the connection of the request is closed by
+     * {@link #abort()}, and with null once the response was read. The action is run immediately
+     * if the request was already aborted.
+     *
+     * @param abortAction Closes the connection of the request, or null.
+     */
+    public void setAbortAction(Runnable abortAction) {
+        synchronized (this) {
+            if (!aborted) {
+                this.abortAction = abortAction;
+                return;
+            }
+        }
+        if (abortAction != null) {
+            abortAction.run();
+        }
+    }
+
+    public HttpClientUtility.HTTP_METHOD getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return The request headers, in insertion order.
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * @return The buffer holding the request body, only the first {@link #getBodyLength()} bytes
+     * are sent.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+}
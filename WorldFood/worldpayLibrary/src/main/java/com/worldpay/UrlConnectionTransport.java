@@ -0,0 +1,110 @@
+package com.worldpay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import static com.worldpay.HttpClientUtility.HTTP_TIMEOUT;
+
+/**
+ * {@link Transport} based on {@link HttpURLConnection}.
+ * <p>
+ * This is the default transport. It does not depend on the deprecated Apache HTTP client and
+ * reuses the keep-alive connection pool of the platform.
+ * </p>
+ */
+public class UrlConnectionTransport implements Transport {
+
+    private static final String RETRY_AFTER = "Retry-After";
+
+    @Override
+    public HttpServerResponse execute(TransportRequest request) throws IOException {
+        final HttpURLConnection connection = openConnection(request.getUrl());
+        request.setAbortAction(new Runnable() {
+            @Override
+            public void run() {
+                connection.disconnect();
+            }
+        });
+        try {
+            // the TLS handshake can not be timed separately, it runs within the read timeout
+            connection.setConnectTimeout(request.getConnectTimeout());
+            connection.setReadTimeout(request.getReadTimeout());
+            connection.setUseCaches(false);
+            connection.setRequestMethod(request.getMethod().name());
+
+            // decompressed by HttpServerResponse, which also sees the Content-Encoding
+            connection.setRequestProperty("Accept-Encoding", ResponseBodyReader.ACCEPT_ENCODING);
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            byte[] body = request.getBody();
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.getBodyLength());
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(body, 0, request.getBodyLength());
+            } finally {
+                out.close();
+            }
+
+            int statusCode = connection.getResponseCode();
+            InputStream in = statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream() : connection.getInputStream();
+
+            // reading the body to the end hands the connection back to the keep-alive pool
+            return new HttpServerResponse(statusCode, in, connection.getContentLength(),
+                    connection.getContentType(), connection.getContentEncoding())
+                    .setRetryAfter(connection.getHeaderField(RETRY_AFTER));
+        } catch (IOException | RuntimeException e) {
+            connection.disconnect();
+            throw e;
+        } finally {
+            request.setAbortAction(null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The platform decides when pooled connections are evicted (five minutes on Android), so a
+     * {@code ttlMillis} longer than that has no effect.
+     */
+    @Override
+    public void prewarm(String url, long ttlMillis) throws IOException {
+        HttpURLConnection connection = openConnection(url);
+        try {
+            connection.setConnectTimeout(HTTP_TIMEOUT);
+            connection.setReadTimeout(HTTP_TIMEOUT);
+            connection.setUseCaches(false);
+            connection.setRequestMethod("HEAD");
+
+            int statusCode = connection.getResponseCode();
+            InputStream in = statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                // closing the empty body hands the connection to the keep-alive pool
+                in.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    private static HttpURLConnection openConnection(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (connection instanceof HttpsURLConnection) {
+            // the same factory instance also keeps the pooled connections shared
+            ((HttpsURLConnection) connection).setSSLSocketFactory(TlsSessionCache.getSocketFactory());
+        }
+        return connection;
+    }
+
+}
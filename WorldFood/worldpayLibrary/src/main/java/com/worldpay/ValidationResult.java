@@ -0,0 +1,209 @@
+package com.worldpay;
+
+/**
+ * Collects the reasons why a {@link Card} or an {@link AlternativePaymentMethod} is not valid,
+ * packed in the bits of a long.
+ * <p/>
+ * Unlike {@link CardValidationError}, one instance can be reused for every check, for instance
+ * on every keystroke of a form or for every card of a batch, so validation allocates nothing:
+ * <pre>
+ * private final ValidationResult result = new ValidationResult();
+ *
+ * if (!card.validateInto(result)) {
+ *     if (result.hasError(ValidationResult.CARD_NUMBER)) {
+ *         // something is wrong with the card number
+ *     }
+ *     for (long reasons = result.getReasons(); reasons != 0; reasons &amp;= reasons - 1) {
+ *         long reason = Long.lowestOneBit(reasons);
+ *         Log.d(TAG, ValidationResult.getName(reason));
+ *     }
+ * }
+ * </pre>
+ * Each field has its own byte of reasons, and the mask of all its reasons, like
+ * {@link #CARD_NUMBER}, checks the field as a whole. Instances are not thread safe.
+ */
+public final class ValidationResult {
+
+    public static final long CARD_NUMBER_MISSING = 1L;
+    public static final long CARD_NUMBER_BAD_CHARACTERS = 1L << 1;
+    public static final long CARD_NUMBER_TOO_SHORT = 1L << 2;
+    public static final long CARD_NUMBER_TOO_LONG = 1L << 3;
+    public static final long CARD_NUMBER_LUHN = 1L << 4;
+    /**
+     * Any reason of the card number.
+     */
+    public static final long CARD_NUMBER = 0xFFL;
+
+    public static final long CVC_BAD_CHARACTERS = 1L << 8;
+    /**
+     * Any reason of the CVC.
+     */
+    public static final long CVC = 0xFFL << 8;
+
+    public static final long EXPIRY_MISSING = 1L << 16;
+    public static final long EXPIRY_BAD_FORMAT = 1L << 17;
+    public static final long EXPIRY_BAD_MONTH = 1L << 18;
+    public static final long EXPIRY_EXPIRED = 1L << 19;
+    /**
+     * Any reason of the expiry month and year.
+     */
+    public static final long EXPIRY = 0xFFL << 16;
+
+    public static final long HOLDER_NAME_MISSING = 1L << 24;
+    /**
+     * Any reason of the card holder name.
+     */
+    public static final long HOLDER_NAME = 0xFFL << 24;
+
+    public static final long NAME_MISSING = 1L << 32;
+    /**
+     * Any reason of the shopper name of an APM.
+     */
+    public static final long NAME = 0xFFL << 32;
+
+    public static final long APM_NAME_MISSING = 1L << 40;
+    /**
+     * Any reason of the name of an APM.
+     */
+    public static final long APM_NAME = 0xFFL << 40;
+
+    public static final long SHOPPER_COUNTRY_CODE_MISSING = 1L << 48;
+    public static final long SHOPPER_COUNTRY_CODE_INVALID = 1L << 49;
+    /**
+     * Any reason of the shopper country code of an APM.
+     */
+    public static final long SHOPPER_COUNTRY_CODE = 0xFFL << 48;
+
+    private long reasons;
+
+    public ValidationResult() {
+    }
+
+    /**
+     * Forgets all reasons, to reuse {@code this} for another check.
+     */
+    public void clear() {
+        reasons = 0;
+    }
+
+    /**
+     * @param reasons One or more reasons, or'ed together.
+     */
+    public void add(long reasons) {
+        this.reasons |= reasons;
+    }
+
+    public boolean isValid() {
+        return reasons == 0;
+    }
+
+    /**
+     * @param mask Reasons or field masks, or'ed together.
+     * @return true if one of them was added.
+     */
+    public boolean hasError(long mask) {
+        return (reasons & mask) != 0;
+    }
+
+    /**
+     * @return All reasons, or'ed together.
+     */
+    public long getReasons() {
+        return reasons;
+    }
+
+    /**
+     * Returns a description for a reason or a field mask.
+     *
+     * @param reason One reason or field mask.
+     * @return A string resource id, -1 if the reason is not known.
+     */
+    public static int getDescription(long reason) {
+        if (reason == CARD_NUMBER_TOO_SHORT) {
+            return R.string.cardNumberTooShortError;
+        }
+        if (reason == CARD_NUMBER_LUHN) {
+            return R.string.cardNumberLuhnError;
+        }
+        if (reason == EXPIRY_EXPIRED) {
+            return R.string.cardExpiredError;
+        }
+        if (reason == EXPIRY_BAD_MONTH) {
+            return R.string.cardExpiryMonthError;
+        }
+        if ((reason & CARD_NUMBER) != 0) {
+            return R.string.cardNumberError;
+        }
+        if ((reason & CVC) != 0) {
+            return R.string.cardCvcError;
+        }
+        if ((reason & EXPIRY) != 0) {
+            return R.string.cardExpiryError;
+        }
+        if ((reason & HOLDER_NAME) != 0) {
+            return R.string.cardNameError;
+        }
+        if ((reason & NAME) != 0) {
+            return R.string.nameError;
+        }
+        if ((reason & APM_NAME) != 0) {
+            return R.string.apmNameError;
+        }
+        if ((reason & SHOPPER_COUNTRY_CODE) != 0) {
+            return R.string.apmShopperCountryError;
+        }
+        return -1;
+    }
+
+    /**
+     * @param reason One reason.
+     * @return The name of its constant, for logs.
+     */
+    public static String getName(long reason) {
+        if (reason == CARD_NUMBER_MISSING) {
+            return "CARD_NUMBER_MISSING";
+        } else if (reason == CARD_NUMBER_BAD_CHARACTERS) {
+            return "CARD_NUMBER_BAD_CHARACTERS";
+        } else if (reason == CARD_NUMBER_TOO_SHORT) {
+            return "CARD_NUMBER_TOO_SHORT";
+        } else if (reason == CARD_NUMBER_TOO_LONG) {
+            return "CARD_NUMBER_TOO_LONG";
+        } else if (reason == CARD_NUMBER_LUHN) {
+            return "CARD_NUMBER_LUHN";
+        } else if (reason == CVC_BAD_CHARACTERS) {
+            return "CVC_BAD_CHARACTERS";
+        } else if (reason == EXPIRY_MISSING) {
+            return "EXPIRY_MISSING";
+        } else if (reason == EXPIRY_BAD_FORMAT) {
+            return "EXPIRY_BAD_FORMAT";
+        } else if (reason == EXPIRY_BAD_MONTH) {
+            return "EXPIRY_BAD_MONTH";
+        } else if (reason == EXPIRY_EXPIRED) {
+            return "EXPIRY_EXPIRED";
+        } else if (reason == HOLDER_NAME_MISSING) {
+            return "HOLDER_NAME_MISSING";
+        } else if (reason == NAME_MISSING) {
+            return "NAME_MISSING";
+        } else if (reason == APM_NAME_MISSING) {
+            return "APM_NAME_MISSING";
+        } else if (reason == SHOPPER_COUNTRY_CODE_MISSING) {
+            return "SHOPPER_COUNTRY_CODE_MISSING";
+        } else if (reason == SHOPPER_COUNTRY_CODE_INVALID) {
+            return "SHOPPER_COUNTRY_CODE_INVALID";
+        }
+        return "0x" + Long.toHexString(reason);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ValidationResult [");
+        for (long remaining = reasons; remaining != 0; remaining &= remaining - 1) {
+            builder.append(getName(Long.lowestOneBit(remaining)));
+            if ((remaining & (remaining - 1)) != 0) {
+                builder.append(", ");
+            }
+        }
+        return builder.append("]").toString();
+    }
+
+}
@@ -5,11 +5,11 @@ import android.content.pm.PackageManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.AsyncTask;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.os.SystemClock;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import static android.Manifest.permission.ACCESS_NETWORK_STATE;
 import static android.content.Context.CONNECTIVITY_SERVICE;
@@ -32,6 +32,16 @@ import static com.worldpay.WorldPayError.ERROR_NO_NETWORK;
  * <li>Set reusable card mode using {@link #setReusable(boolean)} in order reuse card details.</li>
  * <li>Enable / disable debugging mode using {@link WorldPay#setDebug(boolean)} or
  * {@link WorldPay#setDebug(boolean, String)}.</li>
+ * <li>Replace the HTTP stack using {@link #setTransport(Transport)}.</li>
+ * <li>Change how failed requests are retried using {@link #setRetryPolicy(RetryPolicy)}.</li>
+ * <li>Send identical concurrent requests once using {@link #setCoalesceRequests(boolean)}.</li>
+ * <li>Replace all settings at once using {@link #setConfig(WorldPayConfig)}, or serve several
+ * merchants with a {@link WorldPayClient} per {@link WorldPayConfig}.</li>
+ * <li>Open the connection to WorldPay before the first request using {@link #prewarm(Context)}.</li>
+ * <li>Run concurrent, cancellable requests on your own executor using {@link WorldPayClient}.</li>
+ * <li>Tokenize many cards at once using {@link #createTokens(List, BatchOptions)}.</li>
+ * <li>Create tokens from background threads without a {@link Context} using
+ * {@link #createTokenBlocking(Card, long)}.</li>
  * </ul>
  * </p>
  * <p/>
@@ -122,16 +132,26 @@ public class WorldPay {
      */
     public static final String VERSION = "0.1";
 
-    private static final String REUSABLE = "reusable";
-    private static final String CLIENT_KEY = "clientKey";
-    private static final String PAYMENT_METHOD = "paymentMethod";
+    /**
+     * Default time a connection opened by {@link #prewarm(Context)} stays in the pool unused.
+     */
+    public static final long DEFAULT_PREWARM_TTL = HttpClientUtility.IDLE_CONNECTION_TIMEOUT;
 
     private static WorldPay instance;
-    private String clientKey;
-    private boolean reusable = false;
 
-    private WorldPay() {
+    /**
+     * The settings, replaced by a new snapshot on every change so that requests in flight keep
+     * the settings they were created with.
+     */
+    private volatile WorldPayConfig config = new WorldPayConfig.Builder().build();
 
+    private volatile long warmUntil;
+
+    private volatile WorldPayOutbox outbox;
+
+    private final Executor mainThread = new WorldPayClient.MainThreadExecutor();
+
+    private WorldPay() {
     }
 
     /**
@@ -139,7 +159,7 @@ public class WorldPay {
      *
      * @return Returns the instance of the class
      */
-    public static WorldPay getInstance() {
+    public static synchronized WorldPay getInstance() {
         if (instance == null) {
             instance = new WorldPay();
         }
@@ -169,13 +189,111 @@ public class WorldPay {
         DebugLogger.setTag(customTag);
     }
 
+    /**
+     * Opens a connection to WorldPay in the background, so that the first token request does not
+     * wait for DNS lookup, connect and TLS handshake. <br>
+     * Call it when the screen that creates tokens is created.
+     *
+     * @param context The {@link Context}.
+     * @return The running {@link AsyncTask}, or null if there is no network.
+     * @see #prewarm(Context, long, WorldPayPrewarmResponse)
+     */
+    public AsyncTask<Void, Void, Long> prewarm(final Context context) {
+        return prewarm(context, DEFAULT_PREWARM_TTL, null);
+    }
+
+    /**
+     * Opens a connection to WorldPay in the background, so that the first token request does not
+     * wait for DNS lookup, connect and TLS handshake.
+     * <p/>
+     * The {@link Transport} keeps the connection for at most {@code ttlMillis}, and may close it
+     * sooner: {@link UrlConnectionTransport} leaves idle connections to the platform, which
+     * evicts them after about five minutes. Calls made within {@code ttlMillis} of a successful
+     * prewarm, and never more than {@link #DEFAULT_PREWARM_TTL}, report success without
+     * connecting again.
+     *
+     * @param context   The {@link Context}.
+     * @param ttlMillis How long the warm connection may stay unused.
+     * @param callback  The {@link WorldPayPrewarmResponse} callback, or null.
+     * @return The running {@link AsyncTask}, or null if there is no network.
+     * @see #prewarmBlocking(long)
+     */
+    public AsyncTask<Void, Void, Long> prewarm(final Context context, final long ttlMillis,
+                                               final WorldPayPrewarmResponse callback) {
+        if (!isNetworkConnected(context)) {
+            if (callback != null) {
+                callback.onError(new WorldPayError(ERROR_NO_NETWORK, "There is no network connectivity"));
+            }
+            return null;
+        }
+
+        AsyncTask<Void, Void, Long> task = new AsyncTask<Void, Void, Long>() {
+            private WorldPayError worldPayError;
+
+            @Override
+            protected Long doInBackground(Void... params) {
+                try {
+                    return prewarmBlocking(ttlMillis);
+                } catch (WorldPayException e) {
+                    worldPayError = e.getWorldPayError();
+                }
+                return null;
+            }
+
+            @Override
+            protected void onPostExecute(Long durationMillis) {
+                if (callback == null) {
+                    return;
+                }
+                if (durationMillis == null) {
+                    callback.onError(worldPayError);
+                } else {
+                    callback.onSuccess(durationMillis);
+                }
+            }
+        };
+        // do not hold up token requests waiting on the serial executor
+        return task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Opens a connection to WorldPay on the current thread, see
+     * {@link #prewarm(Context, long, WorldPayPrewarmResponse)}. Must not be called on the main
+     * thread.
+     *
+     * @param ttlMillis How long the warm connection may stay unused.
+     * @return The time spent on DNS lookup, connect and TLS handshake, or 0 if a connection was
+     * already warm.
+     * @throws WorldPayException With {@link WorldPayError#ERROR_RESPONSE_CONNECTION} if the
+     *                           connection could not be opened.
+     */
+    public long prewarmBlocking(long ttlMillis) throws WorldPayException {
+        long start = SystemClock.elapsedRealtime();
+        if (start < warmUntil) {
+            return 0;
+        }
+        try {
+            WorldPayHttp.getInstance().prewarm(config, ttlMillis);
+        } catch (IllegalStateException | IOException e) {
+            DebugLogger.e(e);
+            throw new WorldPayException(new WorldPayError(WorldPayError.ERROR_RESPONSE_CONNECTION,
+                    "Connection error : " + e.getMessage()), e);
+        }
+        long end = SystemClock.elapsedRealtime();
+        // the built-in transports keep idle connections at least this long, not always ttlMillis
+        warmUntil = end + Math.min(ttlMillis, DEFAULT_PREWARM_TTL);
+        DebugLogger.d("prewarm took " + (end - start) + " ms");
+        return end - start;
+    }
+
     /**
      * Asynchronously creates a {@link ResponseCard} token.
      *
      * @param context  The {@link Context}.
      * @param card     The {@link Card} to tokenize.
      * @param callback The {@link WorldPayResponse} callback.
-     * @return {@link AsyncTask}
+     * @return {@link AsyncTask}, or null without network. The callback then receives
+     * {@link WorldPayError#ERROR_NO_NETWORK}.
      */
     public AsyncTask<Void, Void, HttpServerResponse> createTokenAsyncTask(final Context context,
                                                                           final Card card,
@@ -189,37 +307,46 @@ public class WorldPay {
      * @param context                  The {@link Context}.
      * @param alternativePaymentMethod The {@link AlternativePaymentMethod} to tokenize.
      * @param callback                 The {@link WorldPayApmResponse} callback.
-     * @return {@link AsyncTask}
+     * @return {@link AsyncTask}, or null without network. The request is then queued in the
+     * {@link #setOutbox(WorldPayOutbox) outbox}, or the callback receives {@link WorldPayError#ERROR_NO_NETWORK}.
      */
     public AsyncTask<Void, Void, HttpServerResponse> createTokenAsyncTask(final Context context,
                                                                           final AlternativePaymentMethod alternativePaymentMethod,
                                                                           final WorldPayApmResponse callback) {
         final WorldPayError worldPayError = new WorldPayError();
         if (!isNetworkConnected(context)) {
-            worldPayError.setError(ERROR_NO_NETWORK, "There is no network connectivity");
+            final WorldPayOutbox outbox = this.outbox;
+            if (outbox != null) {
+                try {
+                    outbox.enqueue(alternativePaymentMethod);
+                    return null;
+                } catch (IOException e) {
+                    DebugLogger.e(e);
+                }
+            }
+            notifyNoNetwork(CallbackAdapter.of(callback));
             return null;
         }
 
+        final WorldPayConfig config = this.config;
         return new AsyncTask<Void, Void, HttpServerResponse>() {
             @Override
             protected HttpServerResponse doInBackground(Void... params) {
                 DebugLogger.d("createTokenAsyncTask [start] ...");
                 try {
-                    final JSONObject jsonObject = new JSONObject();
-                    jsonObject.put(REUSABLE, reusable);
-                    jsonObject.put(CLIENT_KEY, clientKey);
-                    jsonObject.put(PAYMENT_METHOD, alternativePaymentMethod.getAsJSONObject());
+                    final JsonRequestWriter body = config.newTokenRequestBody();
+                    alternativePaymentMethod.writeJson(body);
+                    body.endObject();
 
-                    DebugLogger.d("Created req: " + jsonObject.toString());
+                    if (DebugLogger.debug) {
+                        DebugLogger.d("Created req: " + body);
+                    }
 
-                    return WorldPayHttp.getInstance().createToken(jsonObject.toString());
-                } catch (JSONException e) {
-                    DebugLogger.e(e);
-                    worldPayError.setError(WorldPayError.ERROR_CREATING_REQUEST_JSON,
-                            "Error while trying to create the request :" + e.getMessage());
+                    return WorldPayHttp.getInstance().createToken(config, body);
                 } catch (IllegalStateException | IOException e) {
                     DebugLogger.e(e);
-                    worldPayError.setError(WorldPayError.ERROR_RESPONSE_CONNECTION, "Connection error : " + e.getMessage());
+                    WorldPayError error = WorldPayClient.toWorldPayError(e);
+                    worldPayError.setError(error.getCode(), error.getMessage());
                 }
                 return null;
             }
@@ -233,31 +360,14 @@ public class WorldPay {
                     callback.onError(worldPayError);
                     return;
                 }
-                if (serverResponse.getStatusCode() == 200) {
-                    try {
-                        final AlternativePaymentMethodToken alternativePaymentMethodToken = AlternativePaymentMethodToken.valueOf(serverResponse.getResponse());
-                        callback.onSuccess(alternativePaymentMethodToken);
-                    } catch (JSONException e) {
-                        DebugLogger.e(e);
-                        worldPayError.setError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON, "Json parsing failed.");
-                        callback.onError(worldPayError);
-                    }
-                } else {
-                    ResponseError responseError = new ResponseError();
-                    String responseString = serverResponse.getResponse();
-                    try {
-                        if (responseString != null) {
-                            responseError.parseJsonString(responseString);
-                        } else {
-                            responseError.setHttpStatusCode(serverResponse.getStatusCode());
-                        }
-                        callback.onResponseError(responseError);
-                    } catch (JSONException e) {
-                        DebugLogger.e(e);
-                        worldPayError.setError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON, "Json parsing failed.");
-                        callback.onError(worldPayError);
-                    }
+                AlternativePaymentMethodToken alternativePaymentMethodToken;
+                try {
+                    alternativePaymentMethodToken = WorldPayClient.readAlternativePaymentMethodToken(serverResponse);
+                } catch (WorldPayException e) {
+                    CallbackAdapter.of(callback).onFailure(e);
+                    return;
                 }
+                callback.onSuccess(alternativePaymentMethodToken);
             }
         };
     }
@@ -282,30 +392,30 @@ public class WorldPay {
                                                                            final WorldPayResponse callback) {
         final WorldPayError worldPayError = new WorldPayError();
         if (!isNetworkConnected(context)) {
-            worldPayError.setError(ERROR_NO_NETWORK, "There is no network connectivity");
+            // card numbers are never queued in the outbox
+            notifyNoNetwork(CallbackAdapter.of(callback));
             return null;
         }
 
+        final WorldPayConfig config = this.config;
         return new AsyncTask<Void, Void, HttpServerResponse>() {
             @Override
             protected HttpServerResponse doInBackground(Void... params) {
                 DebugLogger.d("createTokenAsyncTask [start] ...");
                 try {
-                    JSONObject jsonObject = new JSONObject();
-                    jsonObject.put(REUSABLE, reusable);
-                    jsonObject.put(CLIENT_KEY, clientKey);
-                    jsonObject.put(PAYMENT_METHOD, card.getAsJSONObject());
+                    JsonRequestWriter body = config.newTokenRequestBody();
+                    card.writeJson(body);
+                    body.endObject();
 
-                    DebugLogger.d("Created req: " + jsonObject.toString());
+                    if (DebugLogger.debug) {
+                        DebugLogger.d("Created req: " + body);
+                    }
 
-                    return WorldPayHttp.getInstance().createToken(jsonObject.toString());
-                } catch (JSONException e) {
-                    DebugLogger.e(e);
-                    worldPayError.setError(WorldPayError.ERROR_CREATING_REQUEST_JSON,
-                            "Error while trying to create the request :" + e.getMessage());
+                    return WorldPayHttp.getInstance().createToken(config, body);
                 } catch (IllegalStateException | IOException e) {
                     DebugLogger.e(e);
-                    worldPayError.setError(WorldPayError.ERROR_RESPONSE_CONNECTION, "Connection error : " + e.getMessage());
+                    WorldPayError error = WorldPayClient.toWorldPayError(e);
+                    worldPayError.setError(error.getCode(), error.getMessage());
                 }
                 return null;
             }
@@ -319,45 +429,101 @@ public class WorldPay {
                     callback.onError(worldPayError);
                     return;
                 }
-                if (serverResponse.getStatusCode() == 200) {
-                    ResponseCard responseCard = new ResponseCard();
-                    try {
-                        responseCard.parseJsonString(serverResponse.getResponse());
-                        callback.onSuccess(responseCard);
-
-                    } catch (JSONException e) {
-                        DebugLogger.e(e);
-                        worldPayError.setError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON, "Json parsing failed.");
-                        callback.onError(worldPayError);
-                    }
-                } else {
-                    ResponseError responseError = new ResponseError();
-
-                    String responseString = serverResponse.getResponse();
-                    try {
-                        if (responseString != null) {
-                            responseError.parseJsonString(responseString);
-                        } else {
-                            responseError.setHttpStatusCode(serverResponse.getStatusCode());
-                        }
-                        callback.onResponseError(responseError);
-                    } catch (JSONException e) {
-                        DebugLogger.e(e);
-                        worldPayError.setError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON, "Json parsing failed.");
-                        callback.onError(worldPayError);
-                    }
+                ResponseCard responseCard;
+                try {
+                    responseCard = WorldPayClient.readResponseCard(serverResponse);
+                } catch (WorldPayException e) {
+                    CallbackAdapter.of(callback).onFailure(e);
+                    return;
                 }
+                callback.onSuccess(responseCard);
             }
         };
     }
 
+    /**
+     * Creates a {@link ResponseCard} token on the current thread, see
+     * {@link #createTokenBlocking(Card, long)}.
+     */
+    public ResponseCard createTokenBlocking(Card card) throws WorldPayException {
+        return createTokenBlocking(card, 0);
+    }
+
+    /**
+     * Creates a {@link ResponseCard} token on the current thread, for background workers, sync
+     * adapters and JVM services. Must not be called on the main thread.
+     * <p/>
+     * No {@link Context} is needed, there is no network check: calls fail with
+     * {@link WorldPayError#ERROR_RESPONSE_CONNECTION} when offline.
+     *
+     * @param card          The {@link Card} to tokenize.
+     * @param timeoutMillis The deadline of the call, retries included, or 0 for none. The connection
+     *                      is closed when it expires.
+     * @return The {@link ResponseCard}.
+     * @throws WorldPayException If WorldPay responded with an error, the call failed or the deadline
+     *                           expired.
+     */
+    public ResponseCard createTokenBlocking(Card card, long timeoutMillis) throws WorldPayException {
+        return WorldPayClient.await(WorldPayClient.newCreateTokenCall(config, card, null,
+                WorldPayClient.DIRECT_EXECUTOR),
+                timeoutMillis);
+    }
+
+    /**
+     * Creates an {@link AlternativePaymentMethod} token on the current thread, see
+     * {@link #createTokenBlocking(Card, long)}.
+     *
+     * @param alternativePaymentMethod The {@link AlternativePaymentMethod} to tokenize.
+     * @param timeoutMillis            The deadline of the call, or 0 for none.
+     * @return The {@link AlternativePaymentMethodToken}.
+     * @throws WorldPayException If WorldPay responded with an error, the call failed or the deadline
+     *                           expired.
+     */
+    public AlternativePaymentMethodToken createTokenBlocking(AlternativePaymentMethod alternativePaymentMethod,
+                                                             long timeoutMillis) throws WorldPayException {
+        return WorldPayClient.await(WorldPayClient.newCreateTokenCall(config, alternativePaymentMethod, null,
+                WorldPayClient.DIRECT_EXECUTOR), timeoutMillis);
+    }
+
+    /**
+     * Checks a reusable token on the current thread, see {@link #createTokenBlocking(Card, long)}.
+     *
+     * @param reusableToken The {@link ReusableToken}.
+     * @param timeoutMillis The deadline of the call, or 0 for none.
+     * @throws WorldPayException If WorldPay responded with an error, the call failed or the deadline
+     *                           expired.
+     */
+    public void reuseTokenBlocking(ReusableToken reusableToken, long timeoutMillis) throws WorldPayException {
+        WorldPayClient.await(WorldPayClient.newReuseTokenCall(config, reusableToken, null,
+                WorldPayClient.DIRECT_EXECUTOR),
+                timeoutMillis);
+    }
+
+    /**
+     * Tokenizes many cards, at most {@link BatchOptions#getParallelism()} at the same time over the
+     * pooled keep-alive connections. Every card gets a {@link BatchItemResult}, a failed card does
+     * not stop the batch.
+     * <p/>
+     * Unlike {@link #createTokenAsyncTask(Context, Card, WorldPayResponse)} there is no network
+     * check, cards fail with {@link WorldPayError#ERROR_RESPONSE_CONNECTION} when offline.
+     *
+     * @param cards   The {@link Card}s to tokenize.
+     * @param options The {@link BatchOptions}, with the {@link WorldPayBatchListener} notified of
+     *                progress.
+     * @return The running {@link WorldPayBatch}.
+     */
+    public WorldPayBatch createTokens(List<Card> cards, BatchOptions options) {
+        return options.newClient().createTokens(cards, options);
+    }
+
     /**
      * Checks reusable token
      *
      * @param context
      * @param reusableToken
      * @param callback
-     * @return {@link AsyncTask}
+     * @return {@link AsyncTask}, or null without network. The request is then queued in the
+     * {@link #setOutbox(WorldPayOutbox) outbox}, or the callback receives {@link WorldPayError#ERROR_NO_NETWORK}.
      */
     public AsyncTask<Void, Void, HttpServerResponse> reuseTokenAsyncTask(final Context context,
                                                                          final ReusableToken reusableToken,
@@ -371,26 +537,34 @@ public class WorldPay {
                                                                           final WorldPayResponseReusableToken callback) {
         final WorldPayError worldPayError = new WorldPayError();
         if (!isNetworkConnected(context)) {
-            worldPayError.setError(ERROR_NO_NETWORK, "There is no network connectivity");
+            final WorldPayOutbox outbox = this.outbox;
+            if (outbox != null) {
+                try {
+                    outbox.enqueue(reusableToken);
+                    return null;
+                } catch (IOException e) {
+                    DebugLogger.e(e);
+                }
+            }
+            notifyNoNetwork(CallbackAdapter.of(callback));
             return null;
         }
 
+        final WorldPayConfig config = this.config;
         return new AsyncTask<Void, Void, HttpServerResponse>() {
             @Override
             protected HttpServerResponse doInBackground(Void... params) {
                 DebugLogger.d("reuseTokenAsyncTask [start] ...");
 
                 try {
-                    JSONObject jsonObject = reusableToken.getAsJSONObject();
+                    JsonRequestWriter body = JsonRequestWriter.get();
+                    reusableToken.writeJson(body);
 
-                    return WorldPayHttp.getInstance().reuseToken(reusableToken.getToken(), jsonObject.toString());
-                } catch (JSONException e) {
-                    DebugLogger.e(e);
-                    worldPayError.setError(WorldPayError.ERROR_CREATING_REQUEST_JSON,
-                            "Error while trying to create the request :" + e.getMessage());
+                    return WorldPayHttp.getInstance().reuseToken(config, reusableToken.getToken(), body);
                 } catch (IllegalStateException | IOException e) {
                     DebugLogger.e(e);
-                    worldPayError.setError(WorldPayError.ERROR_RESPONSE_CONNECTION, "Connection error : " + e.getMessage());
+                    WorldPayError error = WorldPayClient.toWorldPayError(e);
+                    worldPayError.setError(error.getCode(), error.getMessage());
                 }
                 return null;
             }
@@ -404,32 +578,19 @@ public class WorldPay {
                     callback.onError(worldPayError);
                     return;
                 }
-                DebugLogger.d("serverResponse " + serverResponse.getStatusCode());
-                if (serverResponse.getStatusCode() == 200) {
-                    callback.onSuccess();
-                } else {
-                    ResponseError responseError = new ResponseError();
-
-                    String responseString = serverResponse.getResponse();
-                    try {
-                        if (responseString != null) {
-                            responseError.parseJsonString(responseString);
-                        } else {
-                            responseError.setHttpStatusCode(serverResponse.getStatusCode());
-                        }
-                        callback.onResponseError(responseError);
-                    } catch (JSONException e) {
-                        DebugLogger.e(e);
-                        worldPayError.setError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON, "Json parsing failed.");
-                        callback.onError(worldPayError);
-                    }
+                try {
+                    WorldPayClient.readReuseTokenResponse(serverResponse);
+                } catch (WorldPayException e) {
+                    CallbackAdapter.of(callback).onFailure(e);
+                    return;
                 }
+                callback.onSuccess();
             }
         };
     }
 
     public String getClientKey() {
-        return clientKey;
+        return config.getClientKey();
     }
 
     /**
@@ -438,8 +599,8 @@ public class WorldPay {
      *
      * @param clientKey
      */
-    public void setClientKey(String clientKey) {
-        this.clientKey = clientKey;
+    public synchronized void setClientKey(String clientKey) {
+        config = config.newBuilder().setClientKey(clientKey).build();
     }
 
     /**
@@ -448,7 +609,7 @@ public class WorldPay {
      * @return
      */
     public boolean isReusable() {
-        return reusable;
+        return config.isReusable();
     }
 
     /**
@@ -456,8 +617,170 @@ public class WorldPay {
      *
      * @param reusable
      */
-    public void setReusable(boolean reusable) {
-        this.reusable = reusable;
+    public synchronized void setReusable(boolean reusable) {
+        config = config.newBuilder().setReusable(reusable).build();
+    }
+
+    /**
+     * Retrieves the {@link Transport} used for requests to WorldPay.
+     *
+     * @return The current {@link Transport}.
+     */
+    public Transport getTransport() {
+        return config.getTransport();
+    }
+
+    /**
+     * Set the {@link Transport} used for requests to WorldPay. The default is an
+     * {@link UrlConnectionTransport}.
+     * <p/>
+     * Orders sent through {@link HttpClientUtility#httpEntityRequest} use the same transport.
+     *
+     * @param transport The {@link Transport} to use.
+     * @throws IllegalArgumentException If the transport is null.
+     */
+    public synchronized void setTransport(Transport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("Transport can not be null.");
+        }
+        config = config.newBuilder().setTransport(transport).build();
+        // connections of the previous transport are not used any more
+        warmUntil = 0;
+    }
+
+    /**
+     * Retrieves the {@link RetryPolicy} of token requests.
+     *
+     * @return The current {@link RetryPolicy}.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return config.getRetryPolicy();
+    }
+
+    /**
+     * Set how token requests are retried after connection failures or transient server errors.
+     * The default is {@link RetryPolicy#DEFAULT}, use {@link RetryPolicy#NONE} to disable retries.
+     * <p/>
+     * Token creation requests carry an {@code Idempotency-Key} header that stays the same across
+     * retries, so that a retry can not create a second token. Updating the CVC of a reusable token
+     * is idempotent.
+     *
+     * @param retryPolicy The {@link RetryPolicy} to use.
+     * @throws IllegalArgumentException If the policy is null.
+     */
+    public synchronized void setRetryPolicy(RetryPolicy retryPolicy) {
+        config = config.newBuilder().setRetryPolicy(retryPolicy).build();
+    }
+
+    /**
+     * Retrieves if identical requests made at the same time are sent once.
+     *
+     * @return true if requests are coalesced.
+     */
+    public boolean isCoalesceRequests() {
+        return config.isCoalesceRequests();
+    }
+
+    /**
+     * Set if identical requests made at the same time, e.g. by a double tap on a save button, are
+     * sent once and the response handed to every callback. Enabled by default.
+     * <p/>
+     * Token requests are identical when the client key, the reusable flag and the card details
+     * match, reuse token requests when the token and the CVC match.
+     *
+     * @param coalesceRequests true to coalesce requests.
+     */
+    public synchronized void setCoalesceRequests(boolean coalesceRequests) {
+        config = config.newBuilder().setCoalesceRequests(coalesceRequests).build();
+    }
+
+    /**
+     * Retrieves the current settings. Requests created from now on use them.
+     *
+     * @return The current {@link WorldPayConfig}.
+     */
+    public WorldPayConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Replaces all settings at once. Requests in flight keep the settings they were created with.
+     *
+     * @param config The {@link WorldPayConfig} to use.
+     * @throws IllegalArgumentException If the configuration is null.
+     */
+    public synchronized void setConfig(WorldPayConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config can not be null.");
+        }
+        if (config.getTransport() != this.config.getTransport()) {
+            warmUntil = 0;
+        }
+        this.config = config;
+    }
+
+    /**
+     * Retrieves the counters of the requests sent with the current settings.
+     *
+     * @return The {@link WorldPayMetrics}.
+     */
+    public WorldPayMetrics getMetrics() {
+        return config.getMetrics();
+    }
+
+    /**
+     * Retrieves the circuit breaker of the current settings, to find out if an endpoint is failing.
+     *
+     * @return The {@link CircuitBreaker}, or null if there is none.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return config.getCircuitBreaker();
+    }
+
+    /**
+     * Retrieves the rate limiter of the current settings, with its queue depth and wait times.
+     *
+     * @return The {@link RateLimiter}, or null if there is none.
+     */
+    public RateLimiter getRateLimiter() {
+        return config.getRateLimiter();
+    }
+
+    /**
+     * Retrieves the outbox queuing requests made without network.
+     *
+     * @return The {@link WorldPayOutbox}, or null if there is none.
+     */
+    public WorldPayOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Queues reuse token and alternative payment method requests made without network in
+     * {@code outbox}, instead of failing them with {@link WorldPayError#ERROR_NO_NETWORK}. Their
+     * results are delivered to the {@link WorldPayOutboxListener} of the outbox, not to the callback
+     * of the request.
+     *
+     * @param outbox The {@link WorldPayOutbox}, or null to fail requests made without network.
+     */
+    public void setOutbox(WorldPayOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Tells the callback of a request made without network, on the main thread.
+     */
+    private void notifyNoNetwork(final CallbackAdapter<?> callback) {
+        DebugLogger.d("There is no network connectivity");
+        if (callback == null) {
+            return;
+        }
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onError(new WorldPayError(ERROR_NO_NETWORK, "There is no network connectivity"));
+            }
+        });
     }
 
     private boolean isNetworkConnected(Context context) {
@@ -0,0 +1,239 @@
+package com.worldpay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A running {@link WorldPay#createTokens(List, BatchOptions)}.
+ * <p/>
+ * At most {@link BatchOptions#getParallelism()} cards are in flight, the next card starts as soon
+ * as one completes. {@link #get()} returns one {@link BatchItemResult} per card, in the order of
+ * the cards, failed cards included. {@link #cancel(boolean)} stops starting cards and cancels the
+ * ones in flight.
+ */
+public final class WorldPayBatch implements Future<List<BatchItemResult>> {
+
+    private final WorldPayClient client;
+    private final WorldPayConfig config;
+    private final List<Card> cards;
+    private final int parallelism;
+    private final WorldPayBatchListener listener;
+    private final Executor callbackExecutor;
+
+    private final BatchItemResult[] results;
+    private final List<WorldPayCall<ResponseCard>> running = new ArrayList<>();
+    private final long startNanos;
+    private int next;
+    private int completed;
+    private boolean cancelled;
+    private List<BatchItemResult> resultList;
+    private BatchSummary summary;
+
+    WorldPayBatch(WorldPayClient client, List<Card> cards, BatchOptions options, Executor callbackExecutor) {
+        this.client = client;
+        this.config = client.getConfig();
+        this.cards = new ArrayList<>(cards);
+        this.parallelism = options.getParallelism();
+        this.listener = options.getListener();
+        this.callbackExecutor = callbackExecutor;
+        this.results = new BatchItemResult[this.cards.size()];
+        this.startNanos = System.nanoTime();
+    }
+
+    void start() {
+        List<WorldPayCall<ResponseCard>> calls;
+        synchronized (this) {
+            if (cards.isEmpty()) {
+                finish();
+                calls = Collections.emptyList();
+            } else {
+                calls = dispatch(parallelism);
+            }
+        }
+        start(calls);
+        notifyComplete();
+    }
+
+    /**
+     * Creates the calls for the next cards, at most {@code count}.
+     */
+    private List<WorldPayCall<ResponseCard>> dispatch(int count) {
+        List<WorldPayCall<ResponseCard>> calls = new ArrayList<>(count);
+        while (!cancelled && next < cards.size() && calls.size() < count) {
+            WorldPayCall<ResponseCard> call = newItemCall(next++);
+            running.add(call);
+            calls.add(call);
+        }
+        return calls;
+    }
+
+    private void start(List<WorldPayCall<ResponseCard>> calls) {
+        for (WorldPayCall<ResponseCard> call : calls) {
+            call.start(client.getExecutor());
+        }
+    }
+
+    private WorldPayCall<ResponseCard> newItemCall(final int index) {
+        final Card card = cards.get(index);
+        final long dispatchNanos = System.nanoTime();
+        final WorldPayCall<?>[] self = new WorldPayCall<?>[1];
+        // results are collected on the worker thread, only the listener goes through the callback executor
+        WorldPayCall<ResponseCard> call = WorldPayClient.newCreateTokenCall(config, card, new CallbackAdapter<ResponseCard>() {
+            @Override
+            void onSuccess(ResponseCard result) {
+                complete(self[0], new BatchItemResult(index, card, result, null, elapsedMillis(dispatchNanos)));
+            }
+
+            @Override
+            void onResponseError(ResponseError responseError) {
+                complete(self[0], new BatchItemResult(index, card, null, new WorldPayException(responseError),
+                        elapsedMillis(dispatchNanos)));
+            }
+
+            @Override
+            void onError(WorldPayError worldPayError) {
+                complete(self[0], new BatchItemResult(index, card, null, new WorldPayException(worldPayError, null),
+                        elapsedMillis(dispatchNanos)));
+            }
+        }, WorldPayClient.DIRECT_EXECUTOR);
+        self[0] = call;
+        return call;
+    }
+
+    private void complete(WorldPayCall<?> call, final BatchItemResult result) {
+        List<WorldPayCall<ResponseCard>> calls;
+        final int done;
+        synchronized (this) {
+            running.remove(call);
+            if (cancelled) {
+                return;
+            }
+            results[result.getIndex()] = result;
+            done = ++completed;
+            calls = dispatch(1);
+            if (done == results.length) {
+                finish();
+            }
+        }
+        if (listener != null) {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onProgress(result, done, results.length);
+                }
+            });
+        }
+        start(calls);
+        if (done == results.length) {
+            notifyComplete();
+        }
+    }
+
+    private void finish() {
+        resultList = Collections.unmodifiableList(Arrays.asList(results));
+        summary = new BatchSummary(resultList, elapsedMillis(startNanos));
+        DebugLogger.d("createTokens " + summary);
+        notifyAll();
+    }
+
+    private void notifyComplete() {
+        final List<BatchItemResult> results;
+        final BatchSummary summary;
+        synchronized (this) {
+            results = resultList;
+            summary = this.summary;
+        }
+        if (listener != null && results != null) {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onComplete(results, summary);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return The throughput and latency of the batch, or null while it is running.
+     */
+    public synchronized BatchSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return The number of cards done so far.
+     */
+    public synchronized int getCompletedCount() {
+        return completed;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        List<WorldPayCall<ResponseCard>> calls;
+        synchronized (this) {
+            if (cancelled || resultList != null) {
+                return false;
+            }
+            cancelled = true;
+            calls = new ArrayList<>(running);
+            running.clear();
+            notifyAll();
+        }
+        for (WorldPayCall<ResponseCard> call : calls) {
+            call.cancel(mayInterruptIfRunning);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return cancelled || resultList != null;
+    }
+
+    @Override
+    public synchronized List<BatchItemResult> get() throws InterruptedException, ExecutionException {
+        while (!isDone()) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized List<BatchItemResult> get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isDone()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private List<BatchItemResult> getResult() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        return resultList;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.worldpay;
+
+import java.util.List;
+
+/**
+ * Implement this interface to follow {@link WorldPay#createTokens(List, BatchOptions)}.
+ *
+ * @see BatchItemResult
+ * @see BatchSummary
+ */
+public interface WorldPayBatchListener {
+    /**
+     * A card was tokenized or failed.
+     *
+     * @param result    The result of the card.
+     * @param completed The number of cards done so far.
+     * @param total     The number of cards in the batch.
+     */
+    void onProgress(BatchItemResult result, int completed, int total);
+
+    /**
+     * All cards are done. Not called if the batch is cancelled.
+     *
+     * @param results The results, in the order of the cards.
+     * @param summary Throughput and latency of the batch.
+     */
+    void onComplete(List<BatchItemResult> results, BatchSummary summary);
+
+}
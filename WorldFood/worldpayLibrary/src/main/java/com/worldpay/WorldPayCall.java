@@ -0,0 +1,148 @@
+package com.worldpay;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A running call to WorldPay, returned by {@link WorldPayClient}.
+ * <p/>
+ * {@link #get()} returns the result of the call, or throws an {@link ExecutionException} whose
+ * cause is a {@link WorldPayException}. {@link #cancel(boolean)} closes the connection of the
+ * call, so a cancelled call does not keep a thread waiting on the network, and its callback is
+ * not invoked.
+ *
+ * @param <T> The result type.
+ */
+public final class WorldPayCall<T> implements Future<T> {
+
+    /**
+     * The work of a call, run on the executor of the {@link WorldPayClient}.
+     */
+    interface Operation<T> {
+        T execute(WorldPayCall<T> call) throws WorldPayException;
+    }
+
+    private final FutureTask<T> task;
+    private TransportRequest request;
+
+    WorldPayCall(final Operation<T> operation, final CallbackAdapter<T> callback, final Executor callbackExecutor) {
+        task = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws WorldPayException {
+                return operation.execute(WorldPayCall.this);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (callback != null && !isCancelled()) {
+                    deliver(callback, callbackExecutor);
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the call on the current thread.
+     */
+    void run() {
+        task.run();
+    }
+
+    /**
+     * Runs the call on {@code executor}.
+     */
+    void start(Executor executor) {
+        executor.execute(task);
+    }
+
+    /**
+     * Registers the request being executed, so that {@link #cancel(boolean)} can abort it.
+     */
+    synchronized void attach(TransportRequest request) {
+        this.request = request;
+        if (task.isCancelled()) {
+            request.abort();
+        }
+    }
+
+    /**
+     * Cancels the call and closes its connection.
+     *
+     * @param mayInterruptIfRunning Whether the thread running the call is interrupted as well.
+     * @return false if the call had already completed.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = task.cancel(mayInterruptIfRunning);
+        TransportRequest running;
+        synchronized (this) {
+            running = request;
+        }
+        if (cancelled && running != null) {
+            running.abort();
+        }
+        return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return task.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        return task.get();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return task.get(timeout, unit);
+    }
+
+    private void deliver(final CallbackAdapter<T> callback, Executor callbackExecutor) {
+        T result = null;
+        WorldPayException failure = null;
+        try {
+            result = task.get();
+        } catch (ExecutionException e) {
+            failure = asWorldPayException(e.getCause());
+        } catch (InterruptedException e) {
+            // not possible, the task is done
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        final T success = result;
+        final WorldPayException error = failure;
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (error == null) {
+                    callback.onSuccess(success);
+                } else {
+                    callback.onFailure(error);
+                }
+            }
+        });
+    }
+
+    static WorldPayException asWorldPayException(Throwable cause) {
+        if (cause instanceof WorldPayException) {
+            return (WorldPayException) cause;
+        }
+        DebugLogger.d("Unexpected error: " + cause);
+        return new WorldPayException(new WorldPayError(WorldPayError.ERROR_LIBRARY_UNEXPECTED,
+                "Unexpected error : " + cause), cause);
+    }
+
+}
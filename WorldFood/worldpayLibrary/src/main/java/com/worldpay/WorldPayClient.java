@@ -0,0 +1,425 @@
+package com.worldpay;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor based API for calls to WorldPay.
+ * <p/>
+ * Unlike the {@link android.os.AsyncTask} factories of {@link WorldPay}, calls run concurrently on
+ * a configurable {@link Executor}, return a {@link WorldPayCall} that can be cancelled, and
+ * deliver their callbacks on a configurable callback {@link Executor}, the main thread by default.
+ * <pre>
+ * WorldPayClient client = new WorldPayClient();
+ * WorldPayCall&lt;ResponseCard&gt; call = client.createToken(card, new WorldPayResponse() { ... });
+ * ...
+ * call.cancel(true);
+ * </pre>
+ * A client created without a {@link WorldPayConfig} uses the settings of {@link WorldPay#getInstance()}
+ * at the time each call is made. A client created with one uses its own client key, transport and
+ * metrics, so that clients of several merchants can run side by side.
+ */
+public class WorldPayClient {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Runs callbacks on the thread that completed the call.
+     */
+    static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private static Executor defaultExecutor;
+
+    private final WorldPayConfig config;
+    private final Executor executor;
+    private final Executor callbackExecutor;
+
+    /**
+     * Creates a client running calls on a shared pool of {@link HttpClientUtility#MAX_CONNECTIONS_PER_ROUTE}
+     * threads and delivering callbacks on the main thread.
+     */
+    public WorldPayClient() {
+        this(getDefaultExecutor());
+    }
+
+    /**
+     * Creates a client delivering callbacks on the main thread.
+     *
+     * @param executor The {@link Executor} running the calls.
+     */
+    public WorldPayClient(Executor executor) {
+        this(executor, new MainThreadExecutor());
+    }
+
+    /**
+     * @param executor         The {@link Executor} running the calls.
+     * @param callbackExecutor The {@link Executor} callbacks are delivered on.
+     */
+    public WorldPayClient(Executor executor, Executor callbackExecutor) {
+        this(null, executor, callbackExecutor);
+    }
+
+    /**
+     * Creates a client with its own settings, running calls on the shared pool and delivering
+     * callbacks on the main thread.
+     *
+     * @param config The {@link WorldPayConfig} of every call of this client.
+     */
+    public WorldPayClient(WorldPayConfig config) {
+        this(config, getDefaultExecutor(), new MainThreadExecutor());
+    }
+
+    /**
+     * @param config           The {@link WorldPayConfig} of every call of this client, or null to
+     *                         use the settings of {@link WorldPay#getInstance()}.
+     * @param executor         The {@link Executor} running the calls.
+     * @param callbackExecutor The {@link Executor} callbacks are delivered on.
+     */
+    public WorldPayClient(WorldPayConfig config, Executor executor, Executor callbackExecutor) {
+        if (executor == null || callbackExecutor == null) {
+            throw new IllegalArgumentException("Executors can not be null.");
+        }
+        this.config = config;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * @return The settings used by calls made now.
+     */
+    public WorldPayConfig getConfig() {
+        return config != null ? config : WorldPay.getInstance().getConfig();
+    }
+
+    /**
+     * Creates a {@link ResponseCard} token.
+     *
+     * @param card     The {@link Card} to tokenize.
+     * @param callback The {@link WorldPayResponse} callback, or null.
+     * @return The running {@link WorldPayCall}.
+     */
+    public WorldPayCall<ResponseCard> createToken(final Card card, final WorldPayResponse callback) {
+        return start(newCreateTokenCall(card, CallbackAdapter.of(callback)));
+    }
+
+    /**
+     * Creates an {@link AlternativePaymentMethod} token.
+     *
+     * @param alternativePaymentMethod The {@link AlternativePaymentMethod} to tokenize.
+     * @param callback                 The {@link WorldPayApmResponse} callback, or null.
+     * @return The running {@link WorldPayCall}.
+     */
+    public WorldPayCall<AlternativePaymentMethodToken> createToken(final AlternativePaymentMethod alternativePaymentMethod,
+                                                                   final WorldPayApmResponse callback) {
+        return start(newCreateTokenCall(alternativePaymentMethod, CallbackAdapter.of(callback)));
+    }
+
+    /**
+     * Checks a reusable token, updating its CVC.
+     *
+     * @param reusableToken The {@link ReusableToken}.
+     * @param callback      The {@link WorldPayResponseReusableToken} callback, or null.
+     * @return The running {@link WorldPayCall}.
+     */
+    public WorldPayCall<Void> reuseToken(final ReusableToken reusableToken,
+                                         final WorldPayResponseReusableToken callback) {
+        return start(newReuseTokenCall(reusableToken, CallbackAdapter.of(callback)));
+    }
+
+    /**
+     * Creates a {@link ResponseCard} token on the current thread, see
+     * {@link WorldPay#createTokenBlocking(Card, long)}.
+     *
+     * @param card          The {@link Card} to tokenize.
+     * @param timeoutMillis The deadline of the call, or 0 for none.
+     * @return The {@link ResponseCard}.
+     * @throws WorldPayException If WorldPay responded with an error, the call failed or the deadline
+     *                           expired.
+     */
+    public ResponseCard createTokenBlocking(Card card, long timeoutMillis) throws WorldPayException {
+        return await(newCreateTokenCall(getConfig(), card, null, DIRECT_EXECUTOR), timeoutMillis);
+    }
+
+    /**
+     * Checks a reusable token on the current thread, see
+     * {@link WorldPay#reuseTokenBlocking(ReusableToken, long)}.
+     *
+     * @param reusableToken The {@link ReusableToken}.
+     * @param timeoutMillis The deadline of the call, or 0 for none.
+     * @throws WorldPayException If WorldPay responded with an error, the call failed or the deadline
+     *                           expired.
+     */
+    public void reuseTokenBlocking(ReusableToken reusableToken, long timeoutMillis) throws WorldPayException {
+        await(newReuseTokenCall(getConfig(), reusableToken, null, DIRECT_EXECUTOR), timeoutMillis);
+    }
+
+    /**
+     * Tokenizes {@code cards} with bounded parallelism, see {@link WorldPay#createTokens(List, BatchOptions)}.
+     * The executors of {@code options} are ignored, the ones of this client are used.
+     *
+     * @param cards   The {@link Card}s to tokenize.
+     * @param options The {@link BatchOptions}.
+     * @return The running {@link WorldPayBatch}.
+     */
+    public WorldPayBatch createTokens(List<Card> cards, BatchOptions options) {
+        WorldPayBatch batch = new WorldPayBatch(this, cards, options, callbackExecutor);
+        batch.start();
+        return batch;
+    }
+
+    WorldPayCall<ResponseCard> newCreateTokenCall(Card card, CallbackAdapter<ResponseCard> callback) {
+        return newCreateTokenCall(getConfig(), card, callback, callbackExecutor);
+    }
+
+    WorldPayCall<AlternativePaymentMethodToken> newCreateTokenCall(AlternativePaymentMethod alternativePaymentMethod,
+                                                                   CallbackAdapter<AlternativePaymentMethodToken> callback) {
+        return newCreateTokenCall(getConfig(), alternativePaymentMethod, callback, callbackExecutor);
+    }
+
+    WorldPayCall<Void> newReuseTokenCall(ReusableToken reusableToken, CallbackAdapter<Void> callback) {
+        return newReuseTokenCall(getConfig(), reusableToken, callback, callbackExecutor);
+    }
+
+    static WorldPayCall<ResponseCard> newCreateTokenCall(final WorldPayConfig config, final Card card,
+                                                         CallbackAdapter<ResponseCard> callback,
+                                                         Executor callbackExecutor) {
+        return new WorldPayCall<>(new WorldPayCall.Operation<ResponseCard>() {
+            @Override
+            public ResponseCard execute(WorldPayCall<ResponseCard> call) throws WorldPayException {
+                JsonRequestWriter body = config.newTokenRequestBody();
+                card.writeJson(body);
+                body.endObject();
+                return readResponseCard(send(config, call, WorldPayHttp.getInstance().newCreateTokenRequest(config, body)));
+            }
+        }, callback, callbackExecutor);
+    }
+
+    static WorldPayCall<AlternativePaymentMethodToken> newCreateTokenCall(final WorldPayConfig config,
+                                                                          final AlternativePaymentMethod alternativePaymentMethod,
+                                                                          CallbackAdapter<AlternativePaymentMethodToken> callback,
+                                                                          Executor callbackExecutor) {
+        return new WorldPayCall<>(new WorldPayCall.Operation<AlternativePaymentMethodToken>() {
+            @Override
+            public AlternativePaymentMethodToken execute(WorldPayCall<AlternativePaymentMethodToken> call)
+                    throws WorldPayException {
+                JsonRequestWriter body = config.newTokenRequestBody();
+                alternativePaymentMethod.writeJson(body);
+                body.endObject();
+                return readAlternativePaymentMethodToken(send(config, call, WorldPayHttp.getInstance().newCreateTokenRequest(config, body)));
+            }
+        }, callback, callbackExecutor);
+    }
+
+    static WorldPayCall<Void> newReuseTokenCall(final WorldPayConfig config, final ReusableToken reusableToken,
+                                                CallbackAdapter<Void> callback, Executor callbackExecutor) {
+        return new WorldPayCall<>(new WorldPayCall.Operation<Void>() {
+            @Override
+            public Void execute(WorldPayCall<Void> call) throws WorldPayException {
+                JsonRequestWriter body = JsonRequestWriter.get();
+                reusableToken.writeJson(body);
+                readReuseTokenResponse(send(config, call, WorldPayHttp.getInstance()
+                        .newReuseTokenRequest(config, reusableToken.getToken(), body)));
+                return null;
+            }
+        }, callback, callbackExecutor);
+    }
+
+    /**
+     * Runs {@code call} on the current thread and returns its result.
+     *
+     * @param timeoutMillis The deadline of the call, 0 for none. The connection is closed when it
+     *                      expires.
+     * @throws WorldPayException If the call failed or the deadline expired.
+     */
+    static <T> T await(final WorldPayCall<T> call, long timeoutMillis) throws WorldPayException {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis can not be negative.");
+        }
+        ScheduledFuture<?> deadline = null;
+        if (timeoutMillis > 0) {
+            deadline = DeadlineTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    call.cancel(false);
+                }
+            }, timeoutMillis);
+        }
+        try {
+            call.run();
+        } finally {
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+        try {
+            return call.get();
+        } catch (CancellationException e) {
+            throw new WorldPayException(new WorldPayError(WorldPayError.ERROR_DEADLINE_EXCEEDED,
+                    "Deadline of " + timeoutMillis + " ms exceeded"), e);
+        } catch (ExecutionException e) {
+            throw WorldPayCall.asWorldPayException(e.getCause());
+        } catch (InterruptedException e) {
+            // not possible, the call is done
+            Thread.currentThread().interrupt();
+            throw WorldPayCall.asWorldPayException(e);
+        }
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    private <T> WorldPayCall<T> start(WorldPayCall<T> call) {
+        call.start(executor);
+        return call;
+    }
+
+    private static HttpServerResponse send(WorldPayConfig config, WorldPayCall<?> call, TransportRequest request)
+            throws WorldPayException {
+        call.attach(request);
+        try {
+            return WorldPayHttp.getInstance().execute(config, request);
+        } catch (IOException | IllegalStateException e) {
+            DebugLogger.e(e);
+            throw new WorldPayException(toWorldPayError(e), e);
+        }
+    }
+
+    /**
+     * @return {@link WorldPayError#ERROR_DEADLINE_EXCEEDED} if the deadline of the request expired,
+     * {@link WorldPayError#ERROR_CIRCUIT_OPEN} if it was not sent because its endpoint is failing,
+     * {@link WorldPayError#ERROR_RESPONSE_CONNECTION} otherwise.
+     */
+    static WorldPayError toWorldPayError(Exception e) {
+        if (e instanceof DeadlineExceededException) {
+            return new WorldPayError(WorldPayError.ERROR_DEADLINE_EXCEEDED, e.getMessage());
+        }
+        if (e instanceof CircuitOpenException) {
+            return new WorldPayError(WorldPayError.ERROR_CIRCUIT_OPEN, e.getMessage());
+        }
+        return new WorldPayError(WorldPayError.ERROR_RESPONSE_CONNECTION, "Connection error : " + e.getMessage());
+    }
+
+    /**
+     * Reads the {@link ResponseCard} of a create token response.
+     *
+     * @throws WorldPayException If WorldPay responded with an error or the response is malformed.
+     */
+    static ResponseCard readResponseCard(HttpServerResponse serverResponse) throws WorldPayException {
+        checkSuccess(serverResponse);
+        ResponseCard responseCard = new ResponseCard();
+        try {
+            responseCard.parseJson(ByteJsonReader.forResponse(serverResponse));
+        } catch (JSONException e) {
+            throw malformed(e);
+        }
+        return responseCard;
+    }
+
+    /**
+     * Reads the {@link AlternativePaymentMethodToken} of a create token response.
+     *
+     * @throws WorldPayException If WorldPay responded with an error or the response is malformed.
+     */
+    static AlternativePaymentMethodToken readAlternativePaymentMethodToken(HttpServerResponse serverResponse)
+            throws WorldPayException {
+        checkSuccess(serverResponse);
+        try {
+            return AlternativePaymentMethodToken.valueOf(ByteJsonReader.forResponse(serverResponse));
+        } catch (JSONException e) {
+            throw malformed(e);
+        }
+    }
+
+    /**
+     * Checks the response of a reuse token request.
+     *
+     * @throws WorldPayException If WorldPay responded with an error.
+     */
+    static void readReuseTokenResponse(HttpServerResponse serverResponse) throws WorldPayException {
+        DebugLogger.d("serverResponse " + serverResponse.getStatusCode());
+        checkSuccess(serverResponse);
+    }
+
+    private static void checkSuccess(HttpServerResponse serverResponse) throws WorldPayException {
+        if (serverResponse.getStatusCode() == 200) {
+            return;
+        }
+        ResponseError responseError = new ResponseError();
+        try {
+            if (serverResponse.getResponseBytes() != null) {
+                responseError.parseJson(ByteJsonReader.forResponse(serverResponse));
+            } else {
+                responseError.setHttpStatusCode(serverResponse.getStatusCode());
+            }
+        } catch (JSONException e) {
+            throw malformed(e);
+        }
+        throw new WorldPayException(responseError);
+    }
+
+    private static WorldPayException malformed(JSONException e) {
+        DebugLogger.e(e);
+        return new WorldPayException(new WorldPayError(WorldPayError.ERROR_RESPONSE_MALFORMED_JSON,
+                "Json parsing failed."), e);
+    }
+
+    static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(HttpClientUtility.MAX_CONNECTIONS_PER_ROUTE,
+                    HttpClientUtility.MAX_CONNECTIONS_PER_ROUTE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "WorldPay-Call-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+            defaultExecutor = pool;
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Runs callbacks on the main thread.
+     */
+    static final class MainThreadExecutor implements Executor {
+
+        private Handler handler;
+
+        @Override
+        public void execute(Runnable runnable) {
+            // created on first use, so that clients that never call back on it also work off Android
+            synchronized (this) {
+                if (handler == null) {
+                    handler = new Handler(Looper.getMainLooper());
+                }
+            }
+            handler.post(runnable);
+        }
+    }
+
+}
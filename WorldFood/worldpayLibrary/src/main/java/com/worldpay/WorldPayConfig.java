@@ -0,0 +1,311 @@
+package com.worldpay;
+
+import java.util.Arrays;
+
+/**
+ * Immutable settings of requests to WorldPay.
+ * <p/>
+ * A request captures the configuration when it is created, so changing the settings of
+ * {@link WorldPay#getInstance()} never affects requests in flight. To serve several merchants in
+ * one process, give each one a {@link WorldPayClient} with its own configuration:
+ * <pre>
+ * WorldPayConfig config = new WorldPayConfig.Builder()
+ *         .setClientKey(BRAND_CLIENT_KEY)
+ *         .setTransport(new HttpClientTransport())
+ *         .build();
+ * WorldPayClient client = new WorldPayClient(config);
+ * </pre>
+ * Every {@link HttpClientTransport} owns its connection pool, give each configuration its own to
+ * keep pools separate. Configurations without a transport share one {@link UrlConnectionTransport},
+ * which uses the connection pool of the platform.
+ */
+public final class WorldPayConfig {
+
+    private static final String REUSABLE = "reusable";
+    private static final String CLIENT_KEY = "clientKey";
+    private static final String PAYMENT_METHOD = "paymentMethod";
+
+    private static Transport defaultTransport;
+
+    private final String clientKey;
+    private final boolean reusable;
+    private final Transport transport;
+    private final RetryPolicy retryPolicy;
+    private final boolean coalesceRequests;
+    private final WorldPayMetrics metrics;
+    private final Timeouts createTokenTimeouts;
+    private final Timeouts reuseTokenTimeouts;
+    private final Timeouts orderTimeouts;
+    private final CircuitBreaker circuitBreaker;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * The {@code {"reusable":..,"clientKey":..,"paymentMethod":} start of every token request.
+     */
+    private final byte[] requestPrefix;
+
+    private WorldPayConfig(Builder builder) {
+        this.clientKey = builder.clientKey;
+        this.reusable = builder.reusable;
+        this.transport = builder.transport != null ? builder.transport : getDefaultTransport();
+        this.retryPolicy = builder.retryPolicy;
+        this.coalesceRequests = builder.coalesceRequests;
+        this.metrics = builder.metrics != null ? builder.metrics : new WorldPayMetrics();
+        this.createTokenTimeouts = builder.createTokenTimeouts;
+        this.reuseTokenTimeouts = builder.reuseTokenTimeouts;
+        this.orderTimeouts = builder.orderTimeouts;
+        this.circuitBreaker = builder.circuitBreaker;
+        this.rateLimiter = builder.rateLimiter;
+
+        JsonRequestWriter writer = new JsonRequestWriter();
+        writer.beginObject()
+                .field(REUSABLE, reusable)
+                .field(CLIENT_KEY, clientKey)
+                .name(PAYMENT_METHOD);
+        this.requestPrefix = Arrays.copyOf(writer.getBuffer(), writer.size());
+    }
+
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    public WorldPayMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The {@link Timeouts} of token requests.
+     */
+    public Timeouts getCreateTokenTimeouts() {
+        return createTokenTimeouts;
+    }
+
+    /**
+     * @return The {@link Timeouts} of reuse token requests.
+     */
+    public Timeouts getReuseTokenTimeouts() {
+        return reuseTokenTimeouts;
+    }
+
+    /**
+     * @return The {@link Timeouts} of order requests sent with {@link HttpClientUtility#httpEntityRequest}.
+     */
+    public Timeouts getOrderTimeouts() {
+        return orderTimeouts;
+    }
+
+    /**
+     * @return The {@link CircuitBreaker} of the endpoints, or null if there is none.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return The {@link RateLimiter} of the endpoints, or null if there is none.
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return A {@link Builder} holding the settings of this configuration, metrics, circuit
+     * breaker and rate limiter included.
+     */
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * @return A writer holding the start of a token request, to be followed by the payment method
+     * and {@link JsonRequestWriter#endObject()}.
+     */
+    JsonRequestWriter newTokenRequestBody() {
+        return JsonRequestWriter.get().raw(requestPrefix);
+    }
+
+    /**
+     * The {@link UrlConnectionTransport} shared by configurations without a transport, so that they
+     * share the connection pool of {@link java.net.HttpURLConnection}.
+     */
+    private static synchronized Transport getDefaultTransport() {
+        if (defaultTransport == null) {
+            defaultTransport = new UrlConnectionTransport();
+        }
+        return defaultTransport;
+    }
+
+    @Override
+    public String toString() {
+        return "WorldPayConfig [reusable=" + reusable + ", transport=" + transport.getClass().getSimpleName()
+                + ", coalesceRequests=" + coalesceRequests + "]";
+    }
+
+    /**
+     * Builds immutable {@link WorldPayConfig} instances.
+     */
+    public static final class Builder {
+
+        private String clientKey;
+        private boolean reusable = false;
+        private Transport transport;
+        private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+        private boolean coalesceRequests = true;
+        private WorldPayMetrics metrics;
+        private Timeouts createTokenTimeouts = Timeouts.DEFAULT;
+        private Timeouts reuseTokenTimeouts = Timeouts.DEFAULT;
+        private Timeouts orderTimeouts = Timeouts.DEFAULT;
+        private CircuitBreaker circuitBreaker = new CircuitBreaker.Builder().build();
+        private RateLimiter rateLimiter;
+
+        public Builder() {
+        }
+
+        private Builder(WorldPayConfig config) {
+            this.clientKey = config.clientKey;
+            this.reusable = config.reusable;
+            this.transport = config.transport;
+            this.retryPolicy = config.retryPolicy;
+            this.coalesceRequests = config.coalesceRequests;
+            this.metrics = config.metrics;
+            this.createTokenTimeouts = config.createTokenTimeouts;
+            this.reuseTokenTimeouts = config.reuseTokenTimeouts;
+            this.orderTimeouts = config.orderTimeouts;
+            this.circuitBreaker = config.circuitBreaker;
+            this.rateLimiter = config.rateLimiter;
+        }
+
+        /**
+         * @param clientKey The client key provided from worldpay.com.
+         * @return {@code this}
+         */
+        public Builder setClientKey(String clientKey) {
+            this.clientKey = clientKey;
+            return this;
+        }
+
+        /**
+         * @param reusable If stored cards are used multiple times.
+         * @return {@code this}
+         */
+        public Builder setReusable(boolean reusable) {
+            this.reusable = reusable;
+            return this;
+        }
+
+        /**
+         * @param transport The {@link Transport}, or null for the shared {@link UrlConnectionTransport}.
+         * @return {@code this}
+         */
+        public Builder setTransport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy The {@link RetryPolicy} of token requests.
+         * @return {@code this}
+         * @throws IllegalArgumentException If the policy is null.
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            if (retryPolicy == null) {
+                throw new IllegalArgumentException("Retry policy can not be null.");
+            }
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param coalesceRequests If identical requests made at the same time are sent once.
+         * @return {@code this}
+         */
+        public Builder setCoalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * @param metrics The {@link WorldPayMetrics} to count requests in, or null for new ones.
+         * @return {@code this}
+         */
+        public Builder setMetrics(WorldPayMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param timeouts The {@link Timeouts} of token requests.
+         * @return {@code this}
+         */
+        public Builder setCreateTokenTimeouts(Timeouts timeouts) {
+            this.createTokenTimeouts = checkTimeouts(timeouts);
+            return this;
+        }
+
+        /**
+         * @param timeouts The {@link Timeouts} of reuse token requests.
+         * @return {@code this}
+         */
+        public Builder setReuseTokenTimeouts(Timeouts timeouts) {
+            this.reuseTokenTimeouts = checkTimeouts(timeouts);
+            return this;
+        }
+
+        /**
+         * @param timeouts The {@link Timeouts} of order requests.
+         * @return {@code this}
+         */
+        public Builder setOrderTimeouts(Timeouts timeouts) {
+            this.orderTimeouts = checkTimeouts(timeouts);
+            return this;
+        }
+
+        /**
+         * @param circuitBreaker The {@link CircuitBreaker} of the endpoints, or null to always
+         *                       call them.
+         * @return {@code this}
+         */
+        public Builder setCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * @param rateLimiter The {@link RateLimiter} of the endpoints, or null to send requests
+         *                    as soon as they are made, the default.
+         * @return {@code this}
+         */
+        public Builder setRateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        public WorldPayConfig build() {
+            return new WorldPayConfig(this);
+        }
+
+        private static Timeouts checkTimeouts(Timeouts timeouts) {
+            if (timeouts == null) {
+                throw new IllegalArgumentException("Timeouts can not be null.");
+            }
+            return timeouts;
+        }
+    }
+
+}
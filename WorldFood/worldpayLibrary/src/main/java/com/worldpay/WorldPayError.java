@@ -27,6 +27,14 @@ public class WorldPayError implements Serializable {
      * Json error while trying to parse json response from error.
      */
     public final static int ERROR_RESPONSE_MALFORMED_JSON = 202;
+    /**
+     * The total deadline of the request expired, see {@link Timeouts}.
+     */
+    public final static int ERROR_DEADLINE_EXCEEDED = 203;
+    /**
+     * The endpoint failed too often recently and is not called, see {@link CircuitBreaker}.
+     */
+    public final static int ERROR_CIRCUIT_OPEN = 204;
     private static final long serialVersionUID = 3929710223879734507L;
     private int code = 0;
     private String message;
@@ -0,0 +1,61 @@
+package com.worldpay;
+
+/**
+ * Failure of a call to WorldPay.
+ * <p/>
+ * Either WorldPay responded with an error, see {@link #getResponseError()}, or the call failed
+ * in the library or on the network, see {@link #getWorldPayError()}.
+ */
+public class WorldPayException extends Exception {
+
+    private static final long serialVersionUID = 4302837406223436761L;
+
+    private final ResponseError responseError;
+    private final WorldPayError worldPayError;
+
+    /**
+     * WorldPay responded with an error.
+     *
+     * @param responseError The error details sent by WorldPay.
+     */
+    public WorldPayException(ResponseError responseError) {
+        super(responseError.getMessage() != null && !responseError.getMessage().isEmpty()
+                ? responseError.getMessage() : "HTTP " + responseError.getHttpStatusCode());
+        this.responseError = responseError;
+        this.worldPayError = null;
+    }
+
+    /**
+     * The call failed in the library or on the network.
+     *
+     * @param worldPayError The error details.
+     * @param cause         The underlying exception, or null.
+     */
+    public WorldPayException(WorldPayError worldPayError, Throwable cause) {
+        super(worldPayError.getMessage(), cause);
+        this.responseError = null;
+        this.worldPayError = worldPayError;
+    }
+
+    /**
+     * @return true if WorldPay responded with an error, false if the call failed before.
+     */
+    public boolean isResponseError() {
+        return responseError != null;
+    }
+
+    /**
+     * @return The error sent by WorldPay, or null.
+     */
+    public ResponseError getResponseError() {
+        return responseError;
+    }
+
+    /**
+     * @return The library or network error, or null.
+     */
+    public WorldPayError getWorldPayError() {
+        return worldPayError;
+    }
+
+}
@@ -2,46 +2,291 @@ package com.worldpay;
 
 import android.os.Build;
 
-import org.apache.http.message.BasicHeader;
-
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import static com.worldpay.Constants.API_URL;
 import static com.worldpay.Constants.API_URL_TOKENS;
 import static com.worldpay.HttpClientUtility.HTTP_METHOD.POST;
 import static com.worldpay.HttpClientUtility.HTTP_METHOD.PUT;
-import static com.worldpay.HttpClientUtility.httpEntityRequest;
 
 final class WorldPayHttp {
 
     private static final char SEMI_COLON = ';';
+    private static final String USER_AGENT_HEADER = "X-wp-client-user-agent";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
     private static WorldPayHttp instance;
 
     private String worldPayUserAgent;
 
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
     private WorldPayHttp() {
 
     }
 
-    protected static WorldPayHttp getInstance() {
+    protected static synchronized WorldPayHttp getInstance() {
         if (instance == null) {
             instance = new WorldPayHttp();
         }
         return instance;
     }
 
-    public HttpServerResponse createToken(final String data) throws IllegalStateException, IOException {
-        return httpEntityRequest(POST, API_URL_TOKENS, data, getHeaders());
+    public HttpServerResponse createToken(final WorldPayConfig config, final JsonRequestWriter body)
+            throws IllegalStateException, IOException {
+        return execute(config, newCreateTokenRequest(config, body));
+    }
+
+    public HttpServerResponse reuseToken(final WorldPayConfig config, final String token, final JsonRequestWriter body)
+            throws IllegalStateException, IOException {
+        return execute(config, newReuseTokenRequest(config, token, body));
+    }
+
+    TransportRequest newCreateTokenRequest(final WorldPayConfig config, final JsonRequestWriter body) {
+        // the same key on every attempt, so that a retry can not create a second token
+        return newCreateTokenRequest(config, body.getBuffer(), body.size(), UUID.randomUUID().toString());
+    }
+
+    /**
+     * @param idempotencyKey The key identifying the token, the same for every replay of the request.
+     */
+    TransportRequest newCreateTokenRequest(final WorldPayConfig config, final byte[] body, final int length,
+                                           final String idempotencyKey) {
+        return newRequest(POST, API_URL_TOKENS)
+                .setTimeouts(config.getCreateTokenTimeouts())
+                .setHeader(IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .setBody(body, length);
+    }
+
+    TransportRequest newReuseTokenRequest(final WorldPayConfig config, final String token,
+                                          final JsonRequestWriter body) {
+        return newReuseTokenRequest(config, token, body.getBuffer(), body.size());
+    }
+
+    TransportRequest newReuseTokenRequest(final WorldPayConfig config, final String token, final byte[] body,
+                                          final int length) {
+        // updating the CVC of a token is idempotent
+        return newRequest(PUT, API_URL_TOKENS + "/" + token)
+                .setTimeouts(config.getReuseTokenTimeouts())
+                .setBody(body, length);
+    }
+
+    /**
+     * Executes the request with the {@link Transport} of {@code config}, retrying it as allowed by
+     * its {@link RetryPolicy}. An identical request already in flight is joined instead, see
+     * {@link RequestCoalescer}.
+     *
+     * @throws DeadlineExceededException If the total deadline of the request expired.
+     * @throws InterruptedIOException     If the request was aborted.
+     */
+    HttpServerResponse execute(final WorldPayConfig config, final TransportRequest request) throws IOException {
+        final ScheduledFuture<?> deadline = startDeadline(request);
+        try {
+            if (!config.isCoalesceRequests()) {
+                return executeWithRetries(config, request);
+            }
+            return coalescer.execute(request, new RequestCoalescer.Call() {
+                @Override
+                public HttpServerResponse execute(TransportRequest request) throws IOException {
+                    return executeWithRetries(config, request);
+                }
+
+                @Override
+                public void onJoin() {
+                    config.getMetrics().onCoalesced();
+                }
+            });
+        } catch (IOException e) {
+            throw checkDeadline(request, e);
+        } finally {
+            stopDeadline(deadline);
+        }
+    }
+
+    /**
+     * Executes the request once with the {@link Transport} of {@code config}, within the total
+     * deadline of its {@link Timeouts}.
+     *
+     * @throws DeadlineExceededException If the total deadline of the request expired.
+     * @throws CircuitOpenException      If the circuit of the endpoint is open.
+     */
+    static HttpServerResponse executeOnce(final WorldPayConfig config, final TransportRequest request)
+            throws IOException {
+        final ScheduledFuture<?> deadline = startDeadline(request);
+        try {
+            return executeAttempt(config, request);
+        } catch (IOException e) {
+            throw checkDeadline(request, e);
+        } finally {
+            stopDeadline(deadline);
+        }
+    }
+
+    /**
+     * Starts the total deadline of the request, after which its connection is closed.
+     *
+     * @return The timer closing the connection, or null if there is no deadline.
+     */
+    private static ScheduledFuture<?> startDeadline(final TransportRequest request) {
+        final long totalMillis = request.getTimeouts().getTotalMillis();
+        if (totalMillis <= 0) {
+            return null;
+        }
+        request.startDeadline();
+        return DeadlineTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                request.expireDeadline();
+            }
+        }, totalMillis);
+    }
+
+    private static void stopDeadline(final ScheduledFuture<?> deadline) {
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    private static IOException checkDeadline(final TransportRequest request, final IOException e) {
+        if (!request.isDeadlineExceeded() || e instanceof DeadlineExceededException) {
+            return e;
+        }
+        final DeadlineExceededException deadlineExceeded = new DeadlineExceededException(
+                "Deadline of " + request.getTimeouts().getTotalMillis() + " ms exceeded");
+        deadlineExceeded.initCause(e);
+        return deadlineExceeded;
+    }
+
+    private HttpServerResponse executeWithRetries(final WorldPayConfig config, final TransportRequest request)
+            throws IOException {
+        final long start = System.nanoTime();
+        try {
+            final HttpServerResponse response = executeAttempts(config, request);
+            config.getMetrics().onResponse(response, elapsedMillis(start));
+            return response;
+        } catch (IOException | RuntimeException e) {
+            config.getMetrics().onFailure(elapsedMillis(start));
+            throw e;
+        }
+    }
+
+    private static HttpServerResponse executeAttempts(final WorldPayConfig config, final TransportRequest request)
+            throws IOException {
+        final RetryPolicy policy = config.getRetryPolicy();
+        for (int attempt = 1; ; attempt++) {
+            final long delay = policy.getDelay(attempt);
+            try {
+                checkNotAborted(request);
+                final HttpServerResponse response = executeAttempt(config, request);
+                if (isLastAttempt(policy, request, attempt, delay) || !policy.isRetryable(response.getStatusCode())) {
+                    return response;
+                }
+                DebugLogger.d("Attempt " + attempt + " failed with status " + response.getStatusCode());
+            } catch (IOException e) {
+                checkNotAborted(request);
+                if (isLastAttempt(policy, request, attempt, delay) || !policy.isRetryable(e)
+                        || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                DebugLogger.d("Attempt " + attempt + " failed: " + e);
+            }
+
+            config.getMetrics().onRetry();
+            try {
+                // cancelling the call or its deadline ends the wait, checkNotAborted then throws
+                request.awaitAbort(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+        }
+    }
+
+    /**
+     * Sends one attempt with the {@link Transport} of {@code config}, through the circuit breaker
+     * and the rate limiter of its endpoint. Connection errors, timeouts and 5xx responses count as
+     * failures of the endpoint, attempts aborted by the caller do not count.
+     *
+     * @throws CircuitOpenException      If the circuit of the endpoint is open.
+     * @throws DeadlineExceededException If the rate limiter would hold the attempt beyond its deadline.
+     */
+    private static HttpServerResponse executeAttempt(final WorldPayConfig config, final TransportRequest request)
+            throws IOException {
+        final CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        final RateLimiter rateLimiter = config.getRateLimiter();
+        final CircuitBreaker.Endpoint endpoint = CircuitBreaker.Endpoint.of(request.getUrl());
+
+        if (circuitBreaker != null) {
+            circuitBreaker.acquire(endpoint);
+        }
+        if (rateLimiter != null) {
+            try {
+                rateLimiter.acquire(endpoint, request);
+            } catch (IOException | RuntimeException e) {
+                if (circuitBreaker != null) {
+                    circuitBreaker.onIgnored(endpoint);
+                }
+                throw e;
+            }
+        }
+
+        HttpServerResponse response = null;
+        try {
+            response = config.getTransport().execute(request);
+        } catch (IOException | RuntimeException e) {
+            if (circuitBreaker != null) {
+                if (request.isAborted() && !request.isDeadlineExceeded()) {
+                    circuitBreaker.onIgnored(endpoint);
+                } else {
+                    circuitBreaker.onFailure(endpoint);
+                }
+            }
+            throw e;
+        } finally {
+            if (rateLimiter != null) {
+                rateLimiter.release(endpoint, response);
+            }
+        }
+        if (circuitBreaker != null) {
+            if (response.getStatusCode() >= 500) {
+                circuitBreaker.onFailure(endpoint);
+            } else {
+                circuitBreaker.onSuccess(endpoint);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @return true if {@code attempt} is the last one of the policy, or if waiting {@code delay}
+     * to retry would outlive the deadline of the request.
+     */
+    private static boolean isLastAttempt(final RetryPolicy policy, final TransportRequest request,
+                                         final int attempt, final long delay) {
+        return attempt >= policy.getMaxAttempts() || delay >= request.getRemainingMillis();
+    }
+
+    private static long elapsedMillis(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void checkNotAborted(final TransportRequest request) throws InterruptedIOException {
+        if (request.isAborted()) {
+            throw new InterruptedIOException("Request aborted");
+        }
     }
 
-    public HttpServerResponse reuseToken(final String token, final String data) throws IllegalStateException, IOException {
-        return httpEntityRequest(PUT, API_URL_TOKENS + "/" + token, data, getHeaders());
+    public void prewarm(final WorldPayConfig config, final long ttlMillis) throws IOException {
+        config.getTransport().prewarm(API_URL, ttlMillis);
     }
 
-    private BasicHeader[] getHeaders() {
-        return new BasicHeader[]{
-                new BasicHeader("Content-type", "application/json"),
-                getCustomUserAgent()
-        };
+    private TransportRequest newRequest(final HttpClientUtility.HTTP_METHOD method, final String url) {
+        return new TransportRequest(method, url)
+                .setHeader("Content-type", "application/json")
+                .setHeader(USER_AGENT_HEADER, getCustomUserAgent());
     }
 
     /**
@@ -59,9 +304,9 @@ final class WorldPayHttp {
      * <li>owner (would always be "world pay”)</li>
      * </ol>
      *
-     * @return The 'X-wp-client-user-agent' header.
+     * @return The 'X-wp-client-user-agent' header value.
      */
-    private BasicHeader getCustomUserAgent() {
+    private synchronized String getCustomUserAgent() {
         if (worldPayUserAgent == null) {
             final StringBuilder userAgent = new StringBuilder();
             String systemArch = System.getProperty("os.arch");
@@ -79,6 +324,6 @@ final class WorldPayHttp {
 
             worldPayUserAgent = userAgent.toString();
         }
-        return new BasicHeader("X-wp-client-user-agent", worldPayUserAgent);
+        return worldPayUserAgent;
     }
 }
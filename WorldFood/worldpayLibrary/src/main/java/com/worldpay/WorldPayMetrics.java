@@ -0,0 +1,102 @@
+package com.worldpay;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the requests sent with a {@link WorldPayConfig}, safe to read from any thread.
+ * <p/>
+ * Clients created with separate configurations count separately, unless they share the same
+ * instance through {@link WorldPayConfig.Builder#setMetrics(WorldPayMetrics)}.
+ */
+public final class WorldPayMetrics {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errorResponses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+
+    void onResponse(HttpServerResponse response, long latencyMillis) {
+        requests.incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        if (response.getStatusCode() != 200) {
+            errorResponses.incrementAndGet();
+        }
+    }
+
+    void onFailure(long latencyMillis) {
+        requests.incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        failures.incrementAndGet();
+    }
+
+    void onRetry() {
+        retries.incrementAndGet();
+    }
+
+    void onCoalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    /**
+     * @return The number of completed requests, retries included in the request they belong to.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return The number of requests WorldPay responded to with an error.
+     */
+    public long getErrorResponseCount() {
+        return errorResponses.get();
+    }
+
+    /**
+     * @return The number of requests that got no response.
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return The number of attempts sent again after a failure.
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * @return The number of requests that joined an identical request in flight instead of being
+     * sent, counted when they join.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return The average time of a request, retries included.
+     */
+    public long getAverageLatencyMillis() {
+        long count = requests.get();
+        return count == 0 ? 0 : totalLatencyMillis.get() / count;
+    }
+
+    public void reset() {
+        requests.set(0);
+        errorResponses.set(0);
+        failures.set(0);
+        retries.set(0);
+        coalesced.set(0);
+        totalLatencyMillis.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "WorldPayMetrics [requests=" + getRequestCount() + ", errorResponses=" + getErrorResponseCount()
+                + ", failures=" + getFailureCount() + ", retries=" + getRetryCount() + ", coalesced=" + getCoalescedCount()
+                + ", averageLatencyMillis=" + getAverageLatencyMillis() + "]";
+    }
+
+}
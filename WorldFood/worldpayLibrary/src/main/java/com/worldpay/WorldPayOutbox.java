@@ -0,0 +1,481 @@
+package com.worldpay;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of requests made while the device is offline, replayed in order when the network
+ * is back.
+ * <p/>
+ * Each request is journaled to its own file in app-private storage before {@code enqueue} returns,
+ * so it survives the process being killed, and is deleted once WorldPay answered it. Requests that
+ * fail to reach WorldPay, or get a retryable status such as 503, stop the replay and are tried
+ * again after a backoff delay, or as soon as connectivity returns when
+ * {@link #watchConnectivity(Context)} is used. Results are delivered to the
+ * {@link WorldPayOutboxListener}.
+ * <p/>
+ * Only reuse token requests and alternative payment methods are accepted, card numbers are never
+ * written to storage. The CVC of a {@link ReusableToken} is kept in the journal until it is
+ * delivered or {@link #clear()} is called.
+ * <pre>
+ * WorldPayOutbox outbox = new WorldPayOutbox(context, listener);
+ * outbox.watchConnectivity(context);
+ * WorldPay.getInstance().setOutbox(outbox);
+ * </pre>
+ * With an outbox set, {@link WorldPay#reuseTokenAsyncTask(Context, ReusableToken, WorldPayResponseReusableToken)}
+ * and {@link WorldPay#createTokenAsyncTask(Context, AlternativePaymentMethod, WorldPayApmResponse)}
+ * queue their request when there is no network instead of failing.
+ */
+public final class WorldPayOutbox {
+
+    /**
+     * The directory of the journal in {@link Context#getFilesDir()}.
+     */
+    public static final String DIRECTORY_NAME = "worldpay-outbox";
+
+    /**
+     * 1 s after the first failed replay, doubling up to 5 minutes.
+     */
+    public static final RetryPolicy DEFAULT_BACKOFF = new RetryPolicy.Builder()
+            .setBaseDelay(1000)
+            .setMaxDelay(5 * 60 * 1000)
+            .build();
+
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String TYPE = "type";
+    private static final String TOKEN = "token";
+    private static final String IDEMPOTENCY_KEY = "idempotencyKey";
+    private static final String BODY = "body";
+    private static final String TYPE_REUSE_TOKEN = "reuseToken";
+    private static final String TYPE_ALTERNATIVE_PAYMENT_METHOD = "alternativePaymentMethod";
+
+    private final File directory;
+    private final WorldPayConfig config;
+    private final Executor callbackExecutor;
+    private final WorldPayOutboxListener listener;
+    private final ScheduledThreadPoolExecutor replayThread;
+    private final Runnable replay = new Runnable() {
+        @Override
+        public void run() {
+            replay();
+        }
+    };
+
+    /**
+     * The ids of the journaled entries, in order.
+     */
+    private final TreeMap<Long, File> entries = new TreeMap<>();
+    private long nextId = 1;
+    private int failedReplays;
+    private ScheduledFuture<?> retry;
+    private RetryPolicy backoff = DEFAULT_BACKOFF;
+
+    private Context receiverContext;
+    private BroadcastReceiver connectivityReceiver;
+
+    /**
+     * Creates an outbox journaling to {@link #DIRECTORY_NAME} in the files directory of the app,
+     * replaying with the settings of {@link WorldPay#getInstance()} and delivering results on the
+     * main thread. Requests left from a previous run are replayed right away.
+     *
+     * @param context  The {@link Context}.
+     * @param listener The {@link WorldPayOutboxListener} results are delivered to.
+     * @throws IOException If the journal can not be read.
+     */
+    public WorldPayOutbox(Context context, WorldPayOutboxListener listener) throws IOException {
+        this(new File(context.getFilesDir(), DIRECTORY_NAME), null, new WorldPayClient.MainThreadExecutor(),
+                listener);
+    }
+
+    /**
+     * @param directory        The private directory of the journal, created if needed.
+     * @param config           The {@link WorldPayConfig} of replays, or null to use the settings of
+     *                         {@link WorldPay#getInstance()}.
+     * @param callbackExecutor The {@link Executor} results are delivered on.
+     * @param listener         The {@link WorldPayOutboxListener} results are delivered to.
+     * @throws IOException If the journal can not be read.
+     */
+    public WorldPayOutbox(File directory, WorldPayConfig config, Executor callbackExecutor,
+                          WorldPayOutboxListener listener) throws IOException {
+        if (callbackExecutor == null || listener == null) {
+            throw new IllegalArgumentException("Executor and listener can not be null.");
+        }
+        this.directory = directory;
+        this.config = config;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+        this.replayThread = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "WorldPay-Outbox");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        load();
+        if (!entries.isEmpty()) {
+            flush();
+        }
+    }
+
+    /**
+     * @param backoff The delays between replays of a request that did not reach WorldPay, and the
+     *                status codes that are replayed. Its maximum attempts are ignored, requests are
+     *                replayed until WorldPay answers them.
+     * @return {@code this}
+     */
+    public synchronized WorldPayOutbox setBackoff(RetryPolicy backoff) {
+        if (backoff == null) {
+            throw new IllegalArgumentException("Backoff can not be null.");
+        }
+        this.backoff = backoff;
+        return this;
+    }
+
+    /**
+     * Journals a reuse token request and replays it.
+     *
+     * @param reusableToken The {@link ReusableToken} whose CVC is updated.
+     * @return The id of the request, passed to the {@link WorldPayOutboxListener}.
+     * @throws IOException If the request could not be written to storage.
+     */
+    public long enqueue(ReusableToken reusableToken) throws IOException {
+        JsonRequestWriter body = JsonRequestWriter.get();
+        reusableToken.writeJson(body);
+        return enqueue(new Entry(TYPE_REUSE_TOKEN, reusableToken.getToken(), null,
+                Arrays.copyOf(body.getBuffer(), body.size())));
+    }
+
+    /**
+     * Journals the token request of an alternative payment method and replays it. Every replay
+     * sends the same idempotency key, so that the request creates one token at most.
+     *
+     * @param alternativePaymentMethod The {@link AlternativePaymentMethod} to tokenize.
+     * @return The id of the request, passed to the {@link WorldPayOutboxListener}.
+     * @throws IOException If the request could not be written to storage.
+     */
+    public long enqueue(AlternativePaymentMethod alternativePaymentMethod) throws IOException {
+        JsonRequestWriter body = getConfig().newTokenRequestBody();
+        alternativePaymentMethod.writeJson(body);
+        body.endObject();
+        return enqueue(new Entry(TYPE_ALTERNATIVE_PAYMENT_METHOD, null, UUID.randomUUID().toString(),
+                Arrays.copyOf(body.getBuffer(), body.size())));
+    }
+
+    /**
+     * @return The number of requests waiting to be delivered.
+     */
+    public synchronized int getPendingCount() {
+        return entries.size();
+    }
+
+    /**
+     * Replays the pending requests now, instead of waiting for the backoff delay.
+     */
+    public synchronized void flush() {
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+        failedReplays = 0;
+        replayThread.execute(replay);
+    }
+
+    /**
+     * Deletes the pending requests without sending them.
+     */
+    public synchronized void clear() {
+        for (File file : entries.values()) {
+            delete(file);
+        }
+        entries.clear();
+    }
+
+    /**
+     * Replays the pending requests whenever the device connects to a network, until
+     * {@link #close()} is called.
+     *
+     * @param context The {@link Context}, its application context is kept.
+     */
+    public synchronized void watchConnectivity(Context context) {
+        if (connectivityReceiver != null) {
+            return;
+        }
+        receiverContext = context.getApplicationContext();
+        connectivityReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (!intent.getBooleanExtra(ConnectivityManager.EXTRA_NO_CONNECTIVITY, false)) {
+                    DebugLogger.d("Network is back, replaying the outbox");
+                    flush();
+                }
+            }
+        };
+        receiverContext.registerReceiver(connectivityReceiver,
+                new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * Stops watching connectivity and replaying. Pending requests stay in storage, for the next
+     * outbox created on the same directory.
+     */
+    public synchronized void close() {
+        if (connectivityReceiver != null) {
+            receiverContext.unregisterReceiver(connectivityReceiver);
+            connectivityReceiver = null;
+            receiverContext = null;
+        }
+        replayThread.shutdownNow();
+    }
+
+    private WorldPayConfig getConfig() {
+        return config != null ? config : WorldPay.getInstance().getConfig();
+    }
+
+    private long enqueue(Entry entry) throws IOException {
+        synchronized (this) {
+            entry.id = nextId++;
+            File file = new File(directory, entry.id + ENTRY_SUFFIX);
+            write(file, entry);
+            entries.put(entry.id, file);
+        }
+        DebugLogger.d("Queued request " + entry.id + " in the outbox");
+        replayThread.execute(replay);
+        return entry.id;
+    }
+
+    /**
+     * Sends the pending requests in order, on the replay thread.
+     */
+    private void replay() {
+        while (true) {
+            final Entry entry;
+            synchronized (this) {
+                if (entries.isEmpty()) {
+                    return;
+                }
+                Long id = entries.firstKey();
+                try {
+                    entry = read(entries.get(id));
+                } catch (IOException | JSONException e) {
+                    // written by an older version, or damaged
+                    DebugLogger.e(e);
+                    delete(entries.remove(id));
+                    continue;
+                }
+                entry.id = id;
+            }
+
+            final Object result;
+            try {
+                result = send(entry);
+            } catch (final WorldPayException e) {
+                if (isRetryable(e)) {
+                    scheduleRetry(e);
+                    return;
+                }
+                remove(entry.id);
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onFailure(entry.id, e);
+                    }
+                });
+                continue;
+            }
+            remove(entry.id);
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (result instanceof AlternativePaymentMethodToken) {
+                        listener.onAlternativePaymentMethodToken(entry.id, (AlternativePaymentMethodToken) result);
+                    } else {
+                        listener.onReuseToken(entry.id, entry.token);
+                    }
+                }
+            });
+        }
+    }
+
+    private Object send(Entry entry) throws WorldPayException {
+        WorldPayConfig config = getConfig();
+        WorldPayHttp http = WorldPayHttp.getInstance();
+        TransportRequest request;
+        if (TYPE_ALTERNATIVE_PAYMENT_METHOD.equals(entry.type)) {
+            request = http.newCreateTokenRequest(config, entry.body, entry.body.length, entry.idempotencyKey);
+        } else {
+            request = http.newReuseTokenRequest(config, entry.token, entry.body, entry.body.length);
+        }
+
+        HttpServerResponse response;
+        try {
+            response = http.execute(config, request);
+        } catch (IOException | IllegalStateException e) {
+            DebugLogger.e(e);
+            throw new WorldPayException(WorldPayClient.toWorldPayError(e), e);
+        }
+        if (TYPE_ALTERNATIVE_PAYMENT_METHOD.equals(entry.type)) {
+            return WorldPayClient.readAlternativePaymentMethodToken(response);
+        }
+        WorldPayClient.readReuseTokenResponse(response);
+        return null;
+    }
+
+    private synchronized boolean isRetryable(WorldPayException e) {
+        if (e.isResponseError()) {
+            return backoff.isRetryable(e.getResponseError().getHttpStatusCode());
+        }
+        int code = e.getWorldPayError().getCode();
+        return code == WorldPayError.ERROR_RESPONSE_CONNECTION || code == WorldPayError.ERROR_DEADLINE_EXCEEDED
+                || code == WorldPayError.ERROR_CIRCUIT_OPEN;
+    }
+
+    private synchronized void scheduleRetry(WorldPayException e) {
+        if (replayThread.isShutdown()) {
+            return;
+        }
+        long delay = backoff.getDelay(++failedReplays);
+        DebugLogger.d("Outbox replay failed, retrying in " + delay + " ms: " + e.getMessage());
+        retry = replayThread.schedule(replay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void remove(long id) {
+        failedReplays = 0;
+        File file = entries.remove(id);
+        if (file != null) {
+            delete(file);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Can not list " + directory);
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // an enqueue interrupted before it returned
+                delete(file);
+            } else if (name.endsWith(ENTRY_SUFFIX)) {
+                try {
+                    long id = Long.parseLong(name.substring(0, name.length() - ENTRY_SUFFIX.length()));
+                    entries.put(id, file);
+                    nextId = Math.max(nextId, id + 1);
+                } catch (NumberFormatException e) {
+                    DebugLogger.d("Ignoring " + file + " in the outbox");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the entry to a temporary file synced to storage, then renames it, so that a crash
+     * never leaves a partial entry behind.
+     */
+    private static void write(File file, Entry entry) throws IOException {
+        byte[] json;
+        try {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put(TYPE, entry.type);
+            jsonObject.putOpt(TOKEN, entry.token);
+            jsonObject.putOpt(IDEMPOTENCY_KEY, entry.idempotencyKey);
+            jsonObject.put(BODY, new String(entry.body, TransportRequest.UTF_8));
+            json = jsonObject.toString().getBytes(TransportRequest.UTF_8);
+        } catch (JSONException e) {
+            throw new IOException("Can not write entry " + entry.id + ": " + e.getMessage());
+        }
+
+        File temp = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(json);
+            out.getFD().sync();
+        } finally {
+            close(out);
+        }
+        if (!temp.renameTo(file)) {
+            delete(temp);
+            throw new IOException("Can not rename " + temp + " to " + file);
+        }
+    }
+
+    private static Entry read(File file) throws IOException, JSONException {
+        byte[] json = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < json.length) {
+                int read = in.read(json, offset, json.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                offset += read;
+            }
+        } finally {
+            close(in);
+        }
+
+        JSONObject jsonObject = new JSONObject(new String(json, TransportRequest.UTF_8));
+        return new Entry(jsonObject.getString(TYPE), jsonObject.optString(TOKEN, null),
+                jsonObject.optString(IDEMPOTENCY_KEY, null),
+                jsonObject.getString(BODY).getBytes(TransportRequest.UTF_8));
+    }
+
+    private static void delete(File file) {
+        if (!file.delete() && file.exists()) {
+            DebugLogger.d("Can not delete " + file);
+        }
+    }
+
+    private static void close(Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            DebugLogger.e(e);
+        }
+    }
+
+    private static final class Entry {
+        final String type;
+        final String token;
+        final String idempotencyKey;
+        final byte[] body;
+        long id;
+
+        Entry(String type, String token, String idempotencyKey, byte[] body) {
+            this.type = type;
+            this.token = token;
+            this.idempotencyKey = idempotencyKey;
+            this.body = body;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.worldpay;
+
+/**
+ * Implement this interface to receive the results of the requests replayed by a {@link WorldPayOutbox}.
+ */
+public interface WorldPayOutboxListener {
+    /**
+     * The CVC of a reusable token was updated.
+     *
+     * @param id    The id returned by {@link WorldPayOutbox#enqueue(ReusableToken)}.
+     * @param token The token.
+     */
+    void onReuseToken(long id, String token);
+
+    /**
+     * An alternative payment method was tokenized.
+     *
+     * @param id    The id returned by {@link WorldPayOutbox#enqueue(AlternativePaymentMethod)}.
+     * @param token The {@link AlternativePaymentMethodToken}.
+     */
+    void onAlternativePaymentMethodToken(long id, AlternativePaymentMethodToken token);
+
+    /**
+     * WorldPay rejected the request, it is removed from the outbox.
+     *
+     * @param id The id returned by {@code enqueue}.
+     * @param e  The {@link WorldPayException} holding the {@link ResponseError} or {@link WorldPayError}.
+     */
+    void onFailure(long id, WorldPayException e);
+
+}
@@ -0,0 +1,25 @@
+package com.worldpay;
+
+import android.content.Context;
+
+/**
+ * Implement this interface in order to know the outcome of
+ * {@link WorldPay#prewarm(Context, long, WorldPayPrewarmResponse)}.
+ */
+public interface WorldPayPrewarmResponse {
+
+    /**
+     * A connection to WorldPay is open and pooled.
+     *
+     * @param durationMillis Time spent on DNS lookup, connect and TLS handshake, or 0 if a
+     *                       connection was already warm.
+     */
+    void onSuccess(long durationMillis);
+
+    /**
+     * The connection could not be opened. The first request will open its own connection.
+     *
+     * @param worldPayError Error details
+     */
+    void onError(WorldPayError worldPayError);
+}